@@ -0,0 +1,47 @@
+#! /usr/bin/env bash
+
+# run.sh - Compiles and runs an installer benchmark
+#
+# Usage: run.sh <benchmark> [arguments]
+#   <benchmark> is a class name in com.codesourcery.installer.bench,
+#   for example FileDeleterBench.
+
+#######################################################################
+#  Copyright (c) 2015 Mentor Graphics and others.
+#  All rights reserved. This program and the accompanying materials
+#  are made available under the terms of the Eclipse Public License 
+#  v1.0 which accompanies this distribution, and is available at
+#  http://www.eclipse.org/legal/epl-v10.html
+#
+#  Contributors:
+#    Mentor Graphics - initial API and implementation
+#######################################################################
+
+if [ $# -lt 1 ]; then
+    echo "Usage: $0 <benchmark> [arguments]"
+    exit 1
+fi
+
+bench_dir=$(dirname $(readlink -e "$0"))
+plugin_src="$bench_dir"/../plugins/com.codesourcery.installer/src/com/codesourcery/internal/installer
+bin_dir="$bench_dir"/bin
+
+# Plug-in sources that are measured.  They are compiled against the
+# stand-in Eclipse classes in stubs/.
+plugin_sources="
+    $plugin_src/FileDeleter.java
+    $plugin_src/FilesCopier.java
+    $plugin_src/IInstallConstants.java
+    $plugin_src/InstallFileList.java
+    $plugin_src/ThrottledProgressMonitor.java
+"
+
+rm -rf "$bin_dir"
+mkdir -p "$bin_dir"
+javac -nowarn -encoding UTF-8 -d "$bin_dir" \
+    $(find "$bench_dir"/stubs "$bench_dir"/src -name '*.java') \
+    $plugin_sources || exit 1
+
+benchmark=$1
+shift
+exec java -cp "$bin_dir" com.codesourcery.installer.bench.$benchmark "$@"
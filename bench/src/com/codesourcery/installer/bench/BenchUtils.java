@@ -0,0 +1,146 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+public class BenchUtils {
+	/**
+	 * Creates a tree of files.  Directories are nested up to four levels deep.
+	 * 
+	 * @param root Root directory
+	 * @param directories Number of directories
+	 * @param files Number of files in each directory
+	 * @param size Size of each file in bytes
+	 * @param readOnlyInterval Every n-th directory contains a read-only file
+	 * or <code>0</code> for no read-only files
+	 * @throws IOException on failure
+	 */
+	public static void createTree(Path root, int directories, int files, int size, int readOnlyInterval) 
+			throws IOException {
+		byte[] contents = new byte[size];
+		for (int index = 0; index < directories; index++) {
+			Path directory = root;
+			int value = index;
+			for (int depth = 0; depth < 4; depth++) {
+				directory = directory.resolve("d" + (value % 20));
+				value /= 20;
+				if (value == 0)
+					break;
+			}
+			directory = directory.resolve("dir" + index);
+			Files.createDirectories(directory);
+			for (int file = 0; file < files; file++) {
+				Files.write(directory.resolve("file" + file), contents);
+			}
+			if ((readOnlyInterval != 0) && (index % readOnlyInterval == 0) && (files > 0)) {
+				directory.resolve("file0").toFile().setWritable(false);
+			}
+		}
+	}
+
+	/**
+	 * Removes a file or directory tree if it exists.
+	 * 
+	 * @param path File or directory
+	 * @throws IOException on failure
+	 */
+	public static void delete(Path path) throws IOException {
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS))
+			return;
+		if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+			path.toFile().setWritable(true);
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+				for (Path entry : entries) {
+					delete(entry);
+				}
+			}
+		}
+		Files.delete(path);
+	}
+
+	/**
+	 * Lists the entries of a directory tree.
+	 * 
+	 * @param root Root directory
+	 * @return Sorted relative paths.  Directory paths end with '/'.
+	 * @throws IOException on failure
+	 */
+	public static List<String> list(final Path root) throws IOException {
+		final ArrayList<String> entries = new ArrayList<String>();
+		if (!Files.exists(root))
+			return entries;
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (!dir.equals(root)) {
+					entries.add(root.relativize(dir).toString().replace(File.separatorChar, '/') + "/");
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				entries.add(root.relativize(file).toString().replace(File.separatorChar, '/'));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(entries);
+		return entries;
+	}
+
+	/**
+	 * Returns the median of a set of times.
+	 * 
+	 * @param times Times
+	 * @return Median
+	 */
+	public static long median(long[] times) {
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	/**
+	 * Formats a set of times in milliseconds.
+	 * 
+	 * @param times Times in nanoseconds
+	 * @return Times and median in milliseconds
+	 */
+	public static String format(long[] times) {
+		StringBuilder buffer = new StringBuilder();
+		for (long time : times) {
+			if (buffer.length() > 0) {
+				buffer.append(", ");
+			}
+			buffer.append(time / 1000000);
+		}
+		buffer.append(" ms (median ");
+		buffer.append(median(times) / 1000000);
+		buffer.append(" ms)");
+		return buffer.toString();
+	}
+}
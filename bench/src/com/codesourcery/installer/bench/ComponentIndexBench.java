@@ -0,0 +1,136 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Measures adding install components when each added unit is first looked up
+ * by identifier, as RepositoryManager.addInstallComponent does.  The lookup of
+ * RepositoryManager.getInstallComponent is repeated here because the
+ * repository manager can't be loaded without the p2 runtime:
+ * <ul>
+ * <li><code>scan</code> - as before: the component list is scanned.</li>
+ * <li><code>map</code> - the component is found in the identifier map that
+ * is kept next to the component list.</li>
+ * </ul>
+ * Usage: <code>ComponentIndexBench [runs] [components...]</code>
+ */
+public class ComponentIndexBench {
+	public static void main(String[] args) {
+		int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		int[] sizes = new int[] { 100, 1000, 10000 };
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int index = 1; index < args.length; index++) {
+				sizes[index - 1] = Integer.parseInt(args[index]);
+			}
+		}
+
+		// Warm up
+		for (int run = 0; run < 5; run++) {
+			scan(sizes[sizes.length - 1]);
+			map(sizes[sizes.length - 1]);
+		}
+
+		for (int size : sizes) {
+			long[] scanTimes = new long[runs];
+			long[] mapTimes = new long[runs];
+			for (int run = 0; run < runs; run++) {
+				scanTimes[run] = scan(size);
+				mapTimes[run] = map(size);
+			}
+			System.out.println(size + " components: scan " + formatMedian(scanTimes) + ", map " +
+					formatMedian(mapTimes));
+		}
+	}
+
+	/**
+	 * Adds components, scanning the component list for each unit.
+	 * 
+	 * @param size Number of components
+	 * @return Time in nanoseconds
+	 */
+	private static long scan(int size) {
+		ArrayList<Component> components = new ArrayList<Component>();
+		long start = System.nanoTime();
+		for (int index = 0; index < size; index++) {
+			String id = "org.example.unit" + index;
+			Component found = null;
+			for (Component component : components) {
+				if (component.getId().equals(id)) {
+					found = component;
+					break;
+				}
+			}
+			if (found == null) {
+				components.add(new Component(id));
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Adds components, looking each unit up in the identifier map.
+	 * 
+	 * @param size Number of components
+	 * @return Time in nanoseconds
+	 */
+	private static long map(int size) {
+		ArrayList<Component> components = new ArrayList<Component>();
+		HashMap<String, Component> componentsById = new HashMap<String, Component>();
+		long start = System.nanoTime();
+		for (int index = 0; index < size; index++) {
+			String id = "org.example.unit" + index;
+			if (componentsById.get(id) == null) {
+				Component component = new Component(id);
+				components.add(component);
+				componentsById.put(id, component);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Formats the median of a set of times in milliseconds.
+	 * 
+	 * @param times Times in nanoseconds
+	 * @return Median in milliseconds
+	 */
+	private static String formatMedian(long[] times) {
+		return String.format("%.2f ms", BenchUtils.median(times) / 1000000.0);
+	}
+
+	/**
+	 * Install component stand-in.
+	 */
+	private static class Component {
+		/** Identifier */
+		private String id;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param id Identifier
+		 */
+		public Component(String id) {
+			this.id = id;
+		}
+
+		/**
+		 * @return Identifier
+		 */
+		public String getId() {
+			return id;
+		}
+	}
+}
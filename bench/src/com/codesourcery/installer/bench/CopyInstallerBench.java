@@ -0,0 +1,223 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.codesourcery.internal.installer.FileDeleter;
+import com.codesourcery.internal.installer.FilesCopier;
+
+/**
+ * Measures copying the uninstaller after the install actions and in the
+ * background while they run.  The startCopyInstaller, joinCopyInstaller and
+ * cancelCopyInstaller methods of InstallManager are repeated here because
+ * InstallManager can't be loaded without the p2 runtime.  The install actions
+ * are stood in for by writing as many files as the uninstaller has.
+ * <ul>
+ * <li><code>serial</code> - the uninstaller is copied after the actions.</li>
+ * <li><code>overlapped</code> - the copy is started before the actions and
+ * joined after them.</li>
+ * </ul>
+ * After timing, a copy is canceled while in progress.
+ * Usage: <code>CopyInstallerBench &lt;work directory&gt; [files] [runs]</code>
+ */
+public class CopyInstallerBench {
+	/** Size of each file */
+	private static final int FILE_SIZE = 16384;
+
+	/** Uninstaller files */
+	private Path source;
+	/** Background copy or <code>null</code> */
+	private Future<?> uninstallerCopy;
+	/** Progress monitor for the background copy */
+	private IProgressMonitor uninstallerCopyMonitor;
+	/** Location of the background copy */
+	private Path uninstallerCopyLocation;
+
+	public static void main(String[] args) throws Exception {
+		Path work = Paths.get(args[0]);
+		int files = (args.length > 1) ? Integer.parseInt(args[1]) : 3000;
+		int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+		BenchUtils.delete(work);
+		CopyInstallerBench bench = new CopyInstallerBench(work.resolve("uninstaller"));
+		writeFiles(bench.source, files);
+
+		System.out.println(files + " files of " + (FILE_SIZE / 1024) + " KB");
+		long[] serialTimes = new long[runs];
+		long[] overlappedTimes = new long[runs];
+		long[] joinTimes = new long[runs];
+		for (int run = 0; run < runs; run++) {
+			Path serial = work.resolve("serial");
+			long start = System.nanoTime();
+			writeFiles(serial, files);
+			bench.copyInstaller(serial.resolve("uninstall"), new NullProgressMonitor());
+			serialTimes[run] = System.nanoTime() - start;
+
+			Path overlapped = work.resolve("overlapped");
+			start = System.nanoTime();
+			bench.startCopyInstaller(overlapped.resolve("uninstall"));
+			writeFiles(overlapped, files);
+			long joinStart = System.nanoTime();
+			bench.joinCopyInstaller();
+			overlappedTimes[run] = System.nanoTime() - start;
+			joinTimes[run] = System.nanoTime() - joinStart;
+
+			if (!BenchUtils.list(overlapped.resolve("uninstall")).equals(BenchUtils.list(serial.resolve("uninstall"))))
+				throw new IllegalStateException("Copies differ");
+			BenchUtils.delete(serial);
+			BenchUtils.delete(overlapped);
+		}
+		System.out.println("serial: " + BenchUtils.format(serialTimes));
+		System.out.println("overlapped: " + BenchUtils.format(overlappedTimes) + ", join wait " +
+				BenchUtils.format(joinTimes));
+
+		// Cancel a copy in progress
+		Path canceled = work.resolve("canceled").resolve("uninstall");
+		bench.startCopyInstaller(canceled);
+		Thread.sleep(100);
+		long start = System.nanoTime();
+		bench.cancelCopyInstaller();
+		System.out.println("cancel: " + (System.nanoTime() - start) / 1000000 + " ms, copy removed " +
+				!Files.exists(canceled));
+		// A second cancel does nothing
+		bench.cancelCopyInstaller();
+		BenchUtils.delete(work);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param source Uninstaller files
+	 */
+	public CopyInstallerBench(Path source) {
+		this.source = source;
+	}
+
+	/**
+	 * Writes files in 100 directories.
+	 * 
+	 * @param directory Directory
+	 * @param files Number of files
+	 * @throws IOException on failure
+	 */
+	private static void writeFiles(Path directory, int files) throws IOException {
+		byte[] contents = new byte[FILE_SIZE];
+		for (int index = 0; index < files; index++) {
+			Path file = directory.resolve("d" + (index % 100)).resolve("f" + index);
+			Files.createDirectories(file.getParent());
+			Files.write(file, contents);
+		}
+	}
+
+	/**
+	 * InstallManager.startCopyInstaller
+	 * 
+	 * @param destinationLocation Destination location
+	 */
+	private void startCopyInstaller(final Path destinationLocation) {
+		uninstallerCopyLocation = destinationLocation;
+		uninstallerCopyMonitor = new NullProgressMonitor();
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Copy Installer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		uninstallerCopy = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				copyInstaller(destinationLocation, uninstallerCopyMonitor);
+				return null;
+			}
+		});
+		// Executor terminates after the copy
+		executor.shutdown();
+	}
+
+	/**
+	 * InstallManager.joinCopyInstaller
+	 */
+	private void joinCopyInstaller() {
+		try {
+			if (uninstallerCopy != null) {
+				uninstallerCopy.get();
+			}
+		}
+		catch (InterruptedException | ExecutionException e) {
+			System.err.println(e);
+		}
+		finally {
+			uninstallerCopy = null;
+		}
+	}
+
+	/**
+	 * InstallManager.cancelCopyInstaller
+	 */
+	private void cancelCopyInstaller() {
+		if (uninstallerCopy == null)
+			return;
+
+		uninstallerCopyMonitor.setCanceled(true);
+		joinCopyInstaller();
+		if (Files.exists(uninstallerCopyLocation)) {
+			new FileDeleter(uninstallerCopyLocation, null).delete(null);
+			try {
+				Files.deleteIfExists(uninstallerCopyLocation);
+			}
+			catch (IOException e) {
+				System.err.println(e);
+			}
+		}
+	}
+
+	/**
+	 * Copies the uninstaller files with the error handling of
+	 * InstallManager.copyInstaller.
+	 * 
+	 * @param destinationLocation Destination location
+	 * @param monitor Progress monitor
+	 */
+	private void copyInstaller(Path destinationLocation, IProgressMonitor monitor) {
+		try {
+			Files.createDirectories(destinationLocation);
+			new FilesCopier(source, destinationLocation.resolve("jre"), new CopyOption[] {
+					StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING }).copy(monitor);
+		}
+		catch (OperationCanceledException e) {
+			// Copy was cancelled
+		}
+		catch (Exception e) {
+			System.err.println(e);
+		}
+		finally {
+			monitor.done();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+
+import com.codesourcery.installer.Installer;
+import com.codesourcery.internal.installer.FileDeleter;
+import com.codesourcery.internal.installer.InstallMessages;
+
+/**
+ * Measures deleting a directory tree with FileDeleter and with the
+ * FileUtils.deleteFiles walker it replaced, which is repeated here:
+ * <ul>
+ * <li><code>before</code> - the tree is walked once to count the files and
+ * make them writable, then walked again to delete them.  Each path is
+ * compared with every excluded path.</li>
+ * <li><code>deleter</code> - FileDeleter deletes the tree with fork-join
+ * tasks and looks excluded paths up in a set.</li>
+ * </ul>
+ * Each run deletes a new tree with one excluded directory, plus the given
+ * number of excluded paths that do not exist, as for a long uninstall file
+ * list.
+ * Usage: <code>FileDeleterBench &lt;work directory&gt; [directories] [files]
+ * [excluded paths] [runs]</code>
+ */
+public class FileDeleterBench {
+	/** Mode names */
+	private static final String[] MODES = new String[] { "before", "deleter" };
+
+	public static void main(String[] args) throws Exception {
+		Path work = Paths.get(args[0]);
+		int directories = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int files = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+		int excluded = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+		int runs = (args.length > 4) ? Integer.parseInt(args[4]) : 5;
+
+		System.out.println(directories + " directories x " + files + " files, " + (excluded + 1) + " excluded paths");
+		long[][] times = new long[MODES.length][runs];
+		for (int run = 0; run < runs; run++) {
+			for (int mode = 0; mode < MODES.length; mode++) {
+				BenchUtils.delete(work);
+				BenchUtils.createTree(work, directories, files, 512, 50);
+				Path keep = work.resolve("keep");
+				Files.createDirectories(keep);
+				Files.write(keep.resolve("file"), new byte[512]);
+				Path[] excludedPaths = new Path[excluded + 1];
+				excludedPaths[0] = keep;
+				for (int index = 1; index <= excluded; index++) {
+					excludedPaths[index] = work.resolve("excluded" + index);
+				}
+
+				IProgressMonitor monitor = new NullProgressMonitor();
+				long start = System.nanoTime();
+				File[] filesNotRemoved = (mode == 0) ? 
+						deleteFilesBefore(work, excludedPaths, monitor) : 
+						new FileDeleter(work, excludedPaths).delete(monitor);
+				times[mode][run] = System.nanoTime() - start;
+
+				// Only the excluded directory is left
+				if ((filesNotRemoved.length != 0) || (BenchUtils.list(work).size() != 2)) {
+					throw new IllegalStateException(MODES[mode] + " left " + BenchUtils.list(work));
+				}
+			}
+		}
+		BenchUtils.delete(work);
+
+		for (int mode = 0; mode < MODES.length; mode++) {
+			System.out.println(MODES[mode] + ": " + BenchUtils.format(times[mode]));
+		}
+	}
+
+	/**
+	 * FileUtils.deleteFiles before FileDeleter.
+	 * 
+	 * @param directory Directory to delete
+	 * @param excludedPaths Paths to exclude or <code>null</code>
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Files that could not be removed
+	 */
+		private static File[] deleteFilesBefore(final Path directory, final Path[] excludedPaths, final IProgressMonitor monitor) {
+			final ArrayList<File> filesNotRemoved = new ArrayList<File>();
+			final IPath directoryPath = new org.eclipse.core.runtime.Path(directory.toFile().getAbsolutePath());
+			try {
+				final int[] fileCount = new int[] { 0 };
+			
+				// Count file to be removed
+				Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path path,
+							BasicFileAttributes attrs) throws IOException {
+						fileCount[0] ++;
+						// If file is read-only, make it writable
+						File file = path.toFile();
+						if (!file.canWrite()) {
+							if (!file.setWritable(true)) {
+								throw new IOException("Failed to set file writeable: " + file.getAbsolutePath());
+							}
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			
+				if (monitor != null) {
+					monitor.beginTask(NLS.bind(InstallMessages.Removing0, ""), fileCount[0]);
+				}
+			
+				// Delete files and sub-directories
+				Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+					/**
+					 * Returns if a path is excluded.
+					 * 
+					 * @param arg Path
+					 * @return <code>true</code> if path is excluded
+					 */
+					private boolean isExcluded(Path arg) {
+						boolean excluded = false;
+						if (excludedPaths != null) {
+							for (Path excludedPath : excludedPaths) {
+								if (excludedPath.equals(arg)) {
+									excluded = true;
+									break;
+								}
+							}
+						}
+					
+						return excluded;
+					}
+				
+					@Override
+					public FileVisitResult preVisitDirectory(Path arg0,
+							BasicFileAttributes arg1) throws IOException {
+						// Is directory excluded
+						if (isExcluded(arg0)) {
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+						else {
+							return FileVisitResult.CONTINUE;
+						}
+					}
+
+					@Override
+					public FileVisitResult postVisitDirectory(Path arg0,
+							IOException arg1) throws IOException {
+						try {
+							if (!arg0.equals(directory)) {
+								if (monitor != null) {
+									IPath filePath = new org.eclipse.core.runtime.Path(arg0.toFile().getAbsolutePath()).removeFirstSegments(directoryPath.segmentCount()).setDevice("");
+									monitor.setTaskName(NLS.bind(InstallMessages.Removing0, filePath.toOSString()));
+								}
+								// Delete directory
+								Files.delete(arg0);
+							}
+						}
+						catch (Exception e) {
+							// Ignore
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path arg0, BasicFileAttributes arg1)
+							throws IOException {
+						try {
+							if (!isExcluded(arg0)) {
+								// Delete file
+								Files.delete(arg0);
+							}
+						}
+						catch (Exception e) {
+							filesNotRemoved.add(arg0.toFile());
+							Installer.log(e);
+						}
+						if (monitor != null) {
+							monitor.worked(1);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				// If an exception is thrown from visitor, it is an error
+				Installer.log(e);
+			} finally {
+				if (monitor != null) {
+					monitor.done();
+				}
+			}
+		
+			return filesNotRemoved.toArray(new File[filesNotRemoved.size()]);
+		}
+}
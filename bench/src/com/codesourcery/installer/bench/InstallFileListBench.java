@@ -0,0 +1,137 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import com.codesourcery.internal.installer.FileDeleter;
+import com.codesourcery.internal.installer.IInstallConstants;
+import com.codesourcery.internal.installer.InstallFileList;
+
+/**
+ * Measures removing the product files of a large installation from the
+ * installed file list and by walking the product directory, as
+ * InstallManager.deleteProductFiles does with and without the list:
+ * <ul>
+ * <li><code>list</code> - the list saved with InstallFileList is loaded and
+ * its entries are deleted.</li>
+ * <li><code>walk</code> - the product directory is deleted except for the
+ * uninstall directory.</li>
+ * </ul>
+ * Before timing, the list is checked on a small installation with links,
+ * an empty directory and a non-ASCII name, that is changed after the list is
+ * saved.  The check needs a UTF-8 locale for the non-ASCII name.
+ * Usage: <code>InstallFileListBench &lt;work directory&gt; [directories]
+ * [files] [runs]</code>
+ */
+public class InstallFileListBench {
+	/** Mode names */
+	private static final String[] MODES = new String[] { "list", "walk" };
+
+	public static void main(String[] args) throws Exception {
+		Path work = Paths.get(args[0]);
+		int directories = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int files = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+		int runs = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+
+		BenchUtils.delete(work);
+		check(work);
+		BenchUtils.delete(work);
+
+		System.out.println(directories + " directories x " + files + " files");
+		long[][] times = new long[MODES.length][runs];
+		for (int run = 0; run < runs; run++) {
+			for (int mode = 0; mode < MODES.length; mode++) {
+				BenchUtils.delete(work);
+				BenchUtils.createTree(work, directories, files, 512, 50);
+				Path uninstall = work.resolve(IInstallConstants.UNINSTALL_DIRECTORY);
+				Files.createDirectories(uninstall);
+				InstallFileList.save(new org.eclipse.core.runtime.Path(work.toString()));
+
+				long start = System.nanoTime();
+				File[] filesNotRemoved;
+				if (mode == 0) {
+					InstallFileList fileList = InstallFileList.load(new org.eclipse.core.runtime.Path(work.toString()));
+					filesNotRemoved = new FileDeleter(work, null).delete(fileList.getFiles(),
+							fileList.getDirectories(), null);
+				}
+				else {
+					filesNotRemoved = new FileDeleter(work, new Path[] { uninstall }).delete(null);
+				}
+				times[mode][run] = System.nanoTime() - start;
+
+				// Only the uninstall directory is left
+				if ((filesNotRemoved.length != 0) || (BenchUtils.list(work).size() != 2)) {
+					throw new IllegalStateException(MODES[mode] + " left " + BenchUtils.list(work));
+				}
+			}
+		}
+		BenchUtils.delete(work);
+
+		for (int mode = 0; mode < MODES.length; mode++) {
+			System.out.println(MODES[mode] + ": " + BenchUtils.format(times[mode]));
+		}
+	}
+
+	/**
+	 * Checks the installed file list on a small installation.
+	 * 
+	 * @param work Work directory
+	 * @throws Exception on failure
+	 */
+	private static void check(Path work) throws Exception {
+		Path product = work.resolve("product");
+		Path outside = work.resolve("outside");
+		Files.createDirectories(outside);
+		Files.write(outside.resolve("keep"), new byte[512]);
+		BenchUtils.createTree(product, 60, 5, 512, 10);
+		Path uninstall = product.resolve(IInstallConstants.UNINSTALL_DIRECTORY);
+		Files.createDirectories(uninstall);
+		Files.write(uninstall.resolve("uninstall.jar"), new byte[512]);
+		Files.createDirectories(product.resolve("dir with space"));
+		Files.write(product.resolve("dir with space").resolve("ünï.txt"), new byte[512]);
+		Files.createDirectories(product.resolve("empty").resolve("nested"));
+		Files.createSymbolicLink(product.resolve("link"), outside);
+		Files.createSymbolicLink(product.resolve("dangling"), work.resolve("missing"));
+		InstallFileList.save(new org.eclipse.core.runtime.Path(product.toString()));
+
+		List<String> saved = Files.readAllLines(uninstall.resolve(IInstallConstants.INSTALL_FILES_FILENAME), StandardCharsets.UTF_8);
+		for (String entry : Arrays.asList("link", "dangling", "dir with space/ünï.txt", "empty/nested/")) {
+			if (!saved.contains(entry))
+				throw new IllegalStateException("Not listed: " + entry);
+		}
+		for (String entry : saved) {
+			if (entry.startsWith(IInstallConstants.UNINSTALL_DIRECTORY))
+				throw new IllegalStateException("Uninstall directory listed: " + entry);
+		}
+
+		// A file is added and a listed directory is moved after installation
+		Files.write(product.resolve("d1").resolve("dir1").resolve("user-file"), new byte[512]);
+		Files.move(product.resolve("d2").resolve("dir2"), work.resolve("moved"));
+
+		InstallFileList fileList = InstallFileList.load(new org.eclipse.core.runtime.Path(product.toString()));
+		File[] filesNotRemoved = new FileDeleter(product, null).delete(fileList.getFiles(),
+				fileList.getDirectories(), null);
+		List<String> left = BenchUtils.list(product);
+		List<String> expected = Arrays.asList("d1/", "d1/dir1/", "d1/dir1/user-file", "uninstall/",
+				"uninstall/" + IInstallConstants.INSTALL_FILES_FILENAME, "uninstall/uninstall.jar");
+		if ((filesNotRemoved.length != 0) || !left.equals(expected) || !Files.exists(outside.resolve("keep"))) {
+			throw new IllegalStateException("Left " + left);
+		}
+		System.out.println("check: " + saved.size() + " entries listed, only user files and uninstall/ left");
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures mirroring artifacts one at a time and with concurrent transfers.
+ * Artifacts can't be transferred without the p2 runtime, so a transfer is
+ * simulated as the request latency plus a transfer time limited for each
+ * connection.  Concurrent transfers run on a fixed pool and their completions
+ * are taken on the calling thread, as InstallerMirroring does.
+ * Usage: <code>MirroringBench [artifacts] [latency in ms] [transfer in ms]
+ * [runs] [threads...]</code>
+ */
+public class MirroringBench {
+	public static void main(String[] args) throws Exception {
+		int artifacts = (args.length > 0) ? Integer.parseInt(args[0]) : 40;
+		final int latency = (args.length > 1) ? Integer.parseInt(args[1]) : 80;
+		final int transfer = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		int runs = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+		int[] threadCounts = new int[] { 1, 4, 8 };
+		if (args.length > 4) {
+			threadCounts = new int[args.length - 4];
+			for (int index = 4; index < args.length; index++) {
+				threadCounts[index - 4] = Integer.parseInt(args[index]);
+			}
+		}
+
+		System.out.println(artifacts + " artifacts, " + latency + " ms latency, " + transfer + " ms transfer");
+		for (int threads : threadCounts) {
+			long[] times = new long[runs];
+			for (int run = 0; run < runs; run++) {
+				long start = System.nanoTime();
+				if (threads == 1) {
+					for (int index = 0; index < artifacts; index++) {
+						transfer(latency, transfer);
+					}
+				}
+				else {
+					ExecutorService executor = Executors.newFixedThreadPool(threads);
+					CompletionService<Object> completions = new ExecutorCompletionService<Object>(executor);
+					for (int index = 0; index < artifacts; index++) {
+						completions.submit(new Callable<Object>() {
+							@Override
+							public Object call() throws Exception {
+								transfer(latency, transfer);
+								return null;
+							}
+						});
+					}
+					// Completions are handled on the calling thread
+					for (int index = 0; index < artifacts; index++) {
+						completions.take().get();
+					}
+					executor.shutdown();
+				}
+				times[run] = System.nanoTime() - start;
+			}
+			System.out.println(threads + " thread(s): " + BenchUtils.format(times));
+		}
+	}
+
+	/**
+	 * Simulates transferring an artifact.
+	 * 
+	 * @param latency Request latency in milliseconds
+	 * @param transfer Transfer time in milliseconds
+	 * @throws InterruptedException if interrupted
+	 */
+	private static void transfer(int latency, int transfer) throws InterruptedException {
+		Thread.sleep(latency + transfer);
+	}
+}
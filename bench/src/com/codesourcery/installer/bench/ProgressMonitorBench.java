@@ -0,0 +1,170 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import com.codesourcery.internal.installer.ThrottledProgressMonitor;
+
+/**
+ * Measures how long provisioning progress takes to report with and without
+ * ThrottledProgressMonitor.  Progress is reported as p2 reports it for each
+ * installed file (a sub-task and one unit of work) to a monitor that runs each
+ * call on a single display thread and waits for it, as the wizard progress
+ * monitor does with Display.syncExec.
+ * Usage: <code>ProgressMonitorBench [files] [display call in microseconds]
+ * [work per file in microseconds] [rate] [runs]</code>
+ */
+public class ProgressMonitorBench {
+	public static void main(String[] args) throws Exception {
+		int files = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		int displayCall = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+		int work = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+		int rate = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+		int runs = (args.length > 4) ? Integer.parseInt(args[4]) : 3;
+
+		System.out.println(files + " files, " + displayCall + " us per display call, " + work +
+				" us work per file, " + rate + " updates per second");
+		String[] modes = new String[] { "direct", "throttled" };
+		long[][] times = new long[modes.length][runs];
+		long[] calls = new long[modes.length];
+		for (int run = 0; run < runs; run++) {
+			for (int mode = 0; mode < modes.length; mode++) {
+				DisplayMonitor display = new DisplayMonitor(displayCall);
+				IProgressMonitor monitor = (mode == 0) ? display : new ThrottledProgressMonitor(display, rate);
+				long start = System.nanoTime();
+				monitor.beginTask("Installing", files);
+				for (int file = 0; file < files; file++) {
+					spin(work);
+					monitor.subTask("file" + file);
+					monitor.worked(1);
+				}
+				monitor.done();
+				times[mode][run] = System.nanoTime() - start;
+				calls[mode] = display.getCalls();
+				display.dispose();
+				if (display.getWork() != files) {
+					throw new IllegalStateException(modes[mode] + " reported " + display.getWork() + " work");
+				}
+			}
+		}
+
+		for (int mode = 0; mode < modes.length; mode++) {
+			System.out.println(modes[mode] + ": " + BenchUtils.format(times[mode]) + ", " + calls[mode] +
+					" display calls");
+		}
+	}
+
+	/**
+	 * Busy waits.
+	 * 
+	 * @param micros Time in microseconds
+	 */
+	private static void spin(long micros) {
+		long end = System.nanoTime() + micros * 1000;
+		while (System.nanoTime() < end) {
+			// Wait
+		}
+	}
+
+	/**
+	 * Progress monitor that runs each update on a display thread and waits
+	 * for it to complete.
+	 */
+	private static class DisplayMonitor extends NullProgressMonitor {
+		/** Display thread */
+		private ExecutorService display = Executors.newSingleThreadExecutor();
+		/** Time for each display call in microseconds */
+		private int callTime;
+		/** Number of display calls */
+		private long calls;
+		/** Work reported */
+		private double work;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param callTime Time for each display call in microseconds
+		 */
+		public DisplayMonitor(int callTime) {
+			this.callTime = callTime;
+		}
+
+		/**
+		 * Runs an update on the display thread.
+		 * 
+		 * @param addedWork Work to add
+		 */
+		private void syncExec(final double addedWork) {
+			try {
+				display.submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						spin(callTime);
+						calls++;
+						work += addedWork;
+						return null;
+					}
+				}).get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void setTaskName(String name) {
+			syncExec(0);
+		}
+
+		@Override
+		public void subTask(String name) {
+			syncExec(0);
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+
+		@Override
+		public void internalWorked(double work) {
+			syncExec(work);
+		}
+
+		/**
+		 * @return Number of display calls
+		 */
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * @return Work reported
+		 */
+		public double getWork() {
+			return work;
+		}
+
+		/**
+		 * Stops the display thread.
+		 */
+		public void dispose() {
+			display.shutdown();
+		}
+	}
+}
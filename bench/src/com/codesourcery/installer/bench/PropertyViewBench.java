@@ -0,0 +1,310 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks and measures the resolved property view of InstallDescription.  The
+ * property reading of InstallDescription is repeated here, before and after
+ * the view was added, with a settable operating system and architecture in
+ * place of Platform:
+ * <ul>
+ * <li><code>before</code> - readProperty looks up the OS/arch, OS, default
+ * and legacy property names on every call.</li>
+ * <li><code>view</code> - readProperty looks the name up in a view that is
+ * built once.</li>
+ * </ul>
+ * Both are first compared on random property maps with OS and OS/arch
+ * variants, legacy names, <code>null</code> values and names that repeat
+ * the OS suffix.  One map in four uses an unknown operating system.
+ * Usage: <code>PropertyViewBench [maps] [runs]</code>
+ */
+public class PropertyViewBench {
+	/** Unknown operating system */
+	private static final String OS_UNKNOWN = "unknown";
+	/** Operating systems */
+	private static final String[] OSES = new String[] { "linux", "win32", "macosx" };
+	/** Architectures */
+	private static final String[] ARCHES = new String[] { "x86", "x86_64" };
+	/** Older property names for changed properties */
+	private static final Map<String, String> LEGACY_PROPERTIES = new HashMap<String, String>();
+	static {
+		for (int index = 0; index < 31; index++) {
+			LEGACY_PROPERTIES.put("new.p" + index, "old.p" + index);
+		}
+	}
+
+	/** Operating system */
+	private String os;
+	/** Architecture */
+	private String arch;
+	/** Installer properties */
+	private Map<String, String> properties;
+	/** Resolved property view or <code>null</code> */
+	private Map<String, String> propertyView;
+
+	public static void main(String[] args) {
+		int maps = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 15;
+
+		check(maps);
+
+		// Cost of building the view and of reading 50 properties
+		int repetitions = 2000;
+		for (int size : new int[] { 200, 2000 }) {
+			PropertyViewBench bench = new PropertyViewBench("linux", "x86_64", generate(new Random(1), size));
+			long[] buildTimes = new long[runs];
+			long[] beforeTimes = new long[runs];
+			long[] viewTimes = new long[runs];
+			int hits = 0;
+			for (int run = 0; run < runs; run++) {
+				long start = System.nanoTime();
+				for (int repetition = 0; repetition < repetitions; repetition++) {
+					bench.propertyView = null;
+					hits += bench.getPropertyView().size();
+				}
+				buildTimes[run] = (System.nanoTime() - start) / repetitions;
+
+				start = System.nanoTime();
+				for (int repetition = 0; repetition < repetitions; repetition++) {
+					for (int index = 0; index < 50; index++) {
+						if (bench.readPropertyBefore("k" + index) != null) {
+							hits++;
+						}
+					}
+				}
+				beforeTimes[run] = (System.nanoTime() - start) / repetitions;
+
+				start = System.nanoTime();
+				for (int repetition = 0; repetition < repetitions; repetition++) {
+					for (int index = 0; index < 50; index++) {
+						if (bench.readProperty("k" + index) != null) {
+							hits++;
+						}
+					}
+				}
+				viewTimes[run] = (System.nanoTime() - start) / repetitions;
+			}
+			System.out.println(size + " properties (" + hits + " hits):");
+			System.out.println("  build view: " + formatMicros(buildTimes));
+			System.out.println("  50 reads before: " + formatMicros(beforeTimes));
+			System.out.println("  50 reads from view: " + formatMicros(viewTimes));
+		}
+	}
+
+	/**
+	 * Compares reading properties before and with the view.
+	 * 
+	 * @param maps Number of property maps
+	 */
+	private static void check(int maps) {
+		Random random = new Random(7);
+		long lookups = 0;
+		for (int round = 0; round < maps; round++) {
+			String os = (round % 4 == 3) ? OS_UNKNOWN : OSES[round % 3];
+			PropertyViewBench bench = new PropertyViewBench(os, ARCHES[round % 2],
+					generate(random, 20 + random.nextInt(300)));
+
+			// Every name, every name without its suffixes, and the legacy names
+			Set<String> names = new HashSet<String>();
+			for (String name : new ArrayList<String>(bench.properties.keySet())) {
+				names.add(name);
+				for (String osName : OSES) {
+					if (name.endsWith("." + osName)) {
+						names.add(name.substring(0, name.length() - osName.length() - 1));
+					}
+				}
+				String[] segments = name.split("\\.");
+				names.add(segments[0]);
+				if (segments.length > 1) {
+					names.add(segments[0] + "." + segments[1]);
+				}
+			}
+			names.addAll(LEGACY_PROPERTIES.keySet());
+			names.addAll(LEGACY_PROPERTIES.values());
+			names.add("missing");
+			names.add("");
+			for (String name : names) {
+				bench.compare(name);
+				lookups++;
+			}
+
+			// Setting a property clears the view
+			bench.properties.put("k0.linux", "set" + round);
+			bench.propertyView = null;
+			bench.compare("k0");
+			lookups++;
+		}
+		System.out.println("check: " + lookups + " lookups on " + maps + " maps, no differences");
+	}
+
+	/**
+	 * Generates properties.
+	 * 
+	 * @param random Random numbers
+	 * @param size Number of properties
+	 * @return Properties
+	 */
+	private static Map<String, String> generate(Random random, int size) {
+		HashMap<String, String> properties = new HashMap<String, String>();
+		for (int index = 0; index < size; index++) {
+			String name = (random.nextInt(4) == 0) ? "new.p" + random.nextInt(31) : "k" + random.nextInt(size);
+			switch (random.nextInt(6)) {
+			case 0:
+				properties.put(name, "d" + index);
+				break;
+			case 1:
+				properties.put(name + "." + OSES[random.nextInt(3)], "o" + index);
+				break;
+			case 2:
+				properties.put(name + "." + OSES[random.nextInt(3)] + "." + ARCHES[random.nextInt(2)], "a" + index);
+				break;
+			case 3:
+				properties.put("old.p" + random.nextInt(31), "l" + index);
+				break;
+			case 4:
+				properties.put(name + ".linux.linux", "ll" + index);
+				break;
+			default:
+				properties.put(name, (random.nextInt(10) == 0) ? null : "v" + index);
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * Formats the median of a set of times in microseconds.
+	 * 
+	 * @param times Times in nanoseconds
+	 * @return Median in microseconds
+	 */
+	private static String formatMicros(long[] times) {
+		return String.format("%.1f us", BenchUtils.median(times) / 1000.0);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param os Operating system
+	 * @param arch Architecture
+	 * @param properties Installer properties
+	 */
+	public PropertyViewBench(String os, String arch, Map<String, String> properties) {
+		this.os = os;
+		this.arch = arch;
+		this.properties = properties;
+	}
+
+	/**
+	 * Reads a property before and with the view.
+	 * 
+	 * @param name Property name
+	 * @throws IllegalStateException if the values differ
+	 */
+	private void compare(String name) {
+		String before = readPropertyBefore(name);
+		String after = readProperty(name);
+		if ((before == null) ? (after != null) : !before.equals(after)) {
+			throw new IllegalStateException(os + " " + name + ": " + before + " before, " + after + " with view");
+		}
+	}
+
+	/**
+	 * InstallDescription.readProperty before the view.
+	 * 
+	 * @param prefix Property name
+	 * @return Property value or <code>null</code>
+	 */
+	private String readPropertyBefore(String prefix) {
+		String value = null;
+		if (prefix != null) {
+			if (!os.equals(OS_UNKNOWN)) {
+				String osProperty = prefix + "." + os;
+				String archProperty = osProperty + "." + arch;
+				value = properties.get(archProperty);
+				if (value == null) {
+					value = properties.get(osProperty);
+				}
+			}
+			if (value == null) {
+				value = properties.get(prefix);
+			}
+			if (value == null) {
+				String oldProperty = LEGACY_PROPERTIES.get(prefix);
+				if (oldProperty != null) {
+					value = properties.get(oldProperty);
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * InstallDescription.readProperty
+	 * 
+	 * @param prefix Property name
+	 * @return Property value or <code>null</code>
+	 */
+	private String readProperty(String prefix) {
+		return (prefix != null) ? getPropertyView().get(prefix) : null;
+	}
+
+	/**
+	 * InstallDescription.getPropertyView
+	 * 
+	 * @return Resolved properties
+	 */
+	private Map<String, String> getPropertyView() {
+		if (propertyView == null) {
+			HashMap<String, String> view = new HashMap<String, String>(properties);
+			if (!os.equals(OS_UNKNOWN)) {
+				String osSuffix = "." + os;
+				String archSuffix = osSuffix + "." + arch;
+				putSuffixedProperties(view, osSuffix);
+				putSuffixedProperties(view, archSuffix);
+			}
+			for (Entry<String, String> legacyProperty : LEGACY_PROPERTIES.entrySet()) {
+				if (view.get(legacyProperty.getKey()) == null) {
+					String value = properties.get(legacyProperty.getValue());
+					if (value != null) {
+						view.put(legacyProperty.getKey(), value);
+					}
+				}
+			}
+			propertyView = Collections.unmodifiableMap(view);
+		}
+
+		return propertyView;
+	}
+
+	/**
+	 * InstallDescription.putSuffixedProperties
+	 * 
+	 * @param view Properties to update
+	 * @param suffix Property name suffix
+	 */
+	private void putSuffixedProperties(Map<String, String> view, String suffix) {
+		for (Entry<String, String> property : properties.entrySet()) {
+			String name = property.getKey();
+			if ((property.getValue() != null) && name.endsWith(suffix)) {
+				view.put(name.substring(0, name.length() - suffix.length()), property.getValue());
+			}
+		}
+	}
+}
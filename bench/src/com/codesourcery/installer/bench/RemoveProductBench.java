@@ -0,0 +1,185 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import com.codesourcery.internal.installer.FileDeleter;
+import com.codesourcery.internal.installer.IInstallConstants;
+import com.codesourcery.internal.installer.InstallFileList;
+
+/**
+ * Measures how long the uninstaller waits while product files are removed.
+ * The removal sequences of InstallManager.removeProductLocation are repeated
+ * here because InstallManager can't be loaded without the p2 runtime:
+ * <ul>
+ * <li><code>remove</code> - REMOVE_DIRS: the recorded installed files are
+ * deleted.</li>
+ * <li><code>fast-wait</code> - FAST_REMOVE_DIRS as it was first fixed: the
+ * entries are moved to trash, the trash is made writable, the recorded files
+ * are checked and the uninstaller waits for the trash to be deleted.</li>
+ * <li><code>fast</code> - FAST_REMOVE_DIRS: the entries are moved to trash,
+ * the trash is deleted in the background and only the entries that were not
+ * moved are deleted.</li>
+ * </ul>
+ * Usage: <code>RemoveProductBench &lt;work directory&gt; [directories] [files]
+ * [runs]</code>
+ */
+public class RemoveProductBench {
+	/** Mode names */
+	private static final String[] MODES = new String[] { "remove", "fast-wait", "fast" };
+
+	public static void main(String[] args) throws Exception {
+		Path work = Paths.get(args[0]);
+		int directories = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int files = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+		int runs = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+
+		System.out.println(directories + " directories x " + files + " files");
+		long[][] times = new long[MODES.length][runs];
+		for (int run = 0; run < runs; run++) {
+			for (int mode = 0; mode < MODES.length; mode++) {
+				BenchUtils.delete(work);
+				Path product = work.resolve("product");
+				BenchUtils.createTree(product, directories, files, 512, 50);
+				Files.createDirectories(product.resolve(IInstallConstants.UNINSTALL_DIRECTORY));
+				InstallFileList.save(new org.eclipse.core.runtime.Path(product.toString()));
+
+				long start = System.nanoTime();
+				Thread trashThread = remove(mode, product);
+				times[mode][run] = System.nanoTime() - start;
+				if (trashThread != null) {
+					trashThread.join();
+				}
+
+				// Only the uninstall directory is left in the product directory
+				if (BenchUtils.list(product).size() != 2) {
+					throw new IllegalStateException(MODES[mode] + " left " + BenchUtils.list(product));
+				}
+			}
+		}
+		BenchUtils.delete(work);
+
+		for (int mode = 0; mode < MODES.length; mode++) {
+			System.out.println(MODES[mode] + ": " + BenchUtils.format(times[mode]));
+		}
+	}
+
+	/**
+	 * Removes the product files.
+	 * 
+	 * @param mode Mode
+	 * @param product Product directory
+	 * @return Thread removing the trash or <code>null</code>
+	 * @throws Exception on failure
+	 */
+	private static Thread remove(int mode, Path product) throws Exception {
+		if (mode == 0) {
+			deleteProductFiles(product);
+			return null;
+		}
+
+		final Path trash = trashProductFiles(product);
+		Thread trashThread = new Thread("Remove Trash") {
+			@Override
+			public void run() {
+				new FileDeleter(trash, null).delete(null);
+				try {
+					Files.delete(trash);
+				}
+				catch (IOException e) {
+					System.err.println(e);
+				}
+			}
+		};
+		trashThread.setDaemon(true);
+
+		if (mode == 1) {
+			// The trash was made writable before the removal started
+			setWritable(trash);
+			trashThread.start();
+			deleteProductFiles(product);
+			trashThread.join();
+			return null;
+		}
+		else {
+			trashThread.start();
+			// Only the entries that were not moved are left
+			new FileDeleter(product, new Path[] { product.resolve(IInstallConstants.UNINSTALL_DIRECTORY) }).delete(null);
+			return trashThread;
+		}
+	}
+
+	/**
+	 * Deletes the recorded installed files.
+	 * 
+	 * @param product Product directory
+	 * @throws IOException on failure
+	 */
+	private static void deleteProductFiles(Path product) throws IOException {
+		InstallFileList fileList = InstallFileList.load(new org.eclipse.core.runtime.Path(product.toString()));
+		File[] filesNotRemoved = new FileDeleter(product, null).delete(fileList.getFiles(), fileList.getDirectories(), null);
+		if (filesNotRemoved.length != 0)
+			throw new IOException("Files not removed: " + filesNotRemoved.length);
+	}
+
+	/**
+	 * Moves the entries of the product directory except for the uninstall
+	 * directory to a trash directory.
+	 * 
+	 * @param product Product directory
+	 * @return Trash directory
+	 * @throws IOException on failure
+	 */
+	private static Path trashProductFiles(Path product) throws IOException {
+		Path trash = product.resolveSibling("." + product.getFileName() + ".trash" + System.currentTimeMillis());
+		Files.createDirectory(trash);
+		for (File entry : product.toFile().listFiles()) {
+			if (!entry.getName().equals(IInstallConstants.UNINSTALL_DIRECTORY)) {
+				Files.move(entry.toPath(), trash.resolve(entry.getName()), StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+		return trash;
+	}
+
+	/**
+	 * Makes all files in a directory writable, as FileUtils.setWritable does.
+	 * 
+	 * @param directory Directory
+	 * @throws IOException on failure
+	 */
+	private static void setWritable(Path directory) throws IOException {
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				dir.toFile().setWritable(true);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				File f = file.toFile();
+				if (!f.canWrite()) {
+					f.setWritable(true);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
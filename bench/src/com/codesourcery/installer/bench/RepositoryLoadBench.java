@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures loading meta-data repositories one at a time and concurrently.
+ * Repositories can't be loaded without the p2 runtime, so a load is simulated
+ * as a sleep for the fetch followed by a fixed amount of work for the parse.
+ * The concurrent loads are consumed in location order, as
+ * RepositoryManager.loadMetadataRepositoriesConcurrently does.
+ * Usage: <code>RepositoryLoadBench [repositories] [latency in ms]
+ * [parse iterations] [threads] [runs]</code>
+ */
+public class RepositoryLoadBench {
+	public static void main(String[] args) throws Exception {
+		int repositories = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+		final int latency = (args.length > 1) ? Integer.parseInt(args[1]) : 150;
+		final int parse = (args.length > 2) ? Integer.parseInt(args[2]) : 20000000;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+		int runs = (args.length > 4) ? Integer.parseInt(args[4]) : 5;
+
+		System.out.println(repositories + " repositories, " + latency + " ms latency, " + parse +
+				" parse iterations, " + threads + " threads");
+		long[] serialTimes = new long[runs];
+		long[] concurrentTimes = new long[runs];
+		for (int run = 0; run < runs; run++) {
+			long start = System.nanoTime();
+			for (int index = 0; index < repositories; index++) {
+				load(latency, parse);
+			}
+			serialTimes[run] = System.nanoTime() - start;
+
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			start = System.nanoTime();
+			List<Future<Long>> results = new ArrayList<Future<Long>>();
+			for (int index = 0; index < repositories; index++) {
+				results.add(executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						return load(latency, parse);
+					}
+				}));
+			}
+			// Repositories are consumed in location order
+			for (Future<Long> result : results) {
+				result.get();
+			}
+			concurrentTimes[run] = System.nanoTime() - start;
+			executor.shutdown();
+		}
+
+		System.out.println("serial: " + BenchUtils.format(serialTimes));
+		System.out.println("concurrent: " + BenchUtils.format(concurrentTimes));
+	}
+
+	/**
+	 * Simulates loading a repository.
+	 * 
+	 * @param latency Fetch latency in milliseconds
+	 * @param parse Parse iterations
+	 * @return Parse result
+	 * @throws InterruptedException if interrupted
+	 */
+	private static long load(int latency, int parse) throws InterruptedException {
+		Thread.sleep(latency);
+		long value = 0;
+		for (int index = 0; index < parse; index++) {
+			value += (index * 31) ^ (value >>> 3);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures resolving install description variables.  The resolution of
+ * InstallDescription is repeated here, before and after it was changed to a
+ * single pass, because InstallDescription can't be loaded without the Eclipse
+ * runtime:
+ * <ul>
+ * <li><code>before</code> - each value is rescanned after every substitution,
+ * and readProperty rebuilds and scans the legacy property names on every
+ * call.</li>
+ * <li><code>single-pass</code> - each value is built in one pass, each
+ * referenced property is resolved once, and the legacy names are looked up in
+ * a map.</li>
+ * </ul>
+ * The properties reference a chain of 50 shared base properties, an
+ * environment variable, legacy property names, OS-specific variants and the
+ * late binding mirror variable.  Both resolved maps are compared on every
+ * round.
+ * Usage: <code>ResolveVariablesBench [rounds] [properties...]</code>
+ */
+public class ResolveVariablesBench {
+	/** Late binding mirror property */
+	private static final String PROP_REPOS_MIRROR = "eclipse.p2.repos.mirror";
+	/** Number of legacy property names */
+	private static final int LEGACY_COUNT = 31;
+	/** Operating system */
+	private static final String OS = "linux";
+	/** Architecture */
+	private static final String ARCH = "x86_64";
+
+	/** Older property names for changed properties */
+	private static final Map<String, String> LEGACY_PROPERTIES = new HashMap<String, String>();
+	static {
+		for (int index = 0; index < LEGACY_COUNT; index++) {
+			LEGACY_PROPERTIES.put("new.p" + index, "old.p" + index);
+		}
+	}
+
+	/** Properties being resolved */
+	private Map<String, String> properties;
+
+	public static void main(String[] args) {
+		int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		int[] sizes = new int[] { 2000, 10000 };
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int index = 1; index < args.length; index++) {
+				sizes[index - 1] = Integer.parseInt(args[index]);
+			}
+		}
+
+		for (int size : sizes) {
+			long[] beforeTimes = new long[rounds];
+			long[] afterTimes = new long[rounds];
+			for (int round = 0; round < rounds; round++) {
+				ResolveVariablesBench before = new ResolveVariablesBench(generate(size));
+				long start = System.nanoTime();
+				before.resolveVariablesBefore();
+				beforeTimes[round] = System.nanoTime() - start;
+
+				ResolveVariablesBench after = new ResolveVariablesBench(generate(size));
+				start = System.nanoTime();
+				after.resolveVariables();
+				afterTimes[round] = System.nanoTime() - start;
+
+				if (!before.properties.equals(after.properties))
+					throw new IllegalStateException("Resolved properties differ");
+			}
+			System.out.println(size + " properties:");
+			System.out.println("  before: " + BenchUtils.format(beforeTimes));
+			System.out.println("  single-pass: " + BenchUtils.format(afterTimes));
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param properties Properties to resolve
+	 */
+	public ResolveVariablesBench(Map<String, String> properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Generates properties.
+	 * 
+	 * @param size Number of properties that reference the base properties
+	 * @return Properties
+	 */
+	private static Map<String, String> generate(int size) {
+		Random random = new Random(1);
+		HashMap<String, String> properties = new HashMap<String, String>();
+		for (int index = 0; index < 50; index++) {
+			properties.put("base" + index, "base value " + index +
+					((index > 0) ? " ${base" + (index - 1) + "}" : "") +
+					((index % 5 == 0) ? " ${new.p" + (index % LEGACY_COUNT) + "}" : ""));
+		}
+		for (int index = 0; index < size; index++) {
+			properties.put("key" + index, "value " + index + " ${base" + random.nextInt(50) + "} and ${base" +
+					random.nextInt(50) + "} in ${HOME}" +
+					((index % 10 == 0) ? " ${" + PROP_REPOS_MIRROR + "}" : ""));
+			if (index % 50 == 0) {
+				properties.put("key" + index + "." + OS, "linux " + index);
+			}
+		}
+		for (int index = 0; index < LEGACY_COUNT; index++) {
+			properties.put("old.p" + index, "legacy" + index);
+		}
+		return properties;
+	}
+
+	/**
+	 * InstallDescription.readProperty before the change: the legacy names are
+	 * rebuilt and scanned on every call.
+	 * 
+	 * @param name Property name
+	 * @return Property value or <code>null</code>
+	 */
+	private String readPropertyBefore(String name) {
+		String[] propsOld = new String[LEGACY_COUNT];
+		String[] propsNew = new String[LEGACY_COUNT];
+		for (int index = 0; index < LEGACY_COUNT; index++) {
+			propsOld[index] = "old.p" + index;
+			propsNew[index] = "new.p" + index;
+		}
+
+		String value = readVariant(name);
+		if (value == null) {
+			for (int index = 0; index < propsNew.length; index++) {
+				if (propsNew[index].equals(name)) {
+					value = properties.get(propsOld[index]);
+					break;
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * InstallDescription.readProperty after the change: the legacy names are
+	 * looked up in a map.
+	 * 
+	 * @param name Property name
+	 * @return Property value or <code>null</code>
+	 */
+	private String readProperty(String name) {
+		String value = readVariant(name);
+		if (value == null) {
+			String oldName = LEGACY_PROPERTIES.get(name);
+			if (oldName != null) {
+				value = properties.get(oldName);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the OS/arch, OS or default variant of a property.
+	 * 
+	 * @param name Property name
+	 * @return Property value or <code>null</code>
+	 */
+	private String readVariant(String name) {
+		String osName = name + "." + OS;
+		String value = properties.get(osName + "." + ARCH);
+		if (value == null) {
+			value = properties.get(osName);
+		}
+		if (value == null) {
+			value = properties.get(name);
+		}
+		return value;
+	}
+
+	/**
+	 * InstallDescription.resolveVariables before the change.
+	 */
+	private void resolveVariablesBefore() {
+		Iterator<Entry<String, String>> iter = properties.entrySet().iterator();
+		while (iter.hasNext()) {
+			Entry<String, String> entry = iter.next();
+			String value = entry.getValue();
+			int start = 0;
+			int index, index2;
+			// Start of variable
+			while ((index = value.indexOf('$', start)) != -1) {
+				if (index + 1 < value.length()) {
+					if (value.charAt(index + 1) == '{') {
+						index2 = value.indexOf('}', index);
+						if (index2 != -1) {
+							// Property to replace
+							String property = value.substring(index + 2, index2);
+
+							// Defer resolving late binding properties
+							if (property.equals(PROP_REPOS_MIRROR)) {
+								start ++;
+							}
+							// Resolve property references
+							else {
+								String sub = readPropertyBefore(property);
+								if (sub == null) {
+									sub = System.getenv(property);
+								}
+								// Replace variable
+								value = value.substring(0, index) +
+										(sub != null ? sub : "") +
+										value.substring(index2 + 1);
+								entry.setValue(value);
+							}
+						}
+						else {
+							break;
+						}
+					}
+					else if (index + 1 < value.length()){
+						start = index + 1;
+					}
+				}
+				else {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * InstallDescription.resolveVariables after the change.
+	 */
+	private void resolveVariables() {
+		HashMap<String, String> resolved = new HashMap<String, String>();
+		HashSet<String> resolving = new HashSet<String>();
+		for (Entry<String, String> entry : properties.entrySet()) {
+			entry.setValue(resolveValue(entry.getValue(), resolved, resolving));
+		}
+	}
+
+	/**
+	 * InstallDescription.resolveProperty
+	 * 
+	 * @param name Property name
+	 * @param resolved Resolved property values
+	 * @param resolving Properties being resolved
+	 * @return Property value or <code>null</code>
+	 */
+	private String resolveProperty(String name, Map<String, String> resolved, Set<String> resolving) {
+		if (resolved.containsKey(name))
+			return resolved.get(name);
+
+		// Property references itself
+		if (!resolving.add(name))
+			return null;
+
+		String value = readProperty(name);
+		if (value == null) {
+			value = System.getenv(name);
+		}
+		if (value != null) {
+			value = resolveValue(value, resolved, resolving);
+		}
+
+		resolving.remove(name);
+		resolved.put(name, value);
+
+		return value;
+	}
+
+	/**
+	 * InstallDescription.resolveValue
+	 * 
+	 * @param value Value
+	 * @param resolved Resolved property values
+	 * @param resolving Properties being resolved
+	 * @return Resolved value
+	 */
+	private String resolveValue(String value, Map<String, String> resolved, Set<String> resolving) {
+		int index = value.indexOf("${");
+		if (index == -1)
+			return value;
+
+		StringBuilder buffer = new StringBuilder(value.length());
+		int start = 0;
+		// Start of variable
+		while (index != -1) {
+			int end = value.indexOf('}', index);
+			if (end == -1)
+				break;
+			buffer.append(value, start, index);
+
+			// Property to replace
+			String property = value.substring(index + 2, end);
+			// Defer resolving late binding properties
+			if (property.equals(PROP_REPOS_MIRROR)) {
+				buffer.append(value, index, end + 1);
+			}
+			// Resolve property references
+			else {
+				String sub = resolveProperty(property, resolved, resolving);
+				if (sub != null) {
+					buffer.append(sub);
+				}
+			}
+
+			start = end + 1;
+			index = value.indexOf("${", start);
+		}
+		buffer.append(value, start, value.length());
+
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Measures how long artifacts are staged from the shared artifact store
+ * before provisioning.  The file operations of SharedArtifactStore.stage are
+ * repeated here because the staging repository can't be created without the
+ * p2 runtime:
+ * <ul>
+ * <li><code>all-temp</code> - as first implemented: every stored artifact of
+ * the install repositories is copied to a directory in the system temporary
+ * directory.</li>
+ * <li><code>plan-copy</code> - only the artifacts of the plan are copied to a
+ * directory in the store.  This is the fall-back if links are not
+ * supported.</li>
+ * <li><code>plan-link</code> - only the artifacts of the plan are linked in a
+ * directory in the store.</li>
+ * </ul>
+ * Usage: <code>StageArtifactsBench &lt;work directory&gt; [stored artifacts]
+ * [plan artifacts] [size in KB] [runs]</code>
+ */
+public class StageArtifactsBench {
+	/** Mode names */
+	private static final String[] MODES = new String[] { "all-temp", "plan-copy", "plan-link" };
+
+	public static void main(String[] args) throws Exception {
+		Path work = Paths.get(args[0]);
+		int stored = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		int planned = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+		int size = (args.length > 3) ? Integer.parseInt(args[3]) : 512;
+		int runs = (args.length > 4) ? Integer.parseInt(args[4]) : 3;
+
+		System.out.println(stored + " stored artifacts, " + planned + " in plan, " + size + " KB each");
+		BenchUtils.delete(work);
+		Path store = work.resolve("artifacts").resolve("sha-256");
+		Files.createDirectories(store);
+		byte[] contents = new byte[size * 1024];
+		for (int index = 0; index < stored; index++) {
+			contents[0] = (byte)index;
+			Files.write(store.resolve(String.format("%064x", index)), contents);
+		}
+
+		long[][] times = new long[MODES.length][runs];
+		for (int run = 0; run < runs; run++) {
+			for (int mode = 0; mode < MODES.length; mode++) {
+				long start = System.nanoTime();
+				Path staging;
+				if (mode == 0) {
+					staging = Files.createTempDirectory("artifacts");
+				}
+				else {
+					Path stagingDirectory = work.resolve("artifacts").resolve("staging");
+					Files.createDirectories(stagingDirectory);
+					staging = Files.createTempDirectory(stagingDirectory, "artifacts");
+				}
+				Path plugins = Files.createDirectories(staging.resolve("plugins"));
+				int count = (mode == 0) ? stored : planned;
+				for (int index = 0; index < count; index++) {
+					Path storedFile = store.resolve(String.format("%064x", index));
+					Path stagedFile = plugins.resolve("artifact" + index + "_1.0.0.jar");
+					if (mode == 2) {
+						Files.createLink(stagedFile, storedFile);
+					}
+					else {
+						Files.copy(storedFile, stagedFile, StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				times[mode][run] = System.nanoTime() - start;
+				BenchUtils.delete(staging);
+			}
+		}
+		BenchUtils.delete(work);
+
+		for (int mode = 0; mode < MODES.length; mode++) {
+			System.out.println(MODES[mode] + ": " + BenchUtils.format(times[mode]));
+		}
+	}
+}
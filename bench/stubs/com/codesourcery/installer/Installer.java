@@ -0,0 +1,35 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer;
+
+/**
+ * Stand-in for the installer plug-in class.  Log messages are written to
+ * standard error.
+ */
+public class Installer {
+	/**
+	 * Logs a message.
+	 * 
+	 * @param message Message
+	 */
+	public static void log(String message) {
+		System.err.println(message);
+	}
+
+	/**
+	 * Logs an exception.
+	 * 
+	 * @param e Exception
+	 */
+	public static void log(Throwable e) {
+		System.err.println(e);
+	}
+}
@@ -0,0 +1,20 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+/**
+ * Stand-in for the installer messages used by the plug-in sources compiled
+ * with the benchmarks.
+ */
+public class InstallMessages {
+	public static String Copying0 = "Copying {0}";
+	public static String Removing0 = "Removing {0}";
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime;
+
+import java.io.File;
+
+/**
+ * Stand-in for the Eclipse path interface.  Only the methods used by the
+ * plug-in sources compiled with the benchmarks are provided.
+ */
+public interface IPath {
+	public IPath append(String path);
+	public IPath removeFirstSegments(int count);
+	public IPath setDevice(String device);
+	public int segmentCount();
+	public File toFile();
+	public String toOSString();
+}
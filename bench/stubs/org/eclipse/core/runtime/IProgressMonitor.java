@@ -0,0 +1,27 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime;
+
+/**
+ * Stand-in for the Eclipse progress monitor interface.
+ */
+public interface IProgressMonitor {
+	public static final int UNKNOWN = -1;
+
+	public void beginTask(String name, int totalWork);
+	public void done();
+	public void internalWorked(double work);
+	public boolean isCanceled();
+	public void setCanceled(boolean value);
+	public void setTaskName(String name);
+	public void subTask(String name);
+	public void worked(int work);
+}
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime;
+
+/**
+ * Stand-in for the Eclipse exception thrown when an operation is canceled.
+ */
+@SuppressWarnings("serial")
+public class OperationCanceledException extends RuntimeException {
+	/**
+	 * Constructor
+	 */
+	public OperationCanceledException() {
+		super();
+	}
+}
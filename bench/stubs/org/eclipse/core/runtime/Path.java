@@ -0,0 +1,133 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for the Eclipse path implementation.
+ */
+public class Path implements IPath {
+	/** Device or <code>null</code> */
+	private String device;
+	/** <code>true</code> if the path is absolute */
+	private boolean absolute;
+	/** Segments */
+	private List<String> segments;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param path Path in operating system format
+	 */
+	public Path(String path) {
+		path = path.replace(File.separatorChar, '/');
+		int colon = path.indexOf(':');
+		if ((colon != -1) && (colon < path.indexOf('/'))) {
+			device = path.substring(0, colon + 1);
+			path = path.substring(colon + 1);
+		}
+		absolute = path.startsWith("/");
+		segments = new ArrayList<String>();
+		for (String segment : path.split("/")) {
+			if (!segment.isEmpty()) {
+				segments.add(segment);
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param device Device or <code>null</code>
+	 * @param absolute <code>true</code> if the path is absolute
+	 * @param segments Segments
+	 */
+	private Path(String device, boolean absolute, List<String> segments) {
+		this.device = device;
+		this.absolute = absolute;
+		this.segments = segments;
+	}
+
+	@Override
+	public IPath append(String path) {
+		ArrayList<String> appended = new ArrayList<String>(segments);
+		for (String segment : path.replace(File.separatorChar, '/').split("/")) {
+			if (!segment.isEmpty()) {
+				appended.add(segment);
+			}
+		}
+		return new Path(device, absolute, appended);
+	}
+
+	@Override
+	public IPath removeFirstSegments(int count) {
+		count = Math.min(count, segments.size());
+		return new Path(device, false, new ArrayList<String>(segments.subList(count, segments.size())));
+	}
+
+	@Override
+	public IPath setDevice(String device) {
+		return new Path(((device != null) && device.isEmpty()) ? null : device, absolute, segments);
+	}
+
+	@Override
+	public int segmentCount() {
+		return segments.size();
+	}
+
+	@Override
+	public File toFile() {
+		return new File(toOSString());
+	}
+
+	@Override
+	public String toOSString() {
+		StringBuilder path = new StringBuilder();
+		if (device != null) {
+			path.append(device);
+		}
+		if (absolute) {
+			path.append(File.separatorChar);
+		}
+		for (int index = 0; index < segments.size(); index++) {
+			if (index > 0) {
+				path.append(File.separatorChar);
+			}
+			path.append(segments.get(index));
+		}
+		return path.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toOSString().replace(File.separatorChar, '/');
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof Path) && toString().equals(other.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	/**
+	 * @return Path segments
+	 */
+	public String[] segments() {
+		return segments.toArray(new String[segments.size()]);
+	}
+}
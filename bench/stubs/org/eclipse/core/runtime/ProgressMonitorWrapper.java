@@ -0,0 +1,76 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime;
+
+/**
+ * Stand-in for the Eclipse progress monitor that delegates to another
+ * progress monitor.
+ */
+public abstract class ProgressMonitorWrapper implements IProgressMonitor {
+	/** Progress monitor for delegation */
+	private IProgressMonitor progressMonitor;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param monitor Progress monitor for delegation
+	 */
+	protected ProgressMonitorWrapper(IProgressMonitor monitor) {
+		progressMonitor = monitor;
+	}
+
+	@Override
+	public void beginTask(String name, int totalWork) {
+		progressMonitor.beginTask(name, totalWork);
+	}
+
+	@Override
+	public void done() {
+		progressMonitor.done();
+	}
+
+	@Override
+	public void internalWorked(double work) {
+		progressMonitor.internalWorked(work);
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return progressMonitor.isCanceled();
+	}
+
+	@Override
+	public void setCanceled(boolean value) {
+		progressMonitor.setCanceled(value);
+	}
+
+	@Override
+	public void setTaskName(String name) {
+		progressMonitor.setTaskName(name);
+	}
+
+	@Override
+	public void subTask(String name) {
+		progressMonitor.subTask(name);
+	}
+
+	@Override
+	public void worked(int work) {
+		progressMonitor.worked(work);
+	}
+
+	/**
+	 * @return The progress monitor for delegation
+	 */
+	public IProgressMonitor getWrappedProgressMonitor() {
+		return progressMonitor;
+	}
+}
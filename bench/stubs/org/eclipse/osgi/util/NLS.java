@@ -0,0 +1,27 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.util;
+
+/**
+ * Stand-in for the Eclipse message formatting class.
+ */
+public class NLS {
+	/**
+	 * Binds an argument to a message.
+	 * 
+	 * @param message Message with a <code>{0}</code> placeholder
+	 * @param binding Argument
+	 * @return Message
+	 */
+	public static String bind(String message, Object binding) {
+		return message.replace("{0}", String.valueOf(binding));
+	}
+}
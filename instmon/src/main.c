@@ -19,6 +19,7 @@
 #include <stdio.h>
 #include <stdlib.h>
 #include <stdarg.h>
+#include <setjmp.h>
 #include <sys/types.h>
 #include <signal.h>
 #include <dirent.h>
@@ -38,6 +39,10 @@
 
 /* Maximum size of a single command line option and argument */
 #define MAX_OPTION_SIZE 32768
+/* First line written in server mode, followed by the protocol version */
+#define SERVER_GREETING "INSTMON-SERVER"
+/* Version of the server request protocol */
+#define SERVER_PROTOCOL_VERSION 1
 /* Flag for accessing 64-bit registry node */
 #define KEY_WOW64_64KEY 0x0100
 
@@ -51,6 +56,10 @@ FILE *logFile = NULL;
 char ** fargv = NULL;
 /* Number of file command line options */
 int fargc;
+/* 1 if running as a server */
+int serverMode = 0;
+/* Environment to return to when a server request fails */
+jmp_buf requestEnv;
 
 /**
  * Prints help
@@ -122,6 +131,15 @@ usage (FILE *stream)
     "                               the specified file after reading.\n"
     "  -log <file>                  Output errors to a log file.\n"
     "  -deleteOnExit                Deletes the utility on exit.\n"
+    "  -server                      Reads requests from standard input until\n"
+    "                               it is closed.  Each request contains one\n"
+    "                               option and it's argument if required per\n"
+    "                               line and is terminated by an empty line.\n"
+    "                               The server first writes a line with\n"
+    "                               INSTMON-SERVER and its protocol version.\n"
+    "                               Each output line of the request is\n"
+    "                               written with a '+' prefix followed by a\n"
+    "                               line with OK or ERROR <message>.\n"
     "  -updateEnvironment <timeout> Updates system environment by sending system\n"
     "	                            environment change message.\n"
     "                               <timeout> is time-out in milliseconds.\n");
@@ -130,6 +148,8 @@ usage (FILE *stream)
 /**
  * Exits with an error message.  If logging is enabled,
  * the message will be printed to the log file.
+ * In server mode, the message is returned as the response to the current
+ * request and the server continues with the next request.
  *
  * @param format Message format
  * @param ... Variable arguments
@@ -141,6 +161,27 @@ fail (const char *format, ...)
   FILE *stream = logFile;
   va_list ap;
 
+  if (serverMode)
+    {
+      if (logFile != NULL)
+        {
+          fprintf (logFile, "ERROR: ");
+          va_start (ap, format);
+          vfprintf (logFile, format, ap);
+          va_end (ap);
+          fprintf (logFile, "\n");
+        }
+
+      fprintf (stdout, "ERROR ");
+      va_start (ap, format);
+      vfprintf (stdout, format, ap);
+      va_end (ap);
+      fprintf (stdout, "\n");
+      fflush (stdout);
+
+      longjmp (requestEnv, 1);
+    }
+
   /* If no log file, use standard error */
   if (stream == NULL)
     stream = stderr;
@@ -178,6 +219,27 @@ log_message (const char *format, ...)
       }
 }
 
+/**
+ * Writes a line of command output.  In server mode, the line is prefixed so
+ * that it can be distinguished from the end of the response.
+ *
+ * @param format Output format
+ * @param ... Variable arguments
+ * @return None
+ */
+static void
+print_output (const char *format, ...)
+{
+  va_list ap;
+
+  if (serverMode)
+    fputc ('+', stdout);
+  va_start (ap, format);
+  vfprintf (stdout, format, ap);
+  va_end (ap);
+  fputc ('\n', stdout);
+}
+
 /**
  * Strips quotes from a string.
  *
@@ -437,6 +499,9 @@ delete_directory (const char *directory, int emptyOnly)
       /* Directory */
       if (S_ISDIR (s.st_mode))
         {
+          /* Make read-only directory writable so its entries can be deleted */
+          if (!emptyOnly && !(s.st_mode & S_IWUSR))
+            chmod (child, s.st_mode | S_IWUSR);
           if (delete_directory (child, emptyOnly) != 0)
             {
               result = -1;
@@ -452,7 +517,10 @@ delete_directory (const char *directory, int emptyOnly)
               result = -1;
               break;
             }
-          if (unlink (child) != 0)
+          /* Read-only files can't be deleted on Windows, so make the file
+             writable and try again */
+          if ((unlink (child) != 0) &&
+              ((chmod (child, s.st_mode | S_IWUSR) != 0) || (unlink (child) != 0)))
             {
               log_message ("[delete_directory] Failed to delete file: %s", child);
               result = -1;
@@ -580,14 +648,14 @@ print_os_property(char *name)
     {
       result = GetVersionEx ((OSVERSIONINFO*) &osvi);
       if (result != 0)
-        printf("%lu\n", osvi.dwMajorVersion);
+        print_output ("%lu", osvi.dwMajorVersion);
     }
   /* Windows minor version */
   else if (strcmp (name, "WIN_MINOR_VERSION") == 0)
     {
       result = GetVersionEx ((OSVERSIONINFO*) &osvi);
       if (result != 0)
-        printf("%lu\n", osvi.dwMinorVersion);
+        print_output ("%lu", osvi.dwMinorVersion);
     }
 #endif
 }
@@ -1257,6 +1325,44 @@ get_option (char* argv[], int argc, const char *name, char** argument)
   return 0;
 }
 
+/**
+ * Splits an option line into the option and its argument (if present) and
+ * adds them to the file options.
+ *
+ * @param buffer Option line.  The line is modified.
+ * @param index Index for the next file option
+ * @return Index for the next file option after the line
+ */
+static int
+add_option_line (char *buffer, int index)
+{
+  int length;
+  char *sp;
+
+  length = strlen (buffer);
+  if ((length > 0) && (buffer[length - 1] == '\n'))
+    buffer[length - 1] = '\0';
+
+  sp = strpbrk (buffer, " \t");
+  if (sp != NULL)
+    {
+      while ((*sp == ' ') || (*sp == '\t'))
+        *sp++ = '\0';
+    }
+
+  fargv[index] = malloc (strlen (buffer) + 1);
+  strcpy (fargv[index], buffer);
+  index ++;
+  if (sp != NULL)
+    {
+      fargv[index] = malloc (strlen (sp) + 1);
+      strcpy (fargv[index], sp);
+      index ++;
+    }
+
+  return index;
+}
+
 /**
  * Reads command line options from a file.
  *
@@ -1268,9 +1374,7 @@ int
 read_file_options (int delete, const char *path)
 {
   FILE *fp;
-  int length;
   char buffer[MAX_OPTION_SIZE];
-  char *sp;
   int index = 0;
 
   if (path == NULL)
@@ -1301,28 +1405,7 @@ read_file_options (int delete, const char *path)
   if (fp)
     {
       while (fgets (buffer, MAX_OPTION_SIZE, fp) != NULL)
-        {
-          length = strlen (buffer);
-          if (buffer[length - 1] == '\n')
-            buffer[length - 1] = '\0';
-
-          sp = strpbrk (buffer, " \t");
-          if (sp != NULL)
-            {
-              while ((*sp == ' ') || (*sp == '\t'))
-                *sp++ = '\0';
-            }
-
-          fargv[index] = malloc (strlen (buffer) + 1);
-          strcpy (fargv[index], buffer);
-          index ++;
-          if (sp != NULL)
-            {
-              fargv[index] = malloc (strlen (sp) + 1);
-              strcpy (fargv[index], sp);
-              index ++;
-            }
-        }
+        index = add_option_line (buffer, index);
       fclose (fp);
       // Remove response file
       if (delete)
@@ -1333,15 +1416,66 @@ read_file_options (int delete, const char *path)
     return -1;
   }
 
-  for (index = 0; index < fargc; index++)
-  {
-	  sp = fargv[index];
-	  length = 0;
-  }
-
   return 0;
 }
 
+/**
+ * Frees the file options.
+ */
+static void
+free_file_options (void)
+{
+  int index;
+
+  if (fargv != NULL)
+    {
+      for (index = 0; index < fargc; index++)
+        free (fargv[index]);
+      free (fargv);
+    }
+  fargv = NULL;
+  fargc = 0;
+}
+
+/**
+ * Reads the options for a server request from standard input.  The options
+ * replace any file options.
+ *
+ * @return 0 on success, -1 if standard input has been closed
+ */
+static int
+read_request_options (void)
+{
+  char buffer[MAX_OPTION_SIZE];
+  int length;
+  int capacity = 0;
+
+  free_file_options ();
+  while (fgets (buffer, MAX_OPTION_SIZE, stdin) != NULL)
+    {
+      length = strlen (buffer);
+      while ((length > 0) &&
+        ((buffer[length - 1] == '\n') || (buffer[length - 1] == '\r')))
+        buffer[--length] = '\0';
+
+      /* Empty line terminates the request */
+      if (length == 0)
+        return 0;
+
+      /* Each line adds an option and possibly an argument */
+      if (fargc + 2 > capacity)
+        {
+          capacity = (capacity == 0) ? 16 : capacity * 2;
+          fargv = (char**) realloc (fargv, capacity * sizeof (char*));
+          if (!fargv)
+            fail ("read_request_options: Out of memory");
+        }
+      fargc = add_option_line (buffer, fargc);
+    }
+
+  return -1;
+}
+
 /**
  * Deletes this executable binary file.
  */
@@ -1390,14 +1524,14 @@ delete_this()
 }
 
 /**
- * Main entry for program.
+ * Runs the commands for a set of options.
  *
  * @param argc Number of command line arguments
  * @param argv Command line arguments
- * @return 0 on success
+ * @return None
  */
-int
-main (int argc, char* argv[])
+static void
+run_commands (int argc, char* argv[])
 {
   char *option;
   int result;
@@ -1409,44 +1543,6 @@ main (int argc, char* argv[])
   int iparam1, iparam2;
   long lparam1;
 
-  /****************************************************************************
-   * Show program help
-  ****************************************************************************/
-  if (get_option (argv, argc, "--help", NULL) == 0)
-    {
-      usage (stdout);
-      exit (0);
-    }
-  /****************************************************************************
-   * Read command line options from file
-  ****************************************************************************/
-  if (get_option (argv, argc, "-file", &option) == 0)
-    {
-      result = read_file_options (0, option);
-      if (result == -1)
-        fail ("Failed to read options file: %s.", option);
-      free (option);
-    }
-  /****************************************************************************
-   * Read command line options from temporary file
-  ****************************************************************************/
-  if (get_option (argv, argc, "-tempfile", &option) == 0)
-    {
-      result = read_file_options (1, option);
-      if (result == -1)
-        fail ("Failed to read options file: %s.", option);
-      free (option);
-    }
-  /****************************************************************************
-   * Enable logging
-  ****************************************************************************/
-  if (get_option (argv, argc, "-log", &option) == 0)
-    {
-      logFile = fopen (option, "a");
-      if (logFile == NULL)
-        fail ("Failed to write log file: %s", option);
-      free (option);
-    }
   /****************************************************************************
    * Wait for process to terminate
   ****************************************************************************/
@@ -1518,7 +1614,7 @@ main (int argc, char* argv[])
       sparam2 = get_argument (NULL);
       sparam3 = get_registry_value (sparam1, sparam2);
       if (sparam3)
-        puts (sparam3);
+        print_output ("%s", sparam3);
       else
         log_message ("Failed to get registry value %s, %s.", sparam1, sparam2);
       free (option);
@@ -1539,7 +1635,7 @@ main (int argc, char* argv[])
       sparam1 = update_system_environment (iparam1);
 
    	  // Return error string
-   	  puts(sparam1);
+   	  print_output ("%s", sparam1);
 
    	  free (option);
    	  free (sparam1);
@@ -1651,7 +1747,7 @@ main (int argc, char* argv[])
       if (result != 0)
         log_message ("Failed to get special folder: %s", sparam1);
       else
-        puts(path);
+        print_output ("%s", path);
 #else
       log_message ("-getSpecialFolder is only supported on Windows.");
 #endif
@@ -1665,6 +1761,104 @@ main (int argc, char* argv[])
       print_os_property (sparam1);
       free (option);
     }
+}
+
+/**
+ * Runs commands for requests read from standard input until it is closed.
+ * A response is written to standard output for each request.
+ *
+ * @param argv Command line arguments
+ * @return None
+ */
+static void
+run_server (char* argv[])
+{
+  serverMode = 1;
+  log_message ("-server");
+
+  /* Identify the server so that clients can detect older versions */
+  fprintf (stdout, "%s %d\n", SERVER_GREETING, SERVER_PROTOCOL_VERSION);
+  fflush (stdout);
+
+  while (1)
+    {
+      if (setjmp (requestEnv) == 0)
+        {
+          if (read_request_options () != 0)
+            break;
+
+          /* Only use the options from the request */
+          run_commands (1, argv);
+          fprintf (stdout, "OK\n");
+          fflush (stdout);
+        }
+
+      if (logFile != NULL)
+        fflush (logFile);
+    }
+
+  free_file_options ();
+  serverMode = 0;
+}
+
+/**
+ * Main entry for program.
+ *
+ * @param argc Number of command line arguments
+ * @param argv Command line arguments
+ * @return 0 on success
+ */
+int
+main (int argc, char* argv[])
+{
+  char *option;
+  int result;
+
+  /****************************************************************************
+   * Show program help
+  ****************************************************************************/
+  if (get_option (argv, argc, "--help", NULL) == 0)
+    {
+      usage (stdout);
+      exit (0);
+    }
+  /****************************************************************************
+   * Read command line options from file
+  ****************************************************************************/
+  if (get_option (argv, argc, "-file", &option) == 0)
+    {
+      result = read_file_options (0, option);
+      if (result == -1)
+        fail ("Failed to read options file: %s.", option);
+      free (option);
+    }
+  /****************************************************************************
+   * Read command line options from temporary file
+  ****************************************************************************/
+  if (get_option (argv, argc, "-tempfile", &option) == 0)
+    {
+      result = read_file_options (1, option);
+      if (result == -1)
+        fail ("Failed to read options file: %s.", option);
+      free (option);
+    }
+  /****************************************************************************
+   * Enable logging
+  ****************************************************************************/
+  if (get_option (argv, argc, "-log", &option) == 0)
+    {
+      logFile = fopen (option, "a");
+      if (logFile == NULL)
+        fail ("Failed to write log file: %s", option);
+      free (option);
+    }
+  /****************************************************************************
+   * Run commands
+  ****************************************************************************/
+  if (get_option (argv, argc, "-server", NULL) == 0)
+    run_server (argv);
+  else
+    run_commands (argc, argv);
 
   // Delete executable on exit
   if (get_option (argv, argc, "-deleteOnExit", NULL) == 0)
@@ -1674,8 +1868,7 @@ main (int argc, char* argv[])
 
   if (logFile != NULL)
     fclose (logFile);
-  if (fargv != NULL)
-    free (fargv);
+  free_file_options ();
 
   return EXIT_SUCCESS;
 }
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.installer;
+
+/**
+ * Optional interface for an {@link IInstallAction} that can be run
+ * concurrently with other actions.  Actions that do not implement this
+ * interface are run alone, in order.
+ */
+public interface IInstallActionScheduling {
+	/**
+	 * Returns the identifiers of actions that must be completed before this
+	 * action is run.  Actions in an earlier install phase are always
+	 * completed first.
+	 * 
+	 * @return Action identifiers or <code>null</code>
+	 */
+	public String[] getDependencies();
+	
+	/**
+	 * Returns the names of resources that the action modifies.  Actions in
+	 * the same install phase that do not depend on each other and do not
+	 * modify the same resource can be run concurrently.  Actions that modify
+	 * the same resource are run in order.
+	 * 
+	 * @return Resource names or <code>null</code> if the action must not be
+	 * run concurrently with any other action
+	 */
+	public String[] getConflicts();
+}
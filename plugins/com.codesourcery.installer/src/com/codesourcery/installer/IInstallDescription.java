@@ -1025,4 +1025,109 @@ public interface IInstallDescription {
 	 * @return The number of tiems to retry network or <code>-1</code>.
 	 */
 	public int getNetworkRetry();
+
+	/**
+	 * Sets the maximum number of meta-data repositories that will be loaded
+	 * concurrently.
+	 * 
+	 * @param threads Number of concurrent loads or <code>1</code> to load
+	 * repositories one at a time.
+	 */
+	public void setRepositoryLoadThreads(int threads);
+
+	/**
+	 * @return The maximum number of meta-data repositories loaded concurrently.
+	 */
+	public int getRepositoryLoadThreads();
+
+	/**
+	 * Sets the maximum number of computed install plans to cache.
+	 * 
+	 * @param size Maximum number of plans
+	 */
+	public void setInstallPlanCacheSize(int size);
+
+	/**
+	 * @return The maximum number of computed install plans to cache.
+	 */
+	public int getInstallPlanCacheSize();
+
+	/**
+	 * Sets the maximum number of install plans to compute in the background for selections that are likely to be 
+	 * made next.
+	 * 
+	 * @param plans Maximum number of plans or <code>0</code> to not compute speculative plans
+	 */
+	public void setSpeculativePlans(int plans);
+
+	/**
+	 * @return The maximum number of speculative install plans to compute.
+	 */
+	public int getSpeculativePlans();
+
+	/**
+	 * Sets whether install sizes are estimated incrementally for component selections.  If enabled, the size of a 
+	 * selection is computed from the sizes of the components in it and the full install plan is only computed before 
+	 * installation.
+	 * 
+	 * @param incrementalSize <code>true</code> to estimate install sizes incrementally
+	 */
+	public void setIncrementalSize(boolean incrementalSize);
+
+	/**
+	 * @return <code>true</code> if install sizes are estimated incrementally.
+	 */
+	public boolean getIncrementalSize();
+
+	/**
+	 * Sets the number of artifacts to transfer concurrently when mirroring to the install cache or saving an 
+	 * installation.
+	 * 
+	 * @param threads Number of concurrent transfers
+	 */
+	public void setMirrorThreads(int threads);
+
+	/**
+	 * @return The number of artifacts to transfer concurrently when mirroring.
+	 */
+	public int getMirrorThreads();
+
+	/**
+	 * Sets whether an interrupted mirror to the install cache is resumed.  If enabled, artifacts already in the cache 
+	 * are kept and verified instead of re-creating the cache, and only missing or corrupt artifacts are transferred.
+	 * 
+	 * @param resumeMirror <code>true</code> to resume mirror operations
+	 */
+	public void setResumeMirror(boolean resumeMirror);
+
+	/**
+	 * @return <code>true</code> if interrupted mirror operations are resumed.
+	 */
+	public boolean getResumeMirror();
+
+	/**
+	 * Sets whether artifacts are kept in a store in the installer data folder that is shared by all products and 
+	 * install locations.  Artifacts in the store are used instead of downloading them again.
+	 * 
+	 * @param sharedArtifacts <code>true</code> to use the shared artifact store
+	 */
+	public void setSharedArtifacts(boolean sharedArtifacts);
+
+	/**
+	 * @return <code>true</code> if the shared artifact store is used.
+	 */
+	public boolean getSharedArtifacts();
+
+	/**
+	 * Sets the maximum number of progress updates per second sent to the user interface during provisioning.  
+	 * Progress is combined between updates.
+	 * 
+	 * @param rate Updates per second or <code>0</code> to send every update
+	 */
+	public void setProgressRate(int rate);
+
+	/**
+	 * @return The maximum number of progress updates per second or <code>0</code> for no limit.
+	 */
+	public int getProgressRate();
 }
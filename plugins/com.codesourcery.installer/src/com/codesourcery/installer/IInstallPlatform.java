@@ -12,6 +12,7 @@ package com.codesourcery.installer;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.widgets.Shell;
 
 /**
@@ -155,6 +156,57 @@ public interface IInstallPlatform {
 	public void deleteDirectory(String path, boolean onlyIfEmpty) 
 		throws CoreException;
 	
+	/**
+	 * Begins a batch of operations for the calling thread.  Until
+	 * {@link #endBatch()} is called on the same thread, the operations that
+	 * do not return a result are queued instead of being run immediately.
+	 * These are {@link #setWindowsRegistryValue},
+	 * {@link #deleteWindowsRegistryKey}, {@link #deleteWindowsRegistryValue},
+	 * {@link #createShortcut} and {@link #deleteDirectory}.  Queued operations
+	 * are run in order and before any operation that returns a result on the
+	 * same thread.
+	 * Failures of queued operations are not reported by the operation methods,
+	 * they are returned by {@link #endBatch()}.  A caller can't tolerate the
+	 * failure of a queued operation by catching the exception of the operation
+	 * method.  When an install action is run, its operations are queued in a
+	 * batch and any queued operation that failed fails the action after it
+	 * has run.  Operations whose failure should be ignored must be queued as
+	 * optional operations using {@link #setOptionalOperations(boolean)}.
+	 * Supported on all platforms.
+	 * 
+	 * @see #endBatch()
+	 * @see #setOptionalOperations(boolean)
+	 */
+	public void beginBatch();
+	
+	/**
+	 * Ends the batch of operations for the calling thread and waits for all
+	 * of its queued operations to complete.
+	 * Supported on all platforms.
+	 * 
+	 * @return Status for each queued operation in the order the operations
+	 * were queued
+	 * @throws CoreException on failure
+	 * @see #beginBatch()
+	 */
+	public IStatus[] endBatch() throws CoreException;
+	
+	/**
+	 * Sets if the operations queued by the calling thread are optional.  A
+	 * failure of an optional operation is returned by {@link #endBatch()}
+	 * with <code>IStatus.WARNING</code> severity and does not fail the install
+	 * action that queued it.  Operations are not optional after the batch
+	 * ends.
+	 * If no batch is active, operations are run immediately and failures are
+	 * reported by the operation methods.
+	 * Supported on all platforms.
+	 * 
+	 * @param optional <code>true</code> if the following operations are
+	 * optional, <code>false</code> if they are required
+	 * @see #beginBatch()
+	 */
+	public void setOptionalOperations(boolean optional);
+	
 	/**
 	 * Returns the path to a short-cut folder.
 	 * 
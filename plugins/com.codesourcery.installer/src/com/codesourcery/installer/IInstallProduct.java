@@ -22,6 +22,8 @@ import org.eclipse.equinox.p2.metadata.Version;
 public interface IInstallProduct {
 	/** Property indicating product install directories will be removed on uninstall */
 	public final static String PROPERTY_REMOVE_DIRS = "removeDirectories";
+	/** Property indicating product files will be moved to trash and removed in the background on uninstall */
+	public final static String PROPERTY_FAST_REMOVE_DIRS = "fastRemoveDirectories";
 	/** 
 	 * Property indicating whether this product will be shown in the uninstaller.
 	 */
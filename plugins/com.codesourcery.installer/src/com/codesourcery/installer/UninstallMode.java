@@ -20,6 +20,8 @@ public class UninstallMode {
 	private boolean createAddRemove;
 	/** <code>true</code> to remove created directories on uninstall */
 	private boolean removeDirectories;
+	/** <code>true</code> to remove directories by moving them to trash */
+	private boolean fastRemoveDirectories;
 	
 	/**
 	 * Constructor
@@ -32,9 +34,27 @@ public class UninstallMode {
 	 */
 	public UninstallMode(boolean showUninstall, boolean createAddRemove, 
 			boolean removeDirectories) {
+		this(showUninstall, createAddRemove, removeDirectories, false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param showUninstall <code>true</code> to show product in uninstaller
+	 * @param createAddRemove <code>true</code> to create add/remove entry on
+	 * windows platforms.
+	 * @param removeDirectories <code>true</code> to remove directories created
+	 * during installation.
+	 * @param fastRemoveDirectories <code>true</code> to move the product 
+	 * files to a trash directory that is removed in the background instead of
+	 * waiting for them to be removed.
+	 */
+	public UninstallMode(boolean showUninstall, boolean createAddRemove, 
+			boolean removeDirectories, boolean fastRemoveDirectories) {
 		this.showUninstall = showUninstall;
 		this.createAddRemove = createAddRemove;
 		this.removeDirectories = removeDirectories;
+		this.fastRemoveDirectories = fastRemoveDirectories;
 	}
 
 	/**
@@ -64,4 +84,14 @@ public class UninstallMode {
 	public boolean getRemoveDirectories() {
 		return removeDirectories;
 	}
+	
+	/**
+	 * Returns if product files should be moved to a trash directory that is
+	 * removed in the background during uninstallation.
+	 * 
+	 * @return <code>true</code> to move files to trash
+	 */
+	public boolean getFastRemoveDirectories() {
+		return fastRemoveDirectories;
+	}
 }
@@ -34,6 +34,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.codesourcery.installer.IInstallActionScheduling;
 import com.codesourcery.installer.IInstallMode;
 import com.codesourcery.installer.IInstallProduct;
 import com.codesourcery.installer.Installer;
@@ -45,7 +46,7 @@ import com.codesourcery.internal.installer.InstallUtils;
  * An action that can be used to replace, prepend, or append values to system
  * environment variables.
  */
-public class EnvironmentAction extends AbstractInstallAction {
+public class EnvironmentAction extends AbstractInstallAction implements IInstallActionScheduling {
 	/** Enivornment variable operations */
 	public enum EnvironmentOperation {
 		REPLACE,	// Replace environment variable
@@ -594,6 +595,18 @@ public class EnvironmentAction extends AbstractInstallAction {
 	public boolean needsRestartOrRelogin() {
 		return this.requiresResetOrRelogin;
 	}
+	
+	@Override
+	public String[] getDependencies() {
+		// Does not depend on other actions
+		return null;
+	}
+	
+	@Override
+	public String[] getConflicts() {
+		// Environment and path actions modify the same environment
+		return new String[] { ID };
+	}
 
 	/**
 	 * Environment variable
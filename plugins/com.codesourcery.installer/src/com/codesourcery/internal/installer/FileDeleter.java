@@ -0,0 +1,428 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+
+import com.codesourcery.installer.Installer;
+
+/**
+ * Deletes the contents of a directory using multiple threads.
+ * Each sub-directory is handled by a separate fork-join task, so directories are listed and files are deleted in
+ * parallel.  A directory is deleted after all of its contents have been deleted.
+ * Progress is counted by the worker threads and reported to the progress monitor only from the thread that called
+ * {@link #delete(IProgressMonitor)}.
+ * Alternatively, a recorded list of files and directories can be deleted with
+ * {@link #delete(List, List, IProgressMonitor)} without listing the directory.
+ */
+public class FileDeleter {
+	/** Interval in milliseconds to report progress */
+	private static final long PROGRESS_INTERVAL = 100;
+	/** Maximum number of listed files deleted by one task */
+	private static final int LIST_TASK_SIZE = 64;
+
+	/** Directory to delete */
+	private Path directory;
+	/** Paths excluded from deletion */
+	private Set<Path> excludedPaths = new HashSet<Path>();
+	/** Number of threads */
+	private int threads;
+	/** Number of files visited */
+	private AtomicInteger filesVisited = new AtomicInteger(0);
+	/** Last directory being deleted */
+	private AtomicReference<Path> currentDirectory = new AtomicReference<Path>();
+	/** Files that could not be deleted */
+	private ConcurrentLinkedQueue<File> filesNotRemoved = new ConcurrentLinkedQueue<File>();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param directory Directory to delete
+	 * @param excludedPaths Paths (files or directories) to exclude from deletion or <code>null</code>
+	 */
+	public FileDeleter(Path directory, Path[] excludedPaths) {
+		this.directory = directory;
+		if (excludedPaths != null) {
+			this.excludedPaths.addAll(Arrays.asList(excludedPaths));
+		}
+		// Deleting files mostly waits on the file system, so use more threads than processors
+		threads = Runtime.getRuntime().availableProcessors() * 2;
+	}
+
+	/**
+	 * Deletes the files in the directory.  The directory itself is not deleted.
+	 * 
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Files that could not be deleted
+	 */
+	public File[] delete(IProgressMonitor monitor) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			// Count files to be removed
+			int fileCount = waitFor(pool.submit(new CountTask(directory)), null);
+			if (monitor != null) {
+				monitor.beginTask(NLS.bind(InstallMessages.Removing0, ""), fileCount);
+			}
+
+			// Delete files and sub-directories
+			waitFor(pool.submit(new DeleteTask(directory)), monitor);
+		}
+		catch (Exception e) {
+			Installer.log(e);
+		}
+		finally {
+			pool.shutdown();
+			if (monitor != null) {
+				monitor.done();
+			}
+		}
+
+		return filesNotRemoved.toArray(new File[filesNotRemoved.size()]);
+	}
+
+	/**
+	 * Deletes a list of files and directories in the directory.  The files are deleted in parallel.  Files that do not
+	 * exist are skipped.  The directories are deleted after the files, starting with the deepest directories.
+	 * Directories that are not empty (i.e. contain files that are not in the list) are not deleted.
+	 * 
+	 * @param files Files to delete
+	 * @param directories Directories to delete
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Files that could not be deleted
+	 */
+	public File[] delete(List<Path> files, List<Path> directories, IProgressMonitor monitor) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			if (monitor != null) {
+				monitor.beginTask(NLS.bind(InstallMessages.Removing0, ""), files.size() + directories.size());
+			}
+
+			// Delete files
+			waitFor(pool.submit(new ListDeleteTask(files, 0, files.size())), monitor);
+
+			// Delete directories, deepest first
+			ArrayList<Path> sortedDirectories = new ArrayList<Path>(directories);
+			Collections.sort(sortedDirectories, new Comparator<Path>() {
+				@Override
+				public int compare(Path path1, Path path2) {
+					return path2.getNameCount() - path1.getNameCount();
+				}
+			});
+			for (Path dir : sortedDirectories) {
+				if ((monitor != null) && !isExcluded(dir)) {
+					monitor.setTaskName(NLS.bind(InstallMessages.Removing0, directory.relativize(dir).toString()));
+				}
+				if (!isExcluded(dir)) {
+					try {
+						Files.deleteIfExists(dir);
+					}
+					catch (Exception e) {
+						// Ignore
+					}
+				}
+				if (monitor != null) {
+					monitor.worked(1);
+				}
+			}
+		}
+		catch (Exception e) {
+			Installer.log(e);
+		}
+		finally {
+			pool.shutdown();
+			if (monitor != null) {
+				monitor.done();
+			}
+		}
+
+		return filesNotRemoved.toArray(new File[filesNotRemoved.size()]);
+	}
+
+	/**
+	 * Waits for a task to complete and reports progress.
+	 * 
+	 * @param task Task
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Task result
+	 * @throws InterruptedException if interrupted
+	 * @throws ExecutionException if the task failed
+	 */
+	private <T> T waitFor(ForkJoinTask<T> task, IProgressMonitor monitor) throws InterruptedException, ExecutionException {
+		IPath directoryPath = new org.eclipse.core.runtime.Path(directory.toFile().getAbsolutePath());
+		int reported = 0;
+		Path reportedDirectory = null;
+		while (true) {
+			T result = null;
+			boolean done = false;
+			try {
+				result = task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+				done = true;
+			}
+			catch (TimeoutException e) {
+				// Report progress
+			}
+
+			if (monitor != null) {
+				Path current = currentDirectory.get();
+				if ((current != null) && !current.equals(reportedDirectory)) {
+					IPath filePath = new org.eclipse.core.runtime.Path(current.toFile().getAbsolutePath()).removeFirstSegments(directoryPath.segmentCount()).setDevice("");
+					monitor.setTaskName(NLS.bind(InstallMessages.Removing0, filePath.toOSString()));
+					reportedDirectory = current;
+				}
+				int visited = filesVisited.get();
+				if (visited > reported) {
+					monitor.worked(visited - reported);
+					reported = visited;
+				}
+			}
+
+			if (done)
+				return result;
+		}
+	}
+
+	/**
+	 * Returns if a path is excluded.
+	 * 
+	 * @param path Path
+	 * @return <code>true</code> if path is excluded
+	 */
+	private boolean isExcluded(Path path) {
+		return excludedPaths.contains(path);
+	}
+
+	/**
+	 * Deletes a file.  If the file is read-only, it is made writable first.
+	 * 
+	 * @param path File
+	 */
+	private void deleteFile(Path path) {
+		try {
+			File file = path.toFile();
+			if (!Files.isSymbolicLink(path) && !file.canWrite()) {
+				if (!file.setWritable(true)) {
+					throw new IOException("Failed to set file writeable: " + file.getAbsolutePath());
+				}
+			}
+			Files.delete(path);
+		}
+		catch (Exception e) {
+			filesNotRemoved.add(path.toFile());
+			Installer.log(e);
+		}
+	}
+
+	/**
+	 * Lists the entries of a directory.
+	 * 
+	 * @param dir Directory
+	 * @param directories Filled with sub-directories
+	 * @param files Filled with files and links
+	 * @throws IOException on failure to read the directory
+	 */
+	private static void list(Path dir, Collection<Path> directories, Collection<Path> files) throws IOException {
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+			for (Path entry : entries) {
+				// Links are deleted and not followed
+				if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+					directories.add(entry);
+				}
+				else {
+					files.add(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Task to count the files in a directory.
+	 */
+	@SuppressWarnings("serial")
+	private class CountTask extends RecursiveTask<Integer> {
+		/** Directory */
+		private Path dir;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param dir Directory
+		 */
+		public CountTask(Path dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		protected Integer compute() {
+			ArrayList<Path> directories = new ArrayList<Path>();
+			ArrayList<Path> files = new ArrayList<Path>();
+			try {
+				list(dir, directories, files);
+			}
+			catch (IOException e) {
+				// Reported when the directory is deleted
+				return 0;
+			}
+
+			List<CountTask> tasks = new ArrayList<CountTask>();
+			for (Path subdirectory : directories) {
+				tasks.add(new CountTask(subdirectory));
+			}
+			invokeAll(tasks);
+
+			int count = files.size();
+			for (CountTask task : tasks) {
+				count += task.join();
+			}
+
+			return count;
+		}
+	}
+
+	/**
+	 * Task to delete the contents of a directory and then the directory.
+	 */
+	@SuppressWarnings("serial")
+	private class DeleteTask extends RecursiveAction {
+		/** Directory */
+		private Path dir;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param dir Directory
+		 */
+		public DeleteTask(Path dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		protected void compute() {
+			// Is directory excluded
+			if (isExcluded(dir))
+				return;
+
+			ArrayList<Path> directories = new ArrayList<Path>();
+			ArrayList<Path> files = new ArrayList<Path>();
+			try {
+				list(dir, directories, files);
+			}
+			catch (IOException e) {
+				filesNotRemoved.add(dir.toFile());
+				Installer.log(e);
+				return;
+			}
+
+			// Delete sub-directories in parallel
+			List<DeleteTask> tasks = new ArrayList<DeleteTask>();
+			for (Path subdirectory : directories) {
+				tasks.add(new DeleteTask(subdirectory));
+			}
+			for (DeleteTask task : tasks) {
+				task.fork();
+			}
+
+			// Delete files
+			for (Path path : files) {
+				if (!isExcluded(path)) {
+					deleteFile(path);
+				}
+				filesVisited.incrementAndGet();
+			}
+
+			for (DeleteTask task : tasks) {
+				task.join();
+			}
+
+			// Delete directory after its contents
+			if (!dir.equals(directory)) {
+				currentDirectory.set(dir);
+				try {
+					Files.delete(dir);
+				}
+				catch (Exception e) {
+					// Ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Task to delete a range of listed files.  Large ranges are split into tasks that run in parallel.
+	 */
+	@SuppressWarnings("serial")
+	private class ListDeleteTask extends RecursiveAction {
+		/** Files */
+		private List<Path> files;
+		/** Start index */
+		private int start;
+		/** End index (exclusive) */
+		private int end;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param files Files
+		 * @param start Start index
+		 * @param end End index (exclusive)
+		 */
+		public ListDeleteTask(List<Path> files, int start, int end) {
+			this.files = files;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > LIST_TASK_SIZE) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ListDeleteTask(files, start, middle), new ListDeleteTask(files, middle, end));
+				return;
+			}
+
+			for (int index = start; index < end; index++) {
+				Path path = files.get(index);
+				// Files might have been removed since installation
+				if (!isExcluded(path) && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+					currentDirectory.set(path.getParent());
+					deleteFile(path);
+				}
+				filesVisited.incrementAndGet();
+			}
+		}
+	}
+}
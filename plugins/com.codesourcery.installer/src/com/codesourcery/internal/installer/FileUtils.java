@@ -13,24 +13,23 @@ package com.codesourcery.internal.installer;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.CopyOption;
-import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.EnumSet;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
 
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.osgi.util.NLS;
-
-import com.codesourcery.installer.Installer;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 /**
  * Common file utility helper methods.
@@ -41,7 +40,7 @@ public class FileUtils {
 
 	/**
 	 * Copies source directory to target and preserves attributes.  Any existing files will be replaced.
-	 * Links will be followed.
+	 * Links will be copied as links.
 	 * 
 	 * @param source Path of source directory
 	 * @param target Path of target directory
@@ -49,13 +48,26 @@ public class FileUtils {
 	 * @throws IOException on failure
 	 */
 	public static void copyDirectory(Path source, Path target, boolean replace) throws IOException {
+		copyDirectory(source, target, replace, null);
+	}
+	
+	/**
+	 * Copies source directory to target and preserves attributes.  Files are copied in parallel.
+	 * Links will be copied as links.
+	 * 
+	 * @param source Path of source directory
+	 * @param target Path of target directory
+	 * @param replace <code>true</code> to replace already existing target directory
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @throws IOException on failure
+	 * @throws OperationCanceledException if the progress monitor was canceled
+	 */
+	public static void copyDirectory(Path source, Path target, boolean replace, IProgressMonitor monitor) throws IOException {
 		CopyOption[] options = (replace)?new CopyOption[] {StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING}:
 			new CopyOption[] {StandardCopyOption.COPY_ATTRIBUTES};
 
-		// Follow links during copy.
-		EnumSet<FileVisitOption> opts = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
 		FilesCopier tc = new FilesCopier(source, target, options);
-		Files.walkFileTree(source, opts, Integer.MAX_VALUE, tc);
+		tc.copy(monitor);
 	}
 	
 	/**
@@ -91,6 +103,7 @@ public class FileUtils {
 	/**
 	 * Deletes files in a directory.  This method does not delete the directory itself.
 	 * This method does not throw an exception on failure, but instead returns any files that could not be deleted.
+	 * Sub-directories are deleted in parallel.
 	 * 
 	 * @param directory Directory to delete
 	 * @param excludedPaths Paths (files or directories) to exclude from deletion or <code>null</code>
@@ -98,114 +111,23 @@ public class FileUtils {
 	 * @return Files that could not be deleted
 	 */
 	public static File[] deleteFiles(final Path directory, final Path[] excludedPaths, final IProgressMonitor monitor) {
-		final ArrayList<File> filesNotRemoved = new ArrayList<File>();
-		final IPath directoryPath = new org.eclipse.core.runtime.Path(directory.toFile().getAbsolutePath());
-		try {
-			final int[] fileCount = new int[] { 0 };
-			
-			// Count file to be removed
-			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-				@Override
-				public FileVisitResult visitFile(Path path,
-						BasicFileAttributes attrs) throws IOException {
-					fileCount[0] ++;
-					// If file is read-only, make it writable
-					File file = path.toFile();
-					if (!file.canWrite()) {
-						if (!file.setWritable(true)) {
-							throw new IOException("Failed to set file writeable: " + file.getAbsolutePath());
-						}
-					}
-					return FileVisitResult.CONTINUE;
-				}
-			});
-			
-			if (monitor != null) {
-				monitor.beginTask(NLS.bind(InstallMessages.Removing0, ""), fileCount[0]);
-			}
-			
-			// Delete files and sub-directories
-			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-				/**
-				 * Returns if a path is excluded.
-				 * 
-				 * @param arg Path
-				 * @return <code>true</code> if path is excluded
-				 */
-				private boolean isExcluded(Path arg) {
-					boolean excluded = false;
-					if (excludedPaths != null) {
-						for (Path excludedPath : excludedPaths) {
-							if (excludedPath.equals(arg)) {
-								excluded = true;
-								break;
-							}
-						}
-					}
-					
-					return excluded;
-				}
-				
-				@Override
-				public FileVisitResult preVisitDirectory(Path arg0,
-						BasicFileAttributes arg1) throws IOException {
-					// Is directory excluded
-					if (isExcluded(arg0)) {
-						return FileVisitResult.SKIP_SUBTREE;
-					}
-					else {
-						return FileVisitResult.CONTINUE;
-					}
-				}
-
-				@Override
-				public FileVisitResult postVisitDirectory(Path arg0,
-						IOException arg1) throws IOException {
-					try {
-						if (!arg0.equals(directory)) {
-							if (monitor != null) {
-								IPath filePath = new org.eclipse.core.runtime.Path(arg0.toFile().getAbsolutePath()).removeFirstSegments(directoryPath.segmentCount()).setDevice("");
-								monitor.setTaskName(NLS.bind(InstallMessages.Removing0, filePath.toOSString()));
-							}
-							// Delete directory
-							Files.delete(arg0);
-						}
-					}
-					catch (Exception e) {
-						// Ignore
-					}
-					return FileVisitResult.CONTINUE;
-				}
+		return new FileDeleter(directory, excludedPaths).delete(monitor);
+	}
 
-				@Override
-				public FileVisitResult visitFile(Path arg0, BasicFileAttributes arg1)
-						throws IOException {
-					try {
-						if (!isExcluded(arg0)) {
-							// Delete file
-							Files.delete(arg0);
-						}
-					}
-					catch (Exception e) {
-						filesNotRemoved.add(arg0.toFile());
-						Installer.log(e);
-					}
-					if (monitor != null) {
-						monitor.worked(1);
-					}
-					return FileVisitResult.CONTINUE;
-				}
-			});
-		} catch (IOException e) {
-			// If an exception is thrown from visitor, it is an error
-			Installer.log(e);
-		} finally {
-			if (monitor != null) {
-				monitor.done();
-			}
-		}
-		
-		return filesNotRemoved.toArray(new File[filesNotRemoved.size()]);
+	/**
+	 * Deletes a list of files and directories in a directory.  Files are deleted in parallel and files that do not exist
+	 * are skipped.  Directories are only deleted if they are empty after the files have been deleted.
+	 * This method does not throw an exception on failure, but instead returns any files that could not be deleted.
+	 * 
+	 * @param directory Directory containing the files
+	 * @param files Files to delete
+	 * @param directories Directories to delete
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Files that could not be deleted
+	 */
+	public static File[] deleteFiles(final Path directory, final List<Path> files, final List<Path> directories, 
+			final IProgressMonitor monitor) {
+		return new FileDeleter(directory, null).delete(files, directories, monitor);
 	}
 	
 	/**
@@ -236,6 +158,38 @@ public class FileUtils {
 		return buffer.toString();
 	}
 	
+	/**
+	 * Computes the checksum of a file.
+	 * 
+	 * @param file File
+	 * @param algorithm Digest algorithm, i.e. "MD5" or "SHA-256"
+	 * @return Checksum as lower-case hexadecimal
+	 * @throws IOException on failure to read the file or if the algorithm is not available
+	 */
+	public static String getChecksum(File file, String algorithm) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		
+		StringBuilder checksum = new StringBuilder();
+		for (byte b : digest.digest()) {
+			checksum.append(String.format("%02x", b & 0xff));
+		}
+		
+		return checksum.toString();
+	}
+	
 	/**
 	 * Sets all files in a directory to be writable.
 	 * 
@@ -11,25 +11,75 @@
 package com.codesourcery.internal.installer;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.osgi.util.NLS;
 
 import com.codesourcery.installer.Installer;
 
 /**
- * Copies files and directories from source to destination
+ * Copies files and directories from source to destination using multiple threads.
+ * Each sub-directory is handled by a separate fork-join task, so directories are listed and files are copied in
+ * parallel.  File permissions and modification times are preserved.  Symbolic links are followed, unless the link
+ * target is inside the source directory, in which case the link is copied so that it refers to the copy of its target.
+ * Links that can't be resolved are copied as they are.  Large files are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * Progress is counted by the worker threads and reported to the progress monitor only from the thread that called
+ * {@link #copy(IProgressMonitor)}.  The copy is stopped if the progress monitor is canceled.
  */
-public class FilesCopier implements FileVisitor<Path> {
+public class FilesCopier {
+	/** Interval in milliseconds to report progress */
+	private static final long PROGRESS_INTERVAL = 100;
+	/** Size in bytes of files copied with a file channel transfer */
+	private static final long TRANSFER_SIZE = 1024 * 1024;
+
 	/** Path of source directory. **/
 	private final Path source;
 	/** Path of target directory. **/
 	private final Path target;
-	/** Copy options. **/
-	private final CopyOption[] option;
+	/** Real path of source directory */
+	private Path sourceRealPath;
+	/** <code>true</code> to replace existing files **/
+	private final boolean replace;
+	/** Number of threads */
+	private int threads;
+	/** Number of files copied */
+	private AtomicInteger filesCopied = new AtomicInteger(0);
+	/** Last file being copied */
+	private AtomicReference<Path> currentFile = new AtomicReference<Path>();
+	/** <code>true</code> if the copy has been stopped */
+	private AtomicBoolean stopped = new AtomicBoolean(false);
+	/** First failure or <code>null</code> */
+	private AtomicReference<IOException> failure = new AtomicReference<IOException>();
 	
 	/**
 	 * Constructor
@@ -41,36 +91,379 @@ public class FilesCopier implements FileVisitor<Path> {
 	public FilesCopier(Path source, Path target, CopyOption[] copyOption) {
 		this.source = source;
 		this.target = target;
-		this.option = copyOption;
+		this.replace = Arrays.asList(copyOption).contains(StandardCopyOption.REPLACE_EXISTING);
+		// Copying files mostly waits on the file system, so use more threads than processors
+		threads = Runtime.getRuntime().availableProcessors() * 2;
 	}
 
-	@Override
-	public FileVisitResult postVisitDirectory(Path arg0, IOException arg1)
-			throws IOException {
-		return FileVisitResult.CONTINUE;
+	/**
+	 * Copies the source directory to the target directory.
+	 * 
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @throws IOException on failure to copy a file
+	 * @throws OperationCanceledException if the progress monitor was canceled
+	 */
+	public void copy(IProgressMonitor monitor) throws IOException {
+		sourceRealPath = source.toRealPath();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			// Count files to be copied
+			int fileCount = waitFor(pool.submit(new CountTask(source, new HashSet<Path>())), null);
+			if (monitor != null) {
+				monitor.beginTask(NLS.bind(InstallMessages.Copying0, ""), fileCount);
+			}
+
+			// Copy files and sub-directories
+			waitFor(pool.submit(new CopyTask(source, new HashSet<Path>())), monitor);
+		}
+		catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException(e.getCause());
+		}
+		finally {
+			pool.shutdown();
+			if (monitor != null) {
+				monitor.done();
+			}
+		}
+
+		if (failure.get() != null)
+			throw failure.get();
+		if ((monitor != null) && monitor.isCanceled())
+			throw new OperationCanceledException();
 	}
 
-	@Override
-	public FileVisitResult preVisitDirectory(Path dir,
-			BasicFileAttributes arg1) throws IOException {
-		Path targetPath = target.resolve(source.relativize(dir));
-		if(!Files.exists(targetPath)){
-			Files.createDirectory(targetPath);
+	/**
+	 * Waits for a task to complete and reports progress.  If the progress monitor is canceled, the copy is stopped.
+	 * 
+	 * @param task Task
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Task result
+	 * @throws InterruptedException if interrupted
+	 * @throws ExecutionException if the task failed
+	 */
+	private <T> T waitFor(ForkJoinTask<T> task, IProgressMonitor monitor) throws InterruptedException, ExecutionException {
+		int reported = 0;
+		Path reportedFile = null;
+		while (true) {
+			T result = null;
+			boolean done = false;
+			try {
+				result = task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+				done = true;
+			}
+			catch (TimeoutException e) {
+				// Report progress
+			}
+
+			if (monitor != null) {
+				if (monitor.isCanceled()) {
+					stopped.set(true);
+				}
+				Path current = currentFile.get();
+				if ((current != null) && !current.equals(reportedFile)) {
+					monitor.setTaskName(NLS.bind(InstallMessages.Copying0, source.relativize(current).toString()));
+					reportedFile = current;
+				}
+				int copied = filesCopied.get();
+				if (copied > reported) {
+					monitor.worked(copied - reported);
+					reported = copied;
+				}
+			}
+
+			if (done)
+				return result;
 		}
-		return FileVisitResult.CONTINUE;
 	}
 
-	@Override
-	public FileVisitResult visitFile(Path srcFile, BasicFileAttributes arg1)
+	/**
+	 * Lists the entries of a directory.
+	 * 
+	 * @param dir Directory
+	 * @param linkedDirectories Real paths of the linked directories that were followed to reach the directory
+	 * @param directories Filled with sub-directories, including links to directories that are followed
+	 * @param files Filled with files and links that are copied
+	 * @throws IOException on failure to read the directory
+	 */
+	private void list(Path dir, Set<Path> linkedDirectories, List<Path> directories, List<Path> files) 
 			throws IOException {
-		Files.copy(srcFile, target.resolve(source.relativize(srcFile)),option);
-		return FileVisitResult.CONTINUE;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+			for (Path entry : entries) {
+				if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+					directories.add(entry);
+				}
+				// Link to a directory that is followed
+				else if (Files.isSymbolicLink(entry) && (getLinkTarget(entry) == null) && Files.isDirectory(entry)) {
+					if (linkedDirectories.contains(entry.toRealPath())) {
+						Installer.log(new FileSystemLoopException(entry.toString()));
+					}
+					else {
+						directories.add(entry);
+					}
+				}
+				else {
+					files.add(entry);
+				}
+			}
+		}
 	}
 
-	@Override
-	public FileVisitResult visitFileFailed(Path srcFile, IOException exc)
-			throws IOException {
-		Installer.log(exc);
-		return FileVisitResult.CONTINUE;
+	/**
+	 * Returns the real paths of the linked directories that were followed to reach a sub-directory.
+	 * 
+	 * @param subdirectory Sub-directory
+	 * @param linkedDirectories Real paths of the linked directories that were followed to reach its parent
+	 * @return Real paths of linked directories
+	 * @throws IOException on failure to resolve a link
+	 */
+	private static Set<Path> getLinkedDirectories(Path subdirectory, Set<Path> linkedDirectories) throws IOException {
+		if (!Files.isSymbolicLink(subdirectory))
+			return linkedDirectories;
+
+		HashSet<Path> subdirectoryLinkedDirectories = new HashSet<Path>(linkedDirectories);
+		subdirectoryLinkedDirectories.add(subdirectory.toRealPath());
+		return subdirectoryLinkedDirectories;
+	}
+
+	/**
+	 * Returns the target for the copy of a symbolic link.  A link is copied if its target is inside the source
+	 * directory or it can't be resolved.  A relative link that stays inside the source directory is copied as it is.
+	 * Otherwise, the copy of the link refers to the copy of its target with a relative path.
+	 * 
+	 * @param link Symbolic link
+	 * @return Target for the copy of the link or <code>null</code> if the link should be followed
+	 * @throws IOException on failure to read the link
+	 */
+	private Path getLinkTarget(Path link) throws IOException {
+		Path linkTarget = Files.readSymbolicLink(link);
+		Path realPath;
+		try {
+			realPath = link.toRealPath();
+		}
+		catch (IOException e) {
+			// Link can't be resolved
+			return linkTarget;
+		}
+		if (!realPath.startsWith(sourceRealPath))
+			return null;
+
+		if (!linkTarget.isAbsolute() && link.getParent().resolve(linkTarget).normalize().startsWith(source.normalize()))
+			return linkTarget;
+		Path destLink = target.resolve(source.relativize(link));
+		return destLink.getParent().relativize(target.resolve(sourceRealPath.relativize(realPath)));
+	}
+
+	/**
+	 * Records a failure and stops the copy.
+	 * 
+	 * @param e Failure
+	 */
+	private void setFailure(IOException e) {
+		failure.compareAndSet(null, e);
+		stopped.set(true);
+	}
+
+	/**
+	 * Copies a file or symbolic link.
+	 * 
+	 * @param srcFile Source file
+	 * @param destFile Destination file
+	 * @throws IOException on failure
+	 */
+	private void copyFile(Path srcFile, Path destFile) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(srcFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		if (replace) {
+			Files.deleteIfExists(destFile);
+		}
+
+		// Symbolic link
+		if (attributes.isSymbolicLink()) {
+			Path linkTarget = getLinkTarget(srcFile);
+			if (linkTarget != null) {
+				try {
+					Files.createSymbolicLink(destFile, linkTarget);
+					return;
+				}
+				catch (UnsupportedOperationException | IOException e) {
+					// Links can't be created (i.e. insufficient privileges on Windows) so copy the link target
+				}
+			}
+			attributes = Files.readAttributes(srcFile, BasicFileAttributes.class);
+		}
+
+		// Small file
+		if (attributes.size() < TRANSFER_SIZE) {
+			Files.copy(srcFile, destFile, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+		// Large file
+		else {
+			try (FileChannel in = FileChannel.open(srcFile, StandardOpenOption.READ);
+					FileChannel out = FileChannel.open(destFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				long size = in.size();
+				long position = 0;
+				while (position < size) {
+					position += in.transferTo(position, size - position, out);
+				}
+			}
+			copyAttributes(srcFile, destFile);
+		}
+	}
+
+	/**
+	 * Copies the permissions and modification time of a file or directory.
+	 * 
+	 * @param srcPath Source path
+	 * @param destPath Destination path
+	 * @throws IOException on failure
+	 */
+	private static void copyAttributes(Path srcPath, Path destPath) throws IOException {
+		PosixFileAttributeView posixView = Files.getFileAttributeView(destPath, PosixFileAttributeView.class);
+		if (posixView != null) {
+			PosixFileAttributes posixAttributes = Files.readAttributes(srcPath, PosixFileAttributes.class);
+			posixView.setPermissions(posixAttributes.permissions());
+		}
+		else {
+			DosFileAttributeView dosView = Files.getFileAttributeView(destPath, DosFileAttributeView.class);
+			if (dosView != null) {
+				DosFileAttributes dosAttributes = Files.readAttributes(srcPath, DosFileAttributes.class);
+				dosView.setHidden(dosAttributes.isHidden());
+				dosView.setReadOnly(dosAttributes.isReadOnly());
+			}
+		}
+		Files.setLastModifiedTime(destPath, Files.getLastModifiedTime(srcPath));
+	}
+
+	/**
+	 * Task to count the files in a directory.
+	 */
+	@SuppressWarnings("serial")
+	private class CountTask extends RecursiveTask<Integer> {
+		/** Directory */
+		private Path dir;
+		/** Real paths of the linked directories that were followed to reach the directory */
+		private Set<Path> linkedDirectories;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param dir Directory
+		 * @param linkedDirectories Real paths of the linked directories that were followed to reach the directory
+		 */
+		public CountTask(Path dir, Set<Path> linkedDirectories) {
+			this.dir = dir;
+			this.linkedDirectories = linkedDirectories;
+		}
+
+		@Override
+		protected Integer compute() {
+			ArrayList<Path> directories = new ArrayList<Path>();
+			ArrayList<Path> files = new ArrayList<Path>();
+			List<CountTask> tasks = new ArrayList<CountTask>();
+			try {
+				list(dir, linkedDirectories, directories, files);
+				for (Path subdirectory : directories) {
+					tasks.add(new CountTask(subdirectory, getLinkedDirectories(subdirectory, linkedDirectories)));
+				}
+			}
+			catch (IOException e) {
+				// Reported when the directory is copied
+				return 0;
+			}
+
+			invokeAll(tasks);
+
+			int count = files.size();
+			for (CountTask task : tasks) {
+				count += task.join();
+			}
+
+			return count;
+		}
+	}
+
+	/**
+	 * Task to copy a directory and its contents.
+	 */
+	@SuppressWarnings("serial")
+	private class CopyTask extends RecursiveAction {
+		/** Source directory */
+		private Path dir;
+		/** Real paths of the linked directories that were followed to reach the directory */
+		private Set<Path> linkedDirectories;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param dir Source directory
+		 * @param linkedDirectories Real paths of the linked directories that were followed to reach the directory
+		 */
+		public CopyTask(Path dir, Set<Path> linkedDirectories) {
+			this.dir = dir;
+			this.linkedDirectories = linkedDirectories;
+		}
+
+		@Override
+		protected void compute() {
+			if (stopped.get())
+				return;
+
+			Path targetDir = target.resolve(source.relativize(dir));
+			ArrayList<Path> directories = new ArrayList<Path>();
+			ArrayList<Path> files = new ArrayList<Path>();
+			List<CopyTask> tasks = new ArrayList<CopyTask>();
+			try {
+				if (!Files.exists(targetDir)) {
+					Files.createDirectories(targetDir);
+				}
+				list(dir, linkedDirectories, directories, files);
+				for (Path subdirectory : directories) {
+					tasks.add(new CopyTask(subdirectory, getLinkedDirectories(subdirectory, linkedDirectories)));
+				}
+			}
+			catch (IOException e) {
+				setFailure(e);
+				return;
+			}
+
+			// Copy sub-directories in parallel
+			for (CopyTask task : tasks) {
+				task.fork();
+			}
+
+			// Copy files
+			for (Path srcFile : files) {
+				if (stopped.get())
+					break;
+
+				currentFile.set(srcFile);
+				try {
+					copyFile(srcFile, target.resolve(source.relativize(srcFile)));
+				}
+				catch (IOException e) {
+					setFailure(e);
+					break;
+				}
+				filesCopied.incrementAndGet();
+			}
+
+			for (CopyTask task : tasks) {
+				task.join();
+			}
+
+			// Copy directory attributes after its contents, in case the directory is read-only
+			if (!stopped.get()) {
+				try {
+					copyAttributes(dir, targetDir);
+				}
+				catch (IOException e) {
+					setFailure(e);
+				}
+			}
+		}
 	}
 }
@@ -40,6 +40,11 @@ public class IInstallConstants {
 	 */
 	public static final String INSTALL_MANIFEST_FILENAME = "install.manifest";
 	
+	/**
+	 * Installed files list filename.
+	 */
+	public static final String INSTALL_FILES_FILENAME = "install.files";
+	
 	/**
 	 * Command line option to suppress splash screen on startup.
 	 */
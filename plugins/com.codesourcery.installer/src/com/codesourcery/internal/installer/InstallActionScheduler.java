@@ -0,0 +1,546 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+
+import com.codesourcery.installer.IInstallAction;
+import com.codesourcery.installer.IInstallActionScheduling;
+import com.codesourcery.installer.IInstallMode;
+import com.codesourcery.installer.IInstallPlatform;
+import com.codesourcery.installer.IInstallProduct;
+import com.codesourcery.installer.Installer;
+
+/**
+ * Runs install actions, running independent actions concurrently.
+ * Actions are run in install phase order.  Within a phase, an action is started when the actions it depends on
+ * (see {@link IInstallActionScheduling#getDependencies()}) have completed and no earlier or running action modifies the
+ * same resource (see {@link IInstallActionScheduling#getConflicts()}).  Actions that do not implement
+ * {@link IInstallActionScheduling} or do not report the resources they modify are run alone on the calling thread, so a
+ * set of such actions is run exactly in order.
+ * Concurrent actions report progress to buffered monitors that are forwarded to the progress monitor from the calling
+ * thread.  If the progress monitor is canceled or an action fails, no further actions are started.
+ * The install platform operations of each action are run as a batch that is completed before the action is considered
+ * complete (see {@link #runAction(IInstallAction, IProvisioningAgent, IInstallProduct, IInstallMode, IProgressMonitor)}).
+ */
+public class InstallActionScheduler {
+	/** Interval in milliseconds to report progress */
+	private static final long PROGRESS_INTERVAL = 100;
+
+	/** Actions in order */
+	private IInstallAction[] actions;
+	/** Actions that have been started */
+	private boolean[] started;
+	/** Actions that have completed successfully */
+	private boolean[] completed;
+	/** Action failures */
+	private Throwable[] failures;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param actions Actions sorted by install phase
+	 */
+	public InstallActionScheduler(IInstallAction[] actions) {
+		this.actions = actions;
+		started = new boolean[actions.length];
+		completed = new boolean[actions.length];
+		failures = new Throwable[actions.length];
+	}
+
+	/**
+	 * Runs the actions.  Each action reports to a sub-monitor of its progress weight.
+	 * 
+	 * @param agent Provisioning agent
+	 * @param product Product
+	 * @param mode Install mode
+	 * @param monitor Progress monitor
+	 * @throws CoreException if an action failed
+	 */
+	public void run(final IProvisioningAgent agent, final IInstallProduct product, final IInstallMode mode, 
+			IProgressMonitor monitor) throws CoreException {
+		ExecutorService executor = null;
+		ExecutorCompletionService<Integer> completion = null;
+		ActionMonitor[] monitors = new ActionMonitor[actions.length];
+		int running = 0;
+
+		try {
+			while (true) {
+				boolean stop = monitor.isCanceled() || (getFailure() != null);
+
+				// Start ready actions
+				boolean startedAction = false;
+				if (!stop) {
+					int forced = -1;
+					if (running == 0) {
+						// If no action is ready, the dependencies are circular so start the next action
+						forced = getNextAction();
+						for (int index = 0; index < actions.length; index++) {
+							if (!started[index] && isReady(index, false)) {
+								forced = -1;
+								break;
+							}
+						}
+					}
+
+					for (int index = 0; index < actions.length; index++) {
+						if (started[index] || ((index != forced) && !isReady(index, true)))
+							continue;
+
+						started[index] = true;
+						startedAction = true;
+						final IInstallAction action = actions[index];
+						SubProgressMonitor subMonitor = new SubProgressMonitor(monitor, action.getProgressWeight());
+						// Run action alone on this thread
+						if (getConflicts(action) == null) {
+							runAction(index, agent, product, mode, subMonitor);
+							break;
+						}
+
+						// Run action concurrently
+						if (executor == null) {
+							executor = Executors.newCachedThreadPool(new ThreadFactory() {
+								@Override
+								public Thread newThread(Runnable runnable) {
+									Thread thread = new Thread(runnable, "Install Action");
+									thread.setDaemon(true);
+									return thread;
+								}
+							});
+							completion = new ExecutorCompletionService<Integer>(executor);
+						}
+						final int actionIndex = index;
+						final ActionMonitor actionMonitor = new ActionMonitor(subMonitor, monitor);
+						monitors[index] = actionMonitor;
+						completion.submit(new Callable<Integer>() {
+							@Override
+							public Integer call() throws Exception {
+								runAction(actionIndex, agent, product, mode, actionMonitor);
+								return actionIndex;
+							}
+						});
+						running++;
+					}
+				}
+
+				if (running == 0) {
+					if (startedAction)
+						continue;
+					break;
+				}
+
+				// Wait for an action to complete and report progress
+				Future<Integer> result = completion.poll(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+				for (ActionMonitor actionMonitor : monitors) {
+					if (actionMonitor != null) {
+						actionMonitor.flush();
+					}
+				}
+				if (result != null) {
+					int index = result.get();
+					monitors[index] = null;
+					running--;
+				}
+			}
+		}
+		catch (InterruptedException | ExecutionException e) {
+			Installer.fail(e);
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+
+		// Action failed
+		Throwable failure = getFailure();
+		if (failure instanceof CoreException)
+			throw (CoreException)failure;
+		else if (failure instanceof RuntimeException)
+			throw (RuntimeException)failure;
+		else if (failure != null)
+			Installer.fail(failure);
+	}
+
+	/**
+	 * Returns the actions that have been started, including actions that did not complete.
+	 * 
+	 * @return Actions in order
+	 */
+	public IInstallAction[] getStartedActions() {
+		ArrayList<IInstallAction> startedActions = new ArrayList<IInstallAction>();
+		for (int index = 0; index < actions.length; index++) {
+			if (started[index]) {
+				startedActions.add(actions[index]);
+			}
+		}
+
+		return startedActions.toArray(new IInstallAction[startedActions.size()]);
+	}
+
+	/**
+	 * Returns the actions that have completed successfully.
+	 * 
+	 * @return Actions in order
+	 */
+	public IInstallAction[] getCompletedActions() {
+		ArrayList<IInstallAction> completedActions = new ArrayList<IInstallAction>();
+		for (int index = 0; index < actions.length; index++) {
+			if (completed[index]) {
+				completedActions.add(actions[index]);
+			}
+		}
+
+		return completedActions.toArray(new IInstallAction[completedActions.size()]);
+	}
+
+	/**
+	 * Runs an action and records the result.
+	 * 
+	 * @param index Action index
+	 * @param agent Provisioning agent
+	 * @param product Product
+	 * @param mode Install mode
+	 * @param monitor Progress monitor
+	 */
+	private void runAction(int index, IProvisioningAgent agent, IInstallProduct product, IInstallMode mode, 
+			IProgressMonitor monitor) {
+		try {
+			runAction(actions[index], agent, product, mode, monitor);
+			synchronized (this) {
+				completed[index] = true;
+			}
+		}
+		catch (Throwable e) {
+			synchronized (this) {
+				failures[index] = e;
+			}
+		}
+	}
+
+	/**
+	 * Runs an action with its install platform operations in a batch.  The batch is completed before this method
+	 * returns, so an operation that failed is reported as a failure of the action that queued it.
+	 * 
+	 * @param action Action
+	 * @param agent Provisioning agent
+	 * @param product Product
+	 * @param mode Install mode
+	 * @param monitor Progress monitor
+	 * @throws CoreException if the action or one of its platform operations failed
+	 */
+	public static void runAction(IInstallAction action, IProvisioningAgent agent, IInstallProduct product, 
+			IInstallMode mode, IProgressMonitor monitor) throws CoreException {
+		IInstallPlatform platform = Installer.getDefault().getInstallPlatform();
+		if (platform == null) {
+			action.run(agent, product, mode, monitor);
+			return;
+		}
+
+		platform.beginBatch();
+		try {
+			action.run(agent, product, mode, monitor);
+		}
+		catch (Throwable e) {
+			// Complete the batch and report the failure of the action
+			try {
+				IStatus status = getBatchStatus(action, platform.endBatch());
+				if (!status.isOK()) {
+					Installer.log(new CoreException(status));
+				}
+			}
+			catch (CoreException batchException) {
+				Installer.log(batchException);
+			}
+			throw e;
+		}
+
+		IStatus status = getBatchStatus(action, platform.endBatch());
+		if (!status.isOK())
+			throw new CoreException(status);
+	}
+
+	/**
+	 * Returns the status of the install platform operations of an action.  Failures of optional operations are
+	 * logged and not included.
+	 * 
+	 * @param action Action
+	 * @param operationStatus Status of each operation
+	 * @return Status containing the operations that failed
+	 */
+	private static IStatus getBatchStatus(IInstallAction action, IStatus[] operationStatus) {
+		MultiStatus status = new MultiStatus(Installer.ID, 0, 
+				MessageFormat.format(InstallMessages.Error_ActionOperations0, action.getId()), null);
+		for (IStatus operation : operationStatus) {
+			// Failure of an optional operation
+			if (operation.getSeverity() == IStatus.WARNING) {
+				Installer.log(new CoreException(operation));
+			}
+			else if (!operation.isOK()) {
+				status.add(operation);
+			}
+		}
+
+		return status;
+	}
+
+	/**
+	 * Returns the first action failure.
+	 * 
+	 * @return Failure or <code>null</code>
+	 */
+	private synchronized Throwable getFailure() {
+		for (Throwable failure : failures) {
+			if (failure != null)
+				return failure;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the first action that has not been started.
+	 * 
+	 * @return Action index or <code>-1</code>
+	 */
+	private int getNextAction() {
+		for (int index = 0; index < actions.length; index++) {
+			if (!started[index])
+				return index;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns if an action can be started.
+	 * 
+	 * @param index Action index
+	 * @param checkRunning <code>true</code> to check for conflicts with running actions
+	 * @return <code>true</code> if the action is ready
+	 */
+	private synchronized boolean isReady(int index, boolean checkRunning) {
+		IInstallAction action = actions[index];
+		for (int other = 0; other < actions.length; other++) {
+			if ((other == index) || completed[other])
+				continue;
+
+			IInstallAction otherAction = actions[other];
+			// Earlier install phase
+			if (otherAction.getInstallPhase().ordinal() < action.getInstallPhase().ordinal())
+				return false;
+			if (otherAction.getInstallPhase() != action.getInstallPhase())
+				continue;
+			// Dependency
+			if (dependsOn(action, otherAction))
+				return false;
+			// Conflicts with an earlier or running action
+			if (((other < index) || (checkRunning && started[other])) && conflicts(action, otherAction))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns if an action depends on another action.
+	 * 
+	 * @param action Action
+	 * @param otherAction Other action
+	 * @return <code>true</code> if <code>action</code> depends on <code>otherAction</code>
+	 */
+	private static boolean dependsOn(IInstallAction action, IInstallAction otherAction) {
+		String[] dependencies = getDependencies(action);
+		return (dependencies != null) && Arrays.asList(dependencies).contains(otherAction.getId());
+	}
+
+	/**
+	 * Returns if two actions modify the same resource.
+	 * 
+	 * @param action Action
+	 * @param otherAction Other action
+	 * @return <code>true</code> if the actions conflict
+	 */
+	private static boolean conflicts(IInstallAction action, IInstallAction otherAction) {
+		String[] conflicts = getConflicts(action);
+		String[] otherConflicts = getConflicts(otherAction);
+		if ((conflicts == null) || (otherConflicts == null))
+			return true;
+
+		for (String conflict : conflicts) {
+			if (Arrays.asList(otherConflicts).contains(conflict))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the identifiers of actions that an action depends on.
+	 * 
+	 * @param action Action
+	 * @return Action identifiers or <code>null</code>
+	 * @see IInstallActionScheduling#getDependencies()
+	 */
+	private static String[] getDependencies(IInstallAction action) {
+		return (action instanceof IInstallActionScheduling) ? ((IInstallActionScheduling)action).getDependencies() : null;
+	}
+
+	/**
+	 * Returns the names of resources that an action modifies.
+	 * 
+	 * @param action Action
+	 * @return Resource names or <code>null</code> if the action must be run alone
+	 * @see IInstallActionScheduling#getConflicts()
+	 */
+	private static String[] getConflicts(IInstallAction action) {
+		return (action instanceof IInstallActionScheduling) ? ((IInstallActionScheduling)action).getConflicts() : null;
+	}
+
+	/**
+	 * Progress monitor for an action that is run concurrently.  Progress is buffered and forwarded to the action
+	 * sub-monitor when {@link #flush()} is called.
+	 */
+	private static class ActionMonitor implements IProgressMonitor {
+		/** Action sub-monitor */
+		private IProgressMonitor subMonitor;
+		/** Install progress monitor */
+		private IProgressMonitor monitor;
+		/** Pending task name for begin or <code>null</code> */
+		private String beginName;
+		/** Pending total work for begin */
+		private int beginWork;
+		/** Pending task name or <code>null</code> */
+		private String taskName;
+		/** Pending sub-task name or <code>null</code> */
+		private String subTaskName;
+		/** Pending work */
+		private double work = 0;
+		/** <code>true</code> if done is pending */
+		private boolean done = false;
+		/** <code>true</code> if canceled */
+		private volatile boolean canceled = false;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param subMonitor Action sub-monitor
+		 * @param monitor Install progress monitor
+		 */
+		public ActionMonitor(IProgressMonitor subMonitor, IProgressMonitor monitor) {
+			this.subMonitor = subMonitor;
+			this.monitor = monitor;
+		}
+
+		/**
+		 * Forwards pending progress to the action sub-monitor.  This method must only be called from the thread
+		 * running the install actions.
+		 */
+		public void flush() {
+			String pendingBeginName;
+			int pendingBeginWork;
+			String pendingTaskName;
+			String pendingSubTaskName;
+			double pendingWork;
+			boolean pendingDone;
+			synchronized (this) {
+				pendingBeginName = beginName;
+				pendingBeginWork = beginWork;
+				pendingTaskName = taskName;
+				pendingSubTaskName = subTaskName;
+				pendingWork = work;
+				pendingDone = done;
+				beginName = null;
+				taskName = null;
+				subTaskName = null;
+				work = 0;
+				done = false;
+			}
+
+			if (pendingBeginName != null) {
+				subMonitor.beginTask(pendingBeginName, pendingBeginWork);
+			}
+			if (pendingTaskName != null) {
+				subMonitor.setTaskName(pendingTaskName);
+			}
+			if (pendingSubTaskName != null) {
+				subMonitor.subTask(pendingSubTaskName);
+			}
+			if (pendingWork != 0) {
+				subMonitor.internalWorked(pendingWork);
+			}
+			if (pendingDone) {
+				subMonitor.done();
+			}
+			if (canceled) {
+				monitor.setCanceled(true);
+			}
+		}
+
+		@Override
+		public synchronized void beginTask(String name, int totalWork) {
+			beginName = (name != null) ? name : "";
+			beginWork = totalWork;
+		}
+
+		@Override
+		public synchronized void done() {
+			done = true;
+		}
+
+		@Override
+		public synchronized void internalWorked(double work) {
+			this.work += work;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled || monitor.isCanceled();
+		}
+
+		@Override
+		public void setCanceled(boolean value) {
+			canceled = value;
+		}
+
+		@Override
+		public synchronized void setTaskName(String name) {
+			taskName = name;
+		}
+
+		@Override
+		public synchronized void subTask(String name) {
+			subTaskName = name;
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -182,17 +183,71 @@ public class InstallDescription implements IInstallDescription {
 	public static final String UNINSTALL_ADDREMOVE = "CREATE_ADD_REMOVE";//$NON-NLS-1$
 	/** Remove installation directories on uninstall property */
 	public static final String UNINSTALL_REMOVE_DIRS = "REMOVE_DIRS";//$NON-NLS-1$
+	/** Remove installation directories in the background on uninstall property */
+	public static final String UNINSTALL_FAST_REMOVE_DIRS = "FAST_REMOVE_DIRS";//$NON-NLS-1$
 	/** Minimum version that can be upgraded property  **/
 	public static final String PROP_MINIMUM_UPGRADE_VERSION = "eclipse.p2.install.upgrade.minVersion";//$NON-NLS-1$
 	/** Network time-out property  **/
 	public static final String PROP_NETWORK_TIMEOUT = "eclipse.p2.network.timeout";//$NON-NLS-1$
 	/** Network retry property  **/
 	public static final String PROP_NETWORK_RETRY = "eclipse.p2.network.retry";//$NON-NLS-1$
+	/** Concurrent repository loads property  **/
+	public static final String PROP_REPOS_PARALLEL = "eclipse.p2.repos.parallel";//$NON-NLS-1$
+	/** Install plan cache size property  **/
+	public static final String PROP_PLAN_CACHE_SIZE = "eclipse.p2.plan.cacheSize";//$NON-NLS-1$
+	/** Speculative install plans property  **/
+	public static final String PROP_PLAN_SPECULATIVE = "eclipse.p2.plan.speculative";//$NON-NLS-1$
+	/** Incremental install size property  **/
+	public static final String PROP_PLAN_INCREMENTAL_SIZE = "eclipse.p2.plan.incrementalSize";//$NON-NLS-1$
+	/** Concurrent artifact transfers property  **/
+	public static final String PROP_MIRROR_PARALLEL = "eclipse.p2.mirror.parallel";//$NON-NLS-1$
+	/** Resume mirror property  **/
+	public static final String PROP_MIRROR_RESUME = "eclipse.p2.mirror.resume";//$NON-NLS-1$
+	/** Shared artifact store property  **/
+	public static final String PROP_SHARED_ARTIFACTS = "eclipse.p2.artifacts.shared";//$NON-NLS-1$
+	/** Progress update rate property  **/
+	public static final String PROP_PROGRESS_RATE = "eclipse.p2.progress.rate";//$NON-NLS-1$
+	
+	/** Older property names for changed properties */
+	private static final Map<String, String> LEGACY_PROPERTIES = new HashMap<String, String>();
+	static {
+		final String[] PROPS_OLD = new String[] {
+				"eclipse.p2.metadata", "eclipse.p2.artifacts", "eclipse.p2.welcomeText",
+				"eclipse.p2.installFolderText", "eclipse.p2.windowTitle", "eclipse.p2.title",
+				"eclipse.p2.information", "eclipse.p2.rootLocation", "eclipse.p2.installLocation",
+				"eclipse.p2.productId", "eclipse.p2.productName", "eclipse.p2.productCategory",
+				"eclipse.p2.productVendor", "eclipse.p2.productVersion", "eclipse.p2.productHelp",
+				"eclipse.p2.profileName", "eclipse.p2.removeProfile", "eclipse.p2.launch",
+				"eclipse.p2.linksLocation", "eclipse.p2.linksDefault", "eclipse.p2.requiredRoots",
+				"eclipse.p2.optionalRoots", "eclipse.p2.optionalRootsDefault", "eclipse.p2.licenseIU",
+				"org.eclipse.p2.wizardNavigation", "eclipse.p2.wizardPages", "eclipse.p2.wizardPageTitles",
+				"eclipse.p2.hideComponentsVersion", "eclipse.p2.titleImage", "eclipse.p2.dataLocation",
+				"eclipse.p2.env.paths"
+		};
+		final String[] PROPS_NEW = new String[] {
+				PROP_METADATA_REPOSITORY, PROP_ARTIFACT_REPOSITORY, PROP_WIZARD_TEXT_PREFIX + ".welcome",
+				PROP_WIZARD_TEXT_PREFIX + ".installFolder", PROP_WINDOW_TITLE, PROP_TITLE,
+				PROP_INFORMATION, PROP_ROOT_LOCATION_PREFIX, PROP_INSTALL_LOCATION,
+				PROP_PRODUCT_ID, PROP_PRODUCT_NAME, PROP_PRODUCT_CATEGORY,
+				PROP_PRODUCT_VENDOR, PROP_PRODUCT_VERSION, PROP_PRODUCT_HELP,
+				PROP_PROFILE_NAME, PROP_REMOVE_PROFILE, PROP_LAUNCH,
+				PROP_LINKS_LOCATION, PROP_LINKS_DEFAULT, PROP_REQUIRED_ROOTS,
+				PROP_OPTIONAL_ROOTS, PROP_OPTIONAL_ROOTS_DEFAULT, PROP_LICENSE_IU,
+				PROP_WIZARD_NAVIGATION, PROP_WIZARD_PAGES_ORDER, PROP_WIZARD_PAGE_TITLES,
+				PROP_SHOW_COMPONENT_VERSIONS, PROP_TITLE_IMAGE, PROP_DATA_LOCATION,
+				PROP_ENV_PATHS
+		};
+		for (int index = 0; index < PROPS_NEW.length; index ++) {
+			LEGACY_PROPERTIES.put(PROPS_NEW[index], PROPS_OLD[index]);
+		}
+	}
 	
 	/** Base location for installer */
 	private URI base;
 	/** Installer properties */
 	private Map<String, String> properties = new HashMap<String, String>();
+	/** Installer properties resolved for the platform or <code>null</code> if they must be resolved again */
+	private Map<String, String> propertyView;
 	/** P2 profile properties */
 	private Map<String, String> profileProperties = new HashMap<String, String>();
 	/** Root install location */
@@ -309,6 +364,22 @@ public class InstallDescription implements IInstallDescription {
 	private int networkRetry = -1;
 	/** <code>true</code> to create product root IU */
 	private boolean productRoot = true;
+	/** Number of meta-data repositories to load concurrently */
+	private int repositoryLoadThreads = 1;
+	/** Maximum number of install plans to cache */
+	private int installPlanCacheSize = InstallPlanCache.DEFAULT_SIZE;
+	/** Maximum number of speculative install plans */
+	private int speculativePlans = 0;
+	/** <code>true</code> to estimate install sizes incrementally */
+	private boolean incrementalSize = false;
+	/** Number of artifacts to transfer concurrently when mirroring */
+	private int mirrorThreads = 1;
+	/** <code>true</code> to resume interrupted mirror operations */
+	private boolean resumeMirror = false;
+	/** <code>true</code> to use the shared artifact store */
+	private boolean sharedArtifacts = false;
+	/** Maximum number of provisioning progress updates per second or <code>0</code> for no limit */
+	private int progressRate = 0;
 
 	/**
 	 * Loads an install description.
@@ -347,6 +418,7 @@ public class InstallDescription implements IInstallDescription {
 					properties.put(name, value);
 				}
 			}
+			propertyView = null;
 			
 			// Resolve variables
 			resolveVariables(properties);
@@ -376,11 +448,14 @@ public class InstallDescription implements IInstallDescription {
 	 * </ul>
 	 * 
 	 * If the property name contains no prefix, the property value will be returned as is.
+	 * Any variables in the property value are resolved before the prefix processing.
 	 * 
 	 * @param variable Property name optionally containing a prefix
+	 * @param resolved Resolved property values
+	 * @param resolving Properties being resolved
 	 * @return Property value
 	 */
-	private String resolvePrefixedProperty(String variable) {
+	private String resolvePrefixedProperty(String variable, Map<String, String> resolved, Set<String> resolving) {
 		String prefix = null;
 		
 		// Check if special prefix is present
@@ -391,12 +466,7 @@ public class InstallDescription implements IInstallDescription {
 		}
 		
 		// Read the property value
-		String propertyValue = readProperty(variable);
-		// If property is not available, try system
-		// environment variable
-		if (propertyValue == null) {
-			propertyValue = System.getenv(variable);
-		}
+		String propertyValue = resolveProperty(variable, resolved, resolving);
 
 		// Handle any prefix processing
 		if ((prefix != null) && (propertyValue != null)) {
@@ -428,62 +498,107 @@ public class InstallDescription implements IInstallDescription {
 		return propertyValue;
 	}
 	
+	/**
+	 * Reads a property value and resolves any variables in the value.  Each property is only resolved once.
+	 * 
+	 * @param name Property name
+	 * @param resolved Resolved property values
+	 * @param resolving Properties being resolved
+	 * @return Property value or <code>null</code>
+	 */
+	private String resolveProperty(String name, Map<String, String> resolved, Set<String> resolving) {
+		if (resolved.containsKey(name))
+			return resolved.get(name);
+		
+		// Property references itself
+		if (!resolving.add(name)) {
+			Installer.log("Error in resolving macros: Circular reference to \"" + name + "\".");
+			return null;
+		}
+		
+		// Read the property value
+		String value = readProperty(name);
+		// If property is not available, try system
+		// environment variable
+		if (value == null) {
+			value = System.getenv(name);
+		}
+		if (value != null) {
+			value = resolveValue(value, resolved, resolving);
+		}
+		
+		resolving.remove(name);
+		resolved.put(name, value);
+		
+		return value;
+	}
+	
+	/**
+	 * Replaces any ${property} in a value with the value of the 'property'.
+	 * 
+	 * @param value Value
+	 * @param resolved Resolved property values
+	 * @param resolving Properties being resolved
+	 * @return Resolved value
+	 */
+	private String resolveValue(String value, Map<String, String> resolved, Set<String> resolving) {
+		int index = value.indexOf("${");
+		if (index == -1)
+			return value;
+		
+		StringBuilder buffer = new StringBuilder(value.length());
+		int start = 0;
+		// Start of variable
+		while (index != -1) {
+			int end = value.indexOf('}', index);
+			if (end == -1) {
+				Installer.log("Error in resolving macros: No matching \"}\" for \"${\".");
+				break;
+			}
+			buffer.append(value, start, index);
+			
+			// Property to replace
+			String property = value.substring(index + 2, end);
+			// Defer resolving late binding properties
+			if (property.equals(PROP_REPOS_MIRROR) || property.equals(PROP_EXISTING_VERSION)) {
+				buffer.append(value, index, end + 1);
+			}
+			// Resolve property references
+			else {
+				String sub = resolvePrefixedProperty(property, resolved, resolving);
+				if (sub != null) {
+					buffer.append(sub);
+				}
+			}
+			
+			start = end + 1;
+			index = value.indexOf("${", start);
+		}
+		buffer.append(value, start, value.length());
+		
+		return buffer.toString();
+	}
+	
 	/**
 	 * Resolves property variables, replacing any ${property} with the value
-	 * of the 'property'.
+	 * of the 'property'.  Variables in the values of referenced properties
+	 * are also resolved.
 	 * 
 	 * @param properties Properties to replace
 	 */
 	private void resolveVariables(Map<String, String> properties) {
 		try {
-			Iterator<Entry<String, String>> iter = properties.entrySet().iterator();
-			while (iter.hasNext()) {
-				Entry<String, String> entry = iter.next();
-				String value = entry.getValue();
-				int start = 0;
-				int index, index2;
-				// Start of variable
-				while ((index = value.indexOf('$', start)) != -1) {
-					if (index + 1 < value.length()) {
-						if (value.charAt(index + 1) == '{') {
-							index2 = value.indexOf('}', index);
-							if (index2 != -1) {
-								// Property to replace
-								String property = value.substring(index + 2, index2);
-								
-								// Defer resolving late binding properties
-								if (property.equals(PROP_REPOS_MIRROR) || property.equals(PROP_EXISTING_VERSION)) {
-									start ++;
-								}
-								// Resolve property references
-								else {
-									// Property value
-									String sub = resolvePrefixedProperty(property);
-									// Replace variable
-									value = value.substring(0, index) + 
-											(sub != null ? sub : "") + 
-											value.substring(index2 + 1);
-									entry.setValue(value);
-								}
-							}
-							else {
-								Installer.log("Error in resolving macros: No matching \"}\" for \"${\".");
-								break;
-							}
-						}
-						else if (index + 1 < value.length()){
-							start = index + 1;
-						}
-					}
-					else {
-						break;
-					}
-				}
+			HashMap<String, String> resolved = new HashMap<String, String>();
+			HashSet<String> resolving = new HashSet<String>();
+			for (Entry<String, String> entry : properties.entrySet()) {
+				entry.setValue(resolveValue(entry.getValue(), resolved, resolving));
 			}
 		}
 		catch (Exception e) {
 			Installer.log(e);
 		}
+		// Property values have changed
+		propertyView = null;
 	}
 
 	/**
@@ -760,16 +875,22 @@ public class InstallDescription implements IInstallDescription {
 			boolean showUninstall = false;
 			boolean createAddRemove = false;
 			boolean removeDirectories = false;
+			boolean fastRemoveDirectories = false;
 			String[] flags = getArrayFromString(property, "|");
 			for (String flag : flags) {
 				if (flag.equals(UNINSTALL_ADDREMOVE))
 					createAddRemove = true;
 				else if (flag.equals(UNINSTALL_REMOVE_DIRS))
 					removeDirectories = true;
+				else if (flag.equals(UNINSTALL_FAST_REMOVE_DIRS)) {
+					removeDirectories = true;
+					fastRemoveDirectories = true;
+				}
 				else if (flag.equals(UNINSTALL_SHOW_UNINSTALL))
 					showUninstall = true;
 			}
-			UninstallMode mode = new UninstallMode(showUninstall, createAddRemove, removeDirectories);
+			UninstallMode mode = new UninstallMode(showUninstall, createAddRemove, removeDirectories, 
+					fastRemoveDirectories);
 			setUninstallMode(mode);
 		}
 
@@ -834,6 +955,79 @@ public class InstallDescription implements IInstallDescription {
 			}
 		}
 
+		// Concurrent repository loads
+		property = readProperty(PROP_REPOS_PARALLEL);
+		if (property != null) {
+			try {
+				setRepositoryLoadThreads(Integer.parseInt(property.trim()));
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
+		// Install plan cache size
+		property = readProperty(PROP_PLAN_CACHE_SIZE);
+		if (property != null) {
+			try {
+				setInstallPlanCacheSize(Integer.parseInt(property.trim()));
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
+		// Speculative install plans
+		property = readProperty(PROP_PLAN_SPECULATIVE);
+		if (property != null) {
+			try {
+				setSpeculativePlans(Integer.parseInt(property.trim()));
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
+		// Incremental install size
+		property = readProperty(PROP_PLAN_INCREMENTAL_SIZE);
+		if (property != null) {
+			setIncrementalSize(property.trim().toLowerCase().equals(Boolean.TRUE.toString()));
+		}
+
+		// Concurrent artifact transfers
+		property = readProperty(PROP_MIRROR_PARALLEL);
+		if (property != null) {
+			try {
+				setMirrorThreads(Integer.parseInt(property.trim()));
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
+		// Resume mirror
+		property = readProperty(PROP_MIRROR_RESUME);
+		if (property != null) {
+			setResumeMirror(property.trim().toLowerCase().equals(Boolean.TRUE.toString()));
+		}
+
+		// Shared artifact store
+		property = readProperty(PROP_SHARED_ARTIFACTS);
+		if (property != null) {
+			setSharedArtifacts(property.trim().toLowerCase().equals(Boolean.TRUE.toString()));
+		}
+
+		// Progress update rate
+		property = readProperty(PROP_PROGRESS_RATE);
+		if (property != null) {
+			try {
+				setProgressRate(Integer.parseInt(property.trim()));
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
 		// Short-cuts links location
 		property = readProperty(PROP_LINKS_LOCATION);
 		if (property != null) {
@@ -1227,65 +1421,61 @@ public class InstallDescription implements IInstallDescription {
 	 * @return Property value or <code>null</code>
 	 */
 	private String readProperty(String prefix) {
-		final String[] PROPS_OLD = new String[] {
-				"eclipse.p2.metadata", "eclipse.p2.artifacts", "eclipse.p2.welcomeText",
-				"eclipse.p2.installFolderText", "eclipse.p2.windowTitle", "eclipse.p2.title",
-				"eclipse.p2.information", "eclipse.p2.rootLocation", "eclipse.p2.installLocation",
-				"eclipse.p2.productId", "eclipse.p2.productName", "eclipse.p2.productCategory",
-				"eclipse.p2.productVendor", "eclipse.p2.productVersion", "eclipse.p2.productHelp",
-				"eclipse.p2.profileName", "eclipse.p2.removeProfile", "eclipse.p2.launch",
-				"eclipse.p2.linksLocation", "eclipse.p2.linksDefault", "eclipse.p2.requiredRoots",
-				"eclipse.p2.optionalRoots", "eclipse.p2.optionalRootsDefault", "eclipse.p2.licenseIU",
-				"org.eclipse.p2.wizardNavigation", "eclipse.p2.wizardPages", "eclipse.p2.wizardPageTitles",
-				"eclipse.p2.hideComponentsVersion", "eclipse.p2.titleImage", "eclipse.p2.dataLocation",
-				"eclipse.p2.env.paths"
-		};
-		final String[] PROPS_NEW = new String[] {
-				PROP_METADATA_REPOSITORY, PROP_ARTIFACT_REPOSITORY, PROP_WIZARD_TEXT_PREFIX + ".welcome",
-				PROP_WIZARD_TEXT_PREFIX + ".installFolder", PROP_WINDOW_TITLE, PROP_TITLE,
-				PROP_INFORMATION, PROP_ROOT_LOCATION_PREFIX, PROP_INSTALL_LOCATION,
-				PROP_PRODUCT_ID, PROP_PRODUCT_NAME, PROP_PRODUCT_CATEGORY,
-				PROP_PRODUCT_VENDOR, PROP_PRODUCT_VERSION, PROP_PRODUCT_HELP,
-				PROP_PROFILE_NAME, PROP_REMOVE_PROFILE, PROP_LAUNCH,
-				PROP_LINKS_LOCATION, PROP_LINKS_DEFAULT, PROP_REQUIRED_ROOTS,
-				PROP_OPTIONAL_ROOTS, PROP_OPTIONAL_ROOTS_DEFAULT, PROP_LICENSE_IU,
-				PROP_WIZARD_NAVIGATION, PROP_WIZARD_PAGES_ORDER, PROP_WIZARD_PAGE_TITLES,
-				PROP_SHOW_COMPONENT_VERSIONS, PROP_TITLE_IMAGE, PROP_DATA_LOCATION,
-				PROP_ENV_PATHS
-		};
-		String value = null;
-		
-		if (prefix != null) {
+		return (prefix != null) ? getPropertyView().get(prefix) : null;
+	}
+	
+	/**
+	 * Returns the installer properties resolved for the platform.  The
+	 * operating system and architecture specific properties are resolved once
+	 * into a view that maps each property name to the value that 
+	 * {@link #readProperty(String)} would return for it.  The view is 
+	 * resolved again after the installer properties change.
+	 * 
+	 * @return Resolved properties
+	 */
+	private Map<String, String> getPropertyView() {
+		if (propertyView == null) {
+			HashMap<String, String> view = new HashMap<String, String>(properties);
 			String os = Platform.getOS();
 			if (!os.equals(Platform.OS_UNKNOWN)) {
-				String osProperty = prefix + "." + os;
-				String archProperty = osProperty + "." + Platform.getOSArch();
-				// Attempt to get value for property that includes operating system 
-				// and architecture in the name
-				value = properties.get(archProperty);
-				// If no property is defined, attempt to get value for property with 
-				// only operating system in the name
-				if (value == null) {
-					value = properties.get(osProperty);
-				}
-			}
-			// If OS or OS & ARCH property was not found, get the default property
-			// value
-			if (value == null) {
-				value = properties.get(prefix);
+				String osSuffix = "." + os;
+				String archSuffix = osSuffix + "." + Platform.getOSArch();
+				// Properties that include the operating system in the name
+				// override the default property
+				putSuffixedProperties(view, osSuffix);
+				// Properties that include the operating system and 
+				// architecture in the name override both
+				putSuffixedProperties(view, archSuffix);
 			}
-			// Attempt to read older changed property names
-			if (value == null) {
-				for (int index = 0; index < PROPS_NEW.length; index ++) {
-					if (PROPS_NEW[index].equals(prefix)) {
-						value = properties.get(PROPS_OLD[index]);
-						break;
+			// Older changed property names are used if the property is not set
+			for (Entry<String, String> legacyProperty : LEGACY_PROPERTIES.entrySet()) {
+				if (view.get(legacyProperty.getKey()) == null) {
+					String value = properties.get(legacyProperty.getValue());
+					if (value != null) {
+						view.put(legacyProperty.getKey(), value);
 					}
 				}
 			}
+			propertyView = Collections.unmodifiableMap(view);
 		}
 		
-		return value;
+		return propertyView;
+	}
+	
+	/**
+	 * Puts the value of each installer property that ends with a suffix for
+	 * the property name without the suffix.
+	 * 
+	 * @param view Properties to update
+	 * @param suffix Property name suffix
+	 */
+	private void putSuffixedProperties(Map<String, String> view, String suffix) {
+		for (Entry<String, String> property : properties.entrySet()) {
+			String name = property.getKey();
+			if ((property.getValue() != null) && name.endsWith(suffix)) {
+				view.put(name.substring(0, name.length() - suffix.length()), property.getValue());
+			}
+		}
 	}
 
 	/**
@@ -1484,6 +1674,7 @@ public class InstallDescription implements IInstallDescription {
 	@Override
 	public void setProperty(String name, String value) {
 		properties.put(name, value);
+		propertyView = null;
 	}
 	
 	@Override
@@ -2222,4 +2413,84 @@ public class InstallDescription implements IInstallDescription {
 	public boolean getProductRoot() {
 		return productRoot;
 	}
+
+	@Override
+	public void setRepositoryLoadThreads(int threads) {
+		this.repositoryLoadThreads = (threads < 1) ? 1 : threads;
+	}
+
+	@Override
+	public int getRepositoryLoadThreads() {
+		return repositoryLoadThreads;
+	}
+
+	@Override
+	public void setInstallPlanCacheSize(int size) {
+		this.installPlanCacheSize = size;
+	}
+
+	@Override
+	public int getInstallPlanCacheSize() {
+		return installPlanCacheSize;
+	}
+
+	@Override
+	public void setSpeculativePlans(int plans) {
+		this.speculativePlans = (plans < 0) ? 0 : plans;
+	}
+
+	@Override
+	public int getSpeculativePlans() {
+		return speculativePlans;
+	}
+
+	@Override
+	public void setIncrementalSize(boolean incrementalSize) {
+		this.incrementalSize = incrementalSize;
+	}
+
+	@Override
+	public boolean getIncrementalSize() {
+		return incrementalSize;
+	}
+
+	@Override
+	public void setMirrorThreads(int threads) {
+		this.mirrorThreads = (threads < 1) ? 1 : threads;
+	}
+
+	@Override
+	public int getMirrorThreads() {
+		return mirrorThreads;
+	}
+
+	@Override
+	public void setResumeMirror(boolean resumeMirror) {
+		this.resumeMirror = resumeMirror;
+	}
+
+	@Override
+	public boolean getResumeMirror() {
+		return resumeMirror;
+	}
+
+	@Override
+	public void setSharedArtifacts(boolean sharedArtifacts) {
+		this.sharedArtifacts = sharedArtifacts;
+	}
+
+	@Override
+	public boolean getSharedArtifacts() {
+		return sharedArtifacts;
+	}
+
+	@Override
+	public void setProgressRate(int rate) {
+		this.progressRate = (rate < 0) ? 0 : rate;
+	}
+
+	@Override
+	public int getProgressRate() {
+		return progressRate;
+	}
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The list of files and directories in an installation.
+ * The list is saved in the uninstall directory after installation so that uninstallation can remove the installed
+ * files without searching the installation directory.  Each line of the file contains the path of a file or directory
+ * relative to the installation directory.  Directory paths end with '/'.  The uninstall directory is not included.
+ */
+public class InstallFileList {
+	/** Directory path suffix */
+	private static final String DIRECTORY_SUFFIX = "/";
+
+	/** Installation directory */
+	private Path location;
+	/** Installed files */
+	private ArrayList<Path> files = new ArrayList<Path>();
+	/** Installed directories */
+	private ArrayList<Path> directories = new ArrayList<Path>();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param location Installation directory
+	 */
+	private InstallFileList(Path location) {
+		this.location = location;
+	}
+
+	/**
+	 * Returns the path of the file list for an installation.
+	 * 
+	 * @param installLocation Installation directory
+	 * @return File list path
+	 */
+	private static File getListFile(IPath installLocation) {
+		return installLocation.append(IInstallConstants.UNINSTALL_DIRECTORY)
+				.append(IInstallConstants.INSTALL_FILES_FILENAME).toFile();
+	}
+
+	/**
+	 * Records the files and directories in an installation.
+	 * 
+	 * @param installLocation Installation directory
+	 * @throws IOException on failure to read the installation directory or write the list
+	 */
+	public static void save(IPath installLocation) throws IOException {
+		final Path directory = installLocation.toFile().toPath();
+		final Path uninstallDirectory = directory.resolve(IInstallConstants.UNINSTALL_DIRECTORY);
+		final File listFile = getListFile(installLocation);
+		listFile.getParentFile().mkdirs();
+
+		try (final BufferedWriter writer = Files.newBufferedWriter(listFile.toPath(), StandardCharsets.UTF_8)) {
+			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					if (dir.equals(uninstallDirectory))
+						return FileVisitResult.SKIP_SUBTREE;
+
+					if (!dir.equals(directory)) {
+						writer.write(toEntry(directory.relativize(dir)) + DIRECTORY_SUFFIX);
+						writer.newLine();
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					writer.write(toEntry(directory.relativize(file)));
+					writer.newLine();
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Loads the list of files and directories for an installation.
+	 * 
+	 * @param installLocation Installation directory
+	 * @return File list or <code>null</code> if no list was recorded for the installation
+	 * @throws IOException on failure to read the list
+	 */
+	public static InstallFileList load(IPath installLocation) throws IOException {
+		File listFile = getListFile(installLocation);
+		if (!listFile.exists())
+			return null;
+
+		InstallFileList list = new InstallFileList(installLocation.toFile().toPath());
+		try (BufferedReader reader = Files.newBufferedReader(listFile.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty())
+					continue;
+
+				if (line.endsWith(DIRECTORY_SUFFIX)) {
+					list.directories.add(list.location.resolve(line.substring(0, line.length() - DIRECTORY_SUFFIX.length())));
+				}
+				else {
+					list.files.add(list.location.resolve(line));
+				}
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Returns a list entry for a relative path.  Entries always use '/' as separator.
+	 * 
+	 * @param path Relative path
+	 * @return Entry
+	 */
+	private static String toEntry(Path path) {
+		StringBuilder entry = new StringBuilder();
+		for (Path segment : path) {
+			if (entry.length() > 0) {
+				entry.append('/');
+			}
+			entry.append(segment.toString());
+		}
+
+		return entry.toString();
+	}
+
+	/**
+	 * @return Installed files
+	 */
+	public List<Path> getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return Installed directories
+	 */
+	public List<Path> getDirectories() {
+		return directories;
+	}
+}
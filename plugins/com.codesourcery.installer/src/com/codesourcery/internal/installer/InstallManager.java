@@ -17,6 +17,7 @@ import java.net.URISyntaxException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -27,10 +28,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -38,6 +46,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -84,8 +93,12 @@ public class InstallManager implements IInstallManager {
 	private static final int PRODUCT_PROGRESS = 100;
 	/** Install registry filename */
 	private static final String INSTALL_REGISTRY_FILENAME = ".registry";
+	/** Product index filename */
+	private static final String PRODUCT_INDEX_FILENAME = ".products";
 	/** Mirror information filename */
 	private static final String MIRROR_INFO_FILENAME = "mirror.info";
+	/** Suffix for product trash directory */
+	private static final String TRASH_SUFFIX = ".trash-";
 	/** Installed product to update with installation */
 	private IInstalledProduct installedProduct;
 	/** Cached wizard pages */
@@ -121,8 +134,18 @@ public class InstallManager implements IInstallManager {
 	 * Install registry
 	 */
 	private InstallRegistry installRegistry = new InstallRegistry();
+	/**
+	 * Index of installed product locations
+	 */
+	private ProductIndex productIndex = new ProductIndex();
 	/** Restart or re-login required or not. **/
 	private boolean needsResetOrRelogin = false;
+	/** Uninstaller copy running in the background or <code>null</code> */
+	private Future<?> uninstallerCopy;
+	/** Progress monitor used to cancel the background uninstaller copy */
+	private IProgressMonitor uninstallerCopyMonitor;
+	/** Location of the background uninstaller copy */
+	private IPath uninstallerCopyLocation;
 
 	/**
 	 * Constructor
@@ -140,6 +163,15 @@ public class InstallManager implements IInstallManager {
 				Installer.log(e);
 			}
 		}
+		// Product index
+		path = Installer.getDefault().getDataFolder().append(PRODUCT_INDEX_FILENAME);
+		if (path.toFile().exists()) {
+			try {
+				productIndex.load(path);
+			} catch (CoreException e) {
+				Installer.log(e);
+			}
+		}
 		
 		installData = new InstallData();
 	}
@@ -156,6 +188,14 @@ public class InstallManager implements IInstallManager {
 		catch (Exception e) {
 			Installer.log(e);
 		}
+		// Save product index
+		try {
+			IPath path = Installer.getDefault().getDataFolder().append(PRODUCT_INDEX_FILENAME);
+			getProductIndex().save(path);
+		}
+		catch (Exception e) {
+			Installer.log(e);
+		}
 	}
 	
 	@Override
@@ -190,6 +230,15 @@ public class InstallManager implements IInstallManager {
 		return installRegistry;
 	}
 	
+	/**
+	 * Returns the index of installed product locations.
+	 * 
+	 * @return Product index
+	 */
+	private ProductIndex getProductIndex() {
+		return productIndex;
+	}
+	
 	/**
 	 * Verifies install components.
 	 * 
@@ -610,6 +659,10 @@ public class InstallManager implements IInstallManager {
 					uninstallMode != null ? 
 							Boolean.toString(getInstallDescription().getUninstallMode().getRemoveDirectories()) : 
 							Boolean.FALSE.toString());
+			// Save if installation directories should be removed in the background
+			if ((uninstallMode != null) && uninstallMode.getFastRemoveDirectories()) {
+				product.setProperty(IInstallProduct.PROPERTY_FAST_REMOVE_DIRS, Boolean.TRUE.toString());
+			}
 			// Save if product should be shown in uninstaller
 			product.setProperty(IInstallProduct.PROPERTY_SHOW_UNINSTALL, 
 					uninstallMode != null ? 
@@ -624,24 +677,38 @@ public class InstallManager implements IInstallManager {
 
 		// Compute action ticks
 		int totalActionWork = 0;
+		ArrayList<IInstallAction> supportedActions = new ArrayList<IInstallAction>();
 		for (IInstallAction action : actions) {
 			if (isActionSupported(action)) {
 				totalActionWork += action.getProgressWeight();
+				supportedActions.add(action);
 			}
 		}
 
 		monitor.beginTask("", totalActionWork + CLEANUP_PROGRESS + UNINSTALL_SETUP_PROGRESS);
 		
+		// Uninstall location
+		IPath uninstallLocation = getInstallDescription().getRootLocation().append(IInstallConstants.UNINSTALL_DIRECTORY);
+		// Copy the uninstaller while the actions are run.  An existing uninstaller is replaced after the actions
+		// have been run so that it is not removed if the installation is cancelled.
+		if (!mode.isUpdate() && (getInstallDescription().getUninstallFiles() != null) && 
+				!uninstallLocation.toFile().exists()) {
+			startCopyInstaller(uninstallLocation);
+		}
+		
 		// Install
-		int index;
-		for (index = 0; index < actions.length; index ++) {
-			IInstallAction action = actions[index];
-			if (isActionSupported(action)) {
-				// Run action
-				SubProgressMonitor subMonitor = new SubProgressMonitor(monitor, action.getProgressWeight());
-				action.run(RepositoryManager.getDefault().getAgent(), 
-						product, mode, subMonitor);
-				
+		// Independent actions are run concurrently
+		InstallActionScheduler scheduler = new InstallActionScheduler(
+				supportedActions.toArray(new IInstallAction[supportedActions.size()]));
+		try {
+			scheduler.run(RepositoryManager.getDefault().getAgent(), product, mode, monitor);
+		}
+		catch (CoreException | RuntimeException e) {
+			cancelCopyInstaller();
+			throw e;
+		}
+		finally {
+			for (IInstallAction action : scheduler.getCompletedActions()) {
 				// Set reset or relogin if it is required for action.
 				if (action.needsRestartOrRelogin())
 					needsResetOrRelogin = true;
@@ -652,14 +719,15 @@ public class InstallManager implements IInstallManager {
 					product.addAction(action);
 				}
 			}
-			if (monitor.isCanceled())
-				break;
 		}
 
 		// Installation cancelled - clean up
 		if (monitor.isCanceled()) {
 			monitor.setTaskName(InstallMessages.CleanupInstallation);
 			
+			// Stop the uninstaller copy and remove the copied files
+			cancelCopyInstaller();
+			
 			// If not update, roll back performed actions.  For an update, the P2 provisioning operation would have been
 			// cancelled and IU's rolled back.
 			if (!getInstallMode().isUpdate()) {
@@ -667,15 +735,13 @@ public class InstallManager implements IInstallManager {
 				rollbackMode.setInstall(false);
 				
 				// Uninstall performed actions
-				for (int rollbackIndex = 0; rollbackIndex <= index; rollbackIndex ++) {
-					if (isActionSupported(actions[rollbackIndex])) {
-						actions[rollbackIndex].run(RepositoryManager.getDefault().getAgent(), 
-								product, rollbackMode, new NullProgressMonitor());
-						
-						// Set reset or relogin if it is required for action.
-						if (actions[rollbackIndex].needsRestartOrRelogin())
-							needsResetOrRelogin = true;
-					}
+				for (IInstallAction action : scheduler.getStartedActions()) {
+					action.run(RepositoryManager.getDefault().getAgent(), 
+							product, rollbackMode, new NullProgressMonitor());
+					
+					// Set reset or relogin if it is required for action.
+					if (action.needsRestartOrRelogin())
+						needsResetOrRelogin = true;
 				}
 			}
 			
@@ -702,14 +768,17 @@ public class InstallManager implements IInstallManager {
 			}
 	
 			// Install manifest path
-			IPath uninstallLocation = getInstallDescription().getRootLocation().append(IInstallConstants.UNINSTALL_DIRECTORY);
 			IPath manifestPath = uninstallLocation.append(IInstallConstants.INSTALL_MANIFEST_FILENAME);
 			
 			// Setup uninstaller
 			try {
 				if (!mode.isUpdate()) {
 					String[] uninstallFiles = getInstallDescription().getUninstallFiles();
-					if (uninstallFiles != null) {
+					// Wait for the uninstaller copied during installation
+					if (uninstallerCopy != null) {
+						joinCopyInstaller(new SubProgressMonitor(monitor, UNINSTALL_SETUP_PROGRESS));
+					}
+					else if (uninstallFiles != null) {
 						// If there is an existing uninstaller, remove it to ensure
 						// the latest version is included.
 						if (uninstallLocation.toFile().exists()) {
@@ -721,7 +790,7 @@ public class InstallManager implements IInstallManager {
 						}
 						// Copy installer
 						if (!manifestPath.toFile().exists()) {
-							copyInstaller(uninstallLocation,  new NullProgressMonitor());
+							copyInstaller(uninstallLocation, new SubProgressMonitor(monitor, UNINSTALL_SETUP_PROGRESS));
 						}
 					}
 				}
@@ -730,13 +799,19 @@ public class InstallManager implements IInstallManager {
 				Installer.log(e);
 			}
 			
-			// Save manifest
+			// Save manifest and the list of installed files
 			if (getInstallDescription().getUninstallMode() != null) {
 				getInstallManifest().save(manifestPath.toFile());
+				getProductIndex().addLocation(getInstallDescription().getRootLocation());
+				try {
+					InstallFileList.save(getInstallDescription().getRootLocation());
+				}
+				catch (IOException e) {
+					Installer.log(e);
+				}
 			}
 		}
 		
-		monitor.worked(UNINSTALL_SETUP_PROGRESS);
 		monitor.done();
 	}
 
@@ -769,7 +844,8 @@ public class InstallManager implements IInstallManager {
 			int work = PRODUCT_PROGRESS / product.getActions().length;
 			for (IInstallAction action : product.getActions()) {
 				if (isActionSupported(action)) {
-					action.run(RepositoryManager.getDefault().getAgent(), product, mode, progress.newChild(work));
+					InstallActionScheduler.runAction(action, RepositoryManager.getDefault().getAgent(), product, mode, 
+							progress.newChild(work));
 					
 					// Set reset or re-login if it is required for any action.
 					if (action.needsRestartOrRelogin())
@@ -787,6 +863,7 @@ public class InstallManager implements IInstallManager {
 		}
 		// Else remove product directory if all products have been uninstalled
 		else {
+			getProductIndex().removeLocation(getInstallManifest().getInstallLocation());
 			removeProductLocation(products[0], progress.newChild(PRODUCT_PROGRESS));
 		}
 	}
@@ -1113,6 +1190,8 @@ public class InstallManager implements IInstallManager {
 			// If the product installation directories should be removed on uninstall
 			String propRemoveDirs = product.getProperty(IInstallProduct.PROPERTY_REMOVE_DIRS);
 			boolean removeDirs = ((propRemoveDirs == null) || Boolean.parseBoolean(propRemoveDirs));
+			// If the product files should be moved to trash and removed in the background
+			boolean fastRemoveDirs = Boolean.parseBoolean(product.getProperty(IInstallProduct.PROPERTY_FAST_REMOVE_DIRS));
 
 			// Products directory
 			IPath productPath = getInstallManifest().getInstallLocation();
@@ -1123,10 +1202,23 @@ public class InstallManager implements IInstallManager {
 				// Created directories to remove
 				String[] directories = (installManifest != null) ? ((InstallManifest)installManifest).getDirectories() : new String[0];
 
-				IStatus removeStatus = Status.OK_STATUS;
-
+				// Move files in the product directory to trash (except for uninstaller) and remove the trash in the
+				// background
+				IPath trashPath = null;
+				if (fastRemoveDirs) {
+					trashPath = trashProductFiles(productPath);
+				}
+				File[] filesNotRemoved;
+				// Only the entries that could not be moved to trash are left in the product directory, so remove
+				// them without reading the list of installed files.  The trash is not waited for.
+				if (trashPath != null) {
+					filesNotRemoved = deleteProductDirectory(productPath, monitor);
+				}
 				// Remove files in the product directory (except for uninstaller)
-				removeStatus = deleteProductFiles(productPath, monitor);
+				else {
+					filesNotRemoved = deleteProductFiles(productPath, monitor);
+				}
+				IStatus removeStatus = getRemoveStatus(filesNotRemoved);
 				if (removeStatus.isOK()) {
 					// Schedule the directory to be removed after the uninstaller has exited
 					ShutdownHandler.getDefault().addDirectoryToRemove(productPath.toOSString(), false);
@@ -1142,7 +1234,7 @@ public class InstallManager implements IInstallManager {
 						}
 						
 						// Find any nested products (skipping this product directory)
-						InstallManifest[] nestedProducts = findProducts(path, productPath);
+						InstallManifest[] nestedProducts = findProducts(path, productPath, trashPath);
 						// If nested products were found, adjust them so that the directories will be removed when
 						// they are uninstalled instead and stop removing directories.
 						if (nestedProducts.length != 0) {
@@ -1203,17 +1295,59 @@ public class InstallManager implements IInstallManager {
 	}
 
 	/**
-	 * Finds installed products in a directory.
+	 * Finds installed products in a directory.  The products are looked up in the product index if the directory has
+	 * been searched before.  Otherwise, the directory is searched once and the products found are added to the index.
+	 * Products in the skipped directories are not added, these directories are being removed.
 	 * 
 	 * @param directory Directory to search
-	 * @param skipDirectory Directory to skip
+	 * @param skipDirectories Directories to skip, entries can be <code>null</code>
 	 * @return Installed product manifests or empty if no products were found.
 	 */
-	private InstallManifest[] findProducts(final IPath directory, final IPath skipDirectory) {
+	private InstallManifest[] findProducts(final IPath directory, final IPath... skipDirectories) {
 		final ArrayList<InstallManifest> products = new ArrayList<InstallManifest>();
 		final boolean[] removed = new boolean[] { true };
+		
+		if (getProductIndex().isSearched(directory)) {
+			for (IPath location : getProductIndex().getLocations(directory)) {
+				boolean skip = false;
+				for (IPath skipDirectory : skipDirectories) {
+					if ((skipDirectory != null) && skipDirectory.isPrefixOf(location)) {
+						skip = true;
+						break;
+					}
+				}
+				if (skip)
+					continue;
+				
+				try {
+					InstallManifest manifest = InstallManifest.loadManifest(location);
+					if (manifest != null) {
+						products.add(manifest);
+					}
+					// Product was removed without uninstalling
+					else {
+						getProductIndex().removeLocation(location);
+					}
+				}
+				catch (Exception e) {
+					Installer.log(e);
+				}
+			}
+			
+			// Schedule the directory to be removed if it is empty
+			ShutdownHandler.getDefault().addDirectoryToRemove(directory.toOSString(), true);
+			
+			return products.toArray(new InstallManifest[products.size()]);
+		}
+		
+		final boolean[] searched = new boolean[] { true };
 		final java.nio.file.Path startPath = directory.toFile().toPath();
-		final java.nio.file.Path skipPath = (skipDirectory != null) ? skipDirectory.toFile().toPath() : null;
+		final HashSet<java.nio.file.Path> skipPaths = new HashSet<java.nio.file.Path>();
+		for (IPath skipDirectory : skipDirectories) {
+			if (skipDirectory != null) {
+				skipPaths.add(skipDirectory.toFile().toPath());
+			}
+		}
 		
 		try {
 			Files.walkFileTree(startPath, new SimpleFileVisitor<java.nio.file.Path>() {
@@ -1224,12 +1358,7 @@ public class InstallManager implements IInstallManager {
 						throws IOException {
 					
 					// Skip product directory files
-					if (skipPath != null) {
-						return dir.equals(skipPath) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
-					}
-					else {
-						return FileVisitResult.CONTINUE;
-					}
+					return skipPaths.contains(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
 				}
 				
 				@Override
@@ -1248,6 +1377,7 @@ public class InstallManager implements IInstallManager {
 					}
 					catch (Exception e) {
 						Installer.log(e);
+						searched[0] = false;
 						result = FileVisitResult.TERMINATE;
 					}
 					return result;
@@ -1257,6 +1387,15 @@ public class InstallManager implements IInstallManager {
 		}
 		catch (Exception e) {
 			Installer.log(e);
+			searched[0] = false;
+		}
+		// Add the found products to the index
+		for (InstallManifest product : products) {
+			getProductIndex().addLocation(product.getInstallLocation());
+		}
+		// Use the index for the directory from now on if it was searched completely
+		if (searched[0]) {
+			getProductIndex().addSearchedDirectory(directory);
 		}
 		
 		// If no nested products were found, schedule the directory to be removed if it is empty
@@ -1267,24 +1406,124 @@ public class InstallManager implements IInstallManager {
 		return products.toArray(new InstallManifest[products.size()]);
 	}
 	
+	/**
+	 * Moves the files in a product directory to a trash directory next to the product directory.  Each entry in the
+	 * product directory is renamed, which is fast if the trash directory is on the same file system.  The trash
+	 * directory is then removed in the background and scheduled to be removed after the uninstaller exits in case it
+	 * has not been removed by then.
+	 * The uninstall directory is not moved.  Any entries that can't be moved are left in the product directory.
+	 * 
+	 * @param path Product directory
+	 * @return Trash directory or <code>null</code> if it could not be created
+	 */
+	private IPath trashProductFiles(IPath path) {
+		java.nio.file.Path productDirectory = path.toFile().toPath();
+		final java.nio.file.Path trashDirectory = productDirectory.resolveSibling(
+				"." + productDirectory.getFileName() + TRASH_SUFFIX + System.currentTimeMillis());
+		try {
+			Files.createDirectory(trashDirectory);
+		}
+		catch (IOException e) {
+			Installer.log(e);
+			return null;
+		}
+
+		File[] entries = productDirectory.toFile().listFiles();
+		if (entries != null) {
+			for (File entry : entries) {
+				if (entry.getName().equals(IInstallConstants.UNINSTALL_DIRECTORY))
+					continue;
+				try {
+					Files.move(entry.toPath(), trashDirectory.resolve(entry.getName()), StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (IOException e) {
+					// Entry will be removed from the product directory
+					Installer.log(e);
+				}
+			}
+		}
+
+		// Remove trash in the background.  Files are made writable as they are removed.
+		Thread trashThread = new Thread("Remove Trash") {
+			@Override
+			public void run() {
+				File[] filesNotRemoved = FileUtils.deleteFiles(trashDirectory, null, null);
+				if (filesNotRemoved.length == 0) {
+					try {
+						Files.delete(trashDirectory);
+					}
+					catch (IOException e) {
+						Installer.log(e);
+					}
+				}
+			}
+		};
+		trashThread.setDaemon(true);
+		trashThread.start();
+		// Remove anything left after the uninstaller exits.  The install monitor makes the remaining files writable 
+		// as it removes them, so the trash is not walked here.
+		ShutdownHandler.getDefault().addDirectoryToRemove(trashDirectory.toString(), false, false);
+		
+		return new Path(trashDirectory.toString());
+	}
+	
 	/**
 	 * Deletes files in a product directory.  The uninstall directory and the
 	 * product directory itself will not be removed.
+	 * If the list of installed files was recorded, only the recorded files and
+	 * directories are deleted so the product directory does not need to be
+	 * searched.  Any remaining files are removed with the product directory after
+	 * the uninstaller exits.
 	 * 
 	 * @param path Product directory
 	 * @param monitor Progress monitor
-	 * @return <code>IStatus.OK</code> on success, <code>IStatus.ERROR</code>
-	 * on failure and the message will contain files that could not be removed. 
+	 * @return Files that could not be removed
 	 */
-	private IStatus deleteProductFiles(IPath path, IProgressMonitor monitor) {
+	private File[] deleteProductFiles(IPath path, IProgressMonitor monitor) {
+		// Remove the files except for the uninstall directory (as it can't be removed on Windows while
+		// the uninstaller is running).
+		InstallFileList fileList = null;
+		try {
+			fileList = InstallFileList.load(path);
+		}
+		catch (IOException e) {
+			Installer.log(e);
+		}
+		if (fileList == null)
+			return deleteProductDirectory(path, monitor);
+
+		File[] filesNotRemoved = FileUtils.deleteFiles(path.toFile().toPath(), fileList.getFiles(), fileList.getDirectories(), monitor);
+		return (filesNotRemoved != null) ? filesNotRemoved : new File[0];
+	}
+	
+	/**
+	 * Deletes all files in a product directory by searching the directory.  The
+	 * uninstall directory and the product directory itself will not be removed.
+	 * 
+	 * @param path Product directory
+	 * @param monitor Progress monitor
+	 * @return Files that could not be removed
+	 */
+	private File[] deleteProductDirectory(IPath path, IProgressMonitor monitor) {
 		// Collect files to be removed
 		final File uninstallDirectory = new File(path.append(IInstallConstants.UNINSTALL_DIRECTORY).toOSString());
 		// Remove the files except for the uninstall directory (as it can't be removed on Windows while
 		// the uninstaller is running).
 		File[] filesNotRemoved = FileUtils.deleteFiles(path.toFile().toPath(), new java.nio.file.Path[] { uninstallDirectory.toPath() }, monitor);
 		
+		return (filesNotRemoved != null) ? filesNotRemoved : new File[0];
+	}
+	
+	/**
+	 * Returns the status for removing product files.
+	 * 
+	 * @param filesNotRemoved Files that could not be removed
+	 * @return <code>IStatus.OK</code> on success, <code>IStatus.ERROR</code>
+	 * on failure and the message will contain files that could not be removed. 
+	 */
+	private IStatus getRemoveStatus(File[] filesNotRemoved) {
 		// Some files could not be removed
-		if ((filesNotRemoved != null) && (filesNotRemoved.length > 0)) {
+		if (filesNotRemoved.length > 0) {
 			// Report files that could not be removed
 			StringBuffer message = new StringBuffer(InstallMessages.Error_FilesNotRemoved);
 			int count = 0;
@@ -1421,6 +1660,75 @@ public class InstallManager implements IInstallManager {
 		return actions.toArray(new IInstallAction[actions.size()]);
 	}
 	
+	/**
+	 * Starts copying the installer to a location in the background.
+	 * 
+	 * @param destinationLocation Destination location
+	 * @see #joinCopyInstaller(IProgressMonitor)
+	 * @see #cancelCopyInstaller()
+	 */
+	private void startCopyInstaller(final IPath destinationLocation) {
+		uninstallerCopyLocation = destinationLocation;
+		uninstallerCopyMonitor = new NullProgressMonitor();
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Copy Installer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		uninstallerCopy = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				copyInstaller(destinationLocation, uninstallerCopyMonitor);
+				return null;
+			}
+		});
+		// Executor terminates after the copy
+		executor.shutdown();
+	}
+	
+	/**
+	 * Waits for the background copy of the installer to complete.
+	 * 
+	 * @param monitor Progress monitor
+	 */
+	private void joinCopyInstaller(IProgressMonitor monitor) {
+		monitor.beginTask("", 1);
+		try {
+			if (uninstallerCopy != null) {
+				uninstallerCopy.get();
+			}
+		}
+		catch (InterruptedException | ExecutionException e) {
+			Installer.log(e);
+		}
+		finally {
+			uninstallerCopy = null;
+			monitor.done();
+		}
+	}
+	
+	/**
+	 * Cancels the background copy of the installer and removes any files that
+	 * were copied.
+	 */
+	private void cancelCopyInstaller() {
+		if (uninstallerCopy == null)
+			return;
+		
+		uninstallerCopyMonitor.setCanceled(true);
+		joinCopyInstaller(new NullProgressMonitor());
+		if (uninstallerCopyLocation.toFile().exists()) {
+			try {
+				FileUtils.deleteDirectory(uninstallerCopyLocation.toFile().toPath());
+			} catch (IOException e) {
+				Installer.log(e);
+			}
+		}
+	}
+	
 	/**
 	 * Copies the installer to a location.
 	 * 
@@ -1437,6 +1745,7 @@ public class InstallManager implements IInstallManager {
 			
 			String[] uninstallFiles = getInstallDescription().getUninstallFiles();
 			if (uninstallFiles != null) {
+				SubMonitor progress = SubMonitor.convert(monitor, uninstallFiles.length);
 				for (String uninstallFile : uninstallFiles) {
 					String destinationFileName = uninstallFile;
 					String srcFileName = uninstallFile;
@@ -1453,19 +1762,26 @@ public class InstallManager implements IInstallManager {
 						File destFile = destPath.toFile();
 						
 						if (srcFile.isDirectory()) {
-							FileUtils.copyDirectory(srcFile.toPath(), destFile.toPath(), true);
+							FileUtils.copyDirectory(srcFile.toPath(), destFile.toPath(), true, progress.newChild(1));
 						}
 						else {
 							FileUtils.copyFile(srcFile.toPath(), destFile.toPath(),true);
+							progress.worked(1);
 						}
 					}
 				}
 			}
 		}
+		catch (OperationCanceledException e) {
+			// Copy was cancelled
+		}
 		catch (Exception e) {
 			Installer.log("Failed to copy installer.  This could be because you are running from the Eclipse workbench and the exported RCP binary files are not available.");
 			Installer.log(e);
 		}
+		finally {
+			monitor.done();
+		}
 	}
 
 	@Override
@@ -79,6 +79,7 @@ public class InstallMessages extends NLS {
 	public static String SummaryInstallFolder;
 	public static String NoWritePermissions;
 	public static String Removing0;
+	public static String Copying0;
 	public static String ClickNext;
 	public static String ClickClose;
 	public static String Components;
@@ -254,6 +255,7 @@ public class InstallMessages extends NLS {
 	public static String Error_SaveManifest;
 	public static String Error_LoadManifest;
 	public static String Error_MonitorCommand;
+	public static String Error_ActionOperations0;
 	public static String Error_FailedToRemoveDirectories;
 	public static String Error_UnknownFolderShortcut;
 	public static String Error_FailedToInstall;
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import com.codesourcery.installer.Installer;
+
+/**
+ * Client for an install monitor process running in server mode.
+ * The install monitor is started once and reads requests from its standard input.  Each request contains one option
+ * per line and is terminated by an empty line.  The install monitor writes a response for each request in order.  Each
+ * output line of the response is prefixed with '+' and the response is terminated by a line containing
+ * <code>OK</code> or <code>ERROR &lt;message&gt;</code>.
+ * Before reading requests, the install monitor writes a line with <code>INSTMON-SERVER</code> and its protocol version.
+ * Install monitor binaries that do not write this line do not support server mode.
+ * Requests can be pipelined by submitting several requests before waiting for their responses.
+ */
+public class InstallMonitorClient {
+	/** Server mode option */
+	private static final String OPTION_SERVER = "-server";
+	/** Server greeting */
+	private static final String SERVER_GREETING = "INSTMON-SERVER ";
+	/** Supported server protocol version */
+	private static final int SERVER_PROTOCOL_VERSION = 1;
+	/** Prefix for response output lines */
+	private static final String RESPONSE_OUTPUT = "+";
+	/** Response success line */
+	private static final String RESPONSE_OK = "OK";
+	/** Response error prefix */
+	private static final String RESPONSE_ERROR = "ERROR ";
+
+	/** Install monitor process */
+	private Process process;
+	/** Request writer */
+	private BufferedWriter writer;
+	/** Lock for writing requests */
+	private final Object writeLock = new Object();
+	/** Response reader thread */
+	private Thread readerThread;
+	/** Requests waiting for a response */
+	private LinkedList<Request> pending = new LinkedList<Request>();
+	/** Failure of the install monitor or <code>null</code> */
+	private IOException failure;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param path Path to install monitor binary
+	 * @param logPath Path to log file or <code>null</code> to not log
+	 * @throws IOException if the install monitor could not be started or does not support server mode
+	 */
+	public InstallMonitorClient(String path, String logPath) throws IOException {
+		ArrayList<String> args = new ArrayList<String>();
+		args.add(path);
+		args.add(OPTION_SERVER);
+		if (logPath != null) {
+			args.add("-log");
+			args.add("\"" + logPath + "\"");
+		}
+
+		ProcessBuilder builder = new ProcessBuilder(args);
+		builder.redirectErrorStream(true);
+		process = builder.start();
+		writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		try {
+			readGreeting(reader);
+		}
+		catch (IOException e) {
+			process.destroy();
+			throw e;
+		}
+
+		readerThread = new Thread("Install Monitor") {
+			@Override
+			public void run() {
+				readResponses(reader);
+			}
+		};
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	/**
+	 * Submits a request without waiting for its response.
+	 * 
+	 * @param options Options for the request.  Each option and its argument (if required) must be on one line.
+	 * @return Request
+	 * @throws IOException if the install monitor is not available
+	 */
+	public Request submit(String[] options) throws IOException {
+		return submit(new String[][] { options })[0];
+	}
+
+	/**
+	 * Submits a set of requests without waiting for their responses.  The requests are written to the install monitor
+	 * together.
+	 * 
+	 * @param requestOptions Options for each request
+	 * @return Requests
+	 * @throws IOException if the install monitor is not available
+	 */
+	public Request[] submit(String[][] requestOptions) throws IOException {
+		Request[] requests = new Request[requestOptions.length];
+		for (int index = 0; index < requestOptions.length; index++) {
+			requests[index] = new Request(requestOptions[index]);
+		}
+
+		// Requests are written without holding the pending lock so that responses can be read while the install
+		// monitor input is full
+		synchronized (writeLock) {
+			synchronized (pending) {
+				if (failure != null)
+					throw failure;
+				pending.addAll(Arrays.asList(requests));
+			}
+			try {
+				for (Request request : requests) {
+					for (String option : request.getOptions()) {
+						writer.write(option);
+						writer.newLine();
+					}
+					writer.newLine();
+				}
+				writer.flush();
+			}
+			catch (IOException e) {
+				setFailure(e);
+				throw e;
+			}
+		}
+
+		return requests;
+	}
+
+	/**
+	 * Runs a request and waits for its response.
+	 * 
+	 * @param options Options for the request
+	 * @return Request
+	 * @throws IOException if the install monitor is not available
+	 * @throws InterruptedException if interrupted while waiting for the response
+	 */
+	public Request run(String[] options) throws IOException, InterruptedException {
+		Request request = submit(options);
+		request.waitFor();
+
+		return request;
+	}
+
+	/**
+	 * Stops the install monitor after all submitted requests have been handled.  If the install monitor has failed,
+	 * it is terminated.
+	 */
+	public void close() {
+		synchronized (pending) {
+			if (failure != null) {
+				process.destroy();
+			}
+		}
+		synchronized (writeLock) {
+			try {
+				// Install monitor exits when its input is closed
+				writer.close();
+			}
+			catch (IOException e) {
+				// Ignore
+			}
+		}
+		try {
+			readerThread.join();
+			process.waitFor();
+		}
+		catch (InterruptedException e) {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Reads the server greeting and checks the protocol version.  An install monitor that does not support server mode
+	 * exits without writing the greeting.
+	 * 
+	 * @param reader Response reader
+	 * @throws IOException if the install monitor does not support server mode or uses a different protocol version
+	 */
+	private void readGreeting(BufferedReader reader) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(SERVER_GREETING)) {
+				String version = line.substring(SERVER_GREETING.length()).trim();
+				if (!Integer.toString(SERVER_PROTOCOL_VERSION).equals(version))
+					throw new IOException("Install monitor server protocol version " + version + " is not supported.");
+				return;
+			}
+			else {
+				Installer.log("Install monitor: " + line);
+			}
+		}
+		
+		throw new IOException("Install monitor does not support server mode.");
+	}
+
+	/**
+	 * Reads responses from the install monitor and completes the pending requests in order.
+	 * 
+	 * @param reader Response reader
+	 */
+	private void readResponses(BufferedReader reader) {
+		try {
+			StringBuilder output = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(RESPONSE_OUTPUT)) {
+					output.append(line.substring(RESPONSE_OUTPUT.length()));
+				}
+				else if (line.equals(RESPONSE_OK) || line.startsWith(RESPONSE_ERROR)) {
+					String error = line.equals(RESPONSE_OK) ? null : line.substring(RESPONSE_ERROR.length()).trim();
+					Request request;
+					synchronized (pending) {
+						request = pending.poll();
+					}
+					if (request != null) {
+						request.complete(output.toString(), error);
+					}
+					output = new StringBuilder();
+				}
+				else {
+					Installer.log("Install monitor: " + line);
+				}
+			}
+			setFailure(new IOException("Install monitor terminated."));
+		}
+		catch (IOException e) {
+			setFailure(e);
+		}
+	}
+
+	/**
+	 * Sets the install monitor as failed and fails all pending requests.
+	 * 
+	 * @param e Failure
+	 */
+	private void setFailure(IOException e) {
+		synchronized (pending) {
+			if (failure == null) {
+				failure = e;
+			}
+			for (Request request : pending) {
+				request.fail(failure);
+			}
+			pending.clear();
+		}
+	}
+
+	/**
+	 * An install monitor request.
+	 */
+	public class Request {
+		/** Request options */
+		private String[] options;
+		/** <code>true</code> if the response has been received */
+		private boolean done = false;
+		/** Response output */
+		private String output;
+		/** Response error or <code>null</code> */
+		private String error;
+		/** Install monitor failure or <code>null</code> */
+		private IOException failure;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param options Request options
+		 */
+		private Request(String[] options) {
+			this.options = options;
+		}
+
+		/**
+		 * @return The request options
+		 */
+		public String[] getOptions() {
+			return options;
+		}
+
+		/**
+		 * Waits for the response.
+		 * 
+		 * @throws IOException if the install monitor failed before responding
+		 * @throws InterruptedException if interrupted while waiting
+		 */
+		public synchronized void waitFor() throws IOException, InterruptedException {
+			while (!done) {
+				wait();
+			}
+			if (failure != null)
+				throw failure;
+		}
+
+		/**
+		 * @return The response output
+		 */
+		public synchronized String getOutput() {
+			return output;
+		}
+
+		/**
+		 * @return The response error or <code>null</code> if the request succeeded
+		 */
+		public synchronized String getError() {
+			return error;
+		}
+
+		/**
+		 * Completes the request with a response.
+		 * 
+		 * @param output Response output
+		 * @param error Response error or <code>null</code>
+		 */
+		private synchronized void complete(String output, String error) {
+			this.output = output;
+			this.error = error;
+			done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Completes the request with a failure.
+		 * 
+		 * @param failure Failure
+		 */
+		private synchronized void fail(IOException failure) {
+			this.failure = failure;
+			done = true;
+			notifyAll();
+		}
+	}
+}
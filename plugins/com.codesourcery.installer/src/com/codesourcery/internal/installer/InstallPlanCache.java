@@ -0,0 +1,219 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.equinox.p2.engine.IProfile;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+import com.codesourcery.installer.IInstallMode;
+
+/**
+ * A bounded cache of computed install plans.  Plans are stored under a {@link PlanKey} that covers everything the
+ * plan was computed from.  When the cache is full, the least recently used plan is removed.
+ */
+public class InstallPlanCache {
+	/** Default maximum number of cached plans */
+	public static final int DEFAULT_SIZE = 32;
+
+	/** Cached plans in least recently used order */
+	private LinkedHashMap<PlanKey, IInstallPlan> plans;
+	/** Maximum number of cached plans */
+	private int maximumSize;
+	/** Number of cache hits */
+	private long hits = 0;
+	/** Number of cache misses */
+	private long misses = 0;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param maximumSize Maximum number of plans to cache
+	 */
+	public InstallPlanCache(int maximumSize) {
+		setMaximumSize(maximumSize);
+		plans = new LinkedHashMap<PlanKey, IInstallPlan>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PlanKey, IInstallPlan> eldest) {
+				return (size() > getMaximumSize());
+			}
+		};
+	}
+
+	/**
+	 * Sets the maximum number of plans to cache.
+	 * 
+	 * @param maximumSize Maximum size
+	 */
+	public synchronized void setMaximumSize(int maximumSize) {
+		this.maximumSize = (maximumSize < 1) ? 1 : maximumSize;
+	}
+
+	/**
+	 * @return The maximum number of plans to cache
+	 */
+	public synchronized int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns a cached plan.
+	 * 
+	 * @param key Plan key
+	 * @return Cached plan or <code>null</code>
+	 */
+	public synchronized IInstallPlan get(PlanKey key) {
+		IInstallPlan plan = plans.get(key);
+		if (plan != null) {
+			hits ++;
+		}
+		else {
+			misses ++;
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Returns if a plan is cached.  This does not update the cache statistics or the least recently used order.
+	 * 
+	 * @param key Plan key
+	 * @return <code>true</code> if plan is cached
+	 */
+	public synchronized boolean contains(PlanKey key) {
+		return plans.containsKey(key);
+	}
+
+	/**
+	 * Adds a plan to the cache.
+	 * 
+	 * @param key Plan key
+	 * @param plan Plan
+	 */
+	public synchronized void put(PlanKey key, IInstallPlan plan) {
+		plans.put(key, plan);
+	}
+
+	/**
+	 * Removes all plans from the cache.
+	 */
+	public synchronized void clear() {
+		plans.clear();
+	}
+
+	/**
+	 * @return The number of cached plans
+	 */
+	public synchronized int size() {
+		return plans.size();
+	}
+
+	/**
+	 * @return The number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return The number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Install plan cache: " + hits + " hits, " + misses + " misses, " + plans.size() + "/" + maximumSize + " plans";
+	}
+
+	/**
+	 * Key for a cached install plan.  The key includes the units selected, added and removed with their versions,
+	 * the state of the profile, the install location and mode, and if a cache repository is present.
+	 */
+	public static final class PlanKey {
+		/** Key parts */
+		private final List<Object> parts;
+		/** Hash code */
+		private final int hash;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param selected Units selected for installation
+		 * @param toAdd Units to add
+		 * @param toRemove Units to remove
+		 * @param profile Install profile or <code>null</code>
+		 * @param location Install location or <code>null</code>
+		 * @param mode Install mode
+		 * @param cacheRepository <code>true</code> if a cache repository is present
+		 */
+		public PlanKey(Collection<IInstallableUnit> selected, Collection<IInstallableUnit> toAdd,
+				Collection<IInstallableUnit> toRemove, IProfile profile, IPath location, IInstallMode mode,
+				boolean cacheRepository) {
+			parts = new ArrayList<Object>();
+			parts.add(getUnitIds(selected));
+			parts.add(getUnitIds(toAdd));
+			parts.add(getUnitIds(toRemove));
+			parts.add((profile != null) ? profile.getProfileId() : null);
+			parts.add((profile != null) ? profile.getTimestamp() : null);
+			parts.add((location != null) ? location.toString() : null);
+			parts.add(mode.isInstall());
+			parts.add(mode.isUpdate());
+			parts.add(mode.isUpgrade());
+			parts.add(mode.isPatch());
+			parts.add(mode.isMirror());
+			parts.add(cacheRepository);
+			hash = parts.hashCode();
+		}
+
+		/**
+		 * Returns the sorted identifiers and versions of units.
+		 * 
+		 * @param units Units
+		 * @return Unit identifiers and versions
+		 */
+		private static List<String> getUnitIds(Collection<IInstallableUnit> units) {
+			ArrayList<String> ids = new ArrayList<String>(units.size());
+			for (IInstallableUnit unit : units) {
+				ids.add(unit.getId() + ':' + unit.getVersion());
+			}
+			Collections.sort(ids);
+
+			return ids;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof PlanKey))
+				return false;
+
+			PlanKey other = (PlanKey)obj;
+			return ((hash == other.hash) && parts.equals(other.parts));
+		}
+	}
+}
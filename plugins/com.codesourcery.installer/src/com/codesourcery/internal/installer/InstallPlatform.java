@@ -22,7 +22,9 @@ import java.util.ArrayList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.swt.widgets.Shell;
 
 import com.codesourcery.installer.IInstallPlatform;
@@ -48,6 +50,14 @@ public class InstallPlatform implements IInstallPlatform {
 	private String logPath;
 	/** Response file for commands */
 	private File responseFile = null;
+	/** Install monitor server client or <code>null</code> */
+	private InstallMonitorClient client;
+	/** <code>true</code> if the install monitor server is not available */
+	private boolean clientFailed = false;
+	/** Commands in the batch of each thread */
+	private ThreadLocal<ArrayList<BatchCommand>> batch = new ThreadLocal<ArrayList<BatchCommand>>();
+	/** Set for threads that queue optional commands */
+	private ThreadLocal<Boolean> optionalCommands = new ThreadLocal<Boolean>();
 	/** Platform dependent actions */
 	private IInstallPlatformActions osActions;
 	
@@ -121,6 +131,79 @@ public class InstallPlatform implements IInstallPlatform {
 		return logPath;
 	}
 	
+	/**
+	 * Returns the client for the install monitor server.  The install monitor
+	 * is started in server mode the first time it is required and handles all
+	 * subsequent commands that wait for a result.
+	 * 
+	 * @return Client or <code>null</code> if the install monitor server is not
+	 * available
+	 */
+	private synchronized InstallMonitorClient getClient() {
+		if ((client == null) && !clientFailed) {
+			try {
+				client = new InstallMonitorClient(getPath(), getLogPath());
+			}
+			catch (IOException e) {
+				Installer.log(e);
+				clientFailed = true;
+			}
+		}
+		
+		return client;
+	}
+	
+	/**
+	 * Stops the install monitor server if it is running.
+	 * 
+	 * @param failed <code>true</code> if the server failed and should not be
+	 * started again
+	 */
+	private synchronized void closeClient(boolean failed) {
+		if (client != null) {
+			client.close();
+			client = null;
+		}
+		if (failed)
+			clientFailed = true;
+	}
+	
+	/**
+	 * Runs a command with the install monitor server.
+	 * 
+	 * @param options Options
+	 * @param result Filled with the command output
+	 * @return <code>true</code> if the command was run, <code>false</code> if
+	 * the install monitor server is not available
+	 * @throws CoreException on failure
+	 */
+	private boolean runClient(String[] options, StringBuffer result) throws CoreException {
+		InstallMonitorClient monitorClient = getClient();
+		if (monitorClient == null)
+			return false;
+		
+		try {
+			InstallMonitorClient.Request request = monitorClient.run(options);
+			// Errors are handled the same as for a monitor process, they are
+			// only reported if they are not written to the log file
+			if ((request.getError() != null) && (getLogPath() == null)) {
+				Installer.fail(request.getError());
+			}
+			result.append(request.getOutput());
+			return true;
+		}
+		catch (IOException e) {
+			// Install monitor does not support server mode
+			Installer.log("Install monitor server is not available: " + e.getMessage());
+			closeClient(true);
+			return false;
+		}
+		catch (InterruptedException e) {
+			Installer.fail(InstallMessages.Error_MonitorCommand, e);
+			return false;
+		}
+	}
+	
 	/**
 	 * Convenience method to run install monitor with a specified set of
 	 * options and wait for result.
@@ -130,9 +213,158 @@ public class InstallPlatform implements IInstallPlatform {
 	 * @throws CoreException
 	 */
 	private String run(String[] options) throws CoreException {
+		// Commands in the batch must be run before this command
+		startBatch();
+		
 		return run(options, true);
 	}
 	
+	/**
+	 * Runs an install monitor command that does not return a result.  If a
+	 * batch is active, the command is added to the batch.
+	 * 
+	 * @param options Options
+	 * @throws CoreException on failure
+	 */
+	private void runCommand(String[] options) throws CoreException {
+		ArrayList<BatchCommand> commands = batch.get();
+		if (commands != null) {
+			commands.add(new BatchCommand(options, optionalCommands.get() != null));
+			return;
+		}
+		
+		run(options);
+	}
+	
+	@Override
+	public void beginBatch() {
+		if (batch.get() == null) {
+			batch.set(new ArrayList<BatchCommand>());
+		}
+	}
+	
+	@Override
+	public void setOptionalOperations(boolean optional) {
+		if (optional) {
+			optionalCommands.set(Boolean.TRUE);
+		}
+		else {
+			optionalCommands.remove();
+		}
+	}
+	
+	@Override
+	public IStatus[] endBatch() throws CoreException {
+		ArrayList<BatchCommand> commands = batch.get();
+		try {
+			startBatch();
+		}
+		finally {
+			batch.remove();
+			optionalCommands.remove();
+		}
+		if (commands == null)
+			return new IStatus[0];
+		
+		IStatus[] status = new IStatus[commands.size()];
+		for (int index = 0; index < status.length; index++) {
+			BatchCommand command = commands.get(index);
+			// Wait for the install monitor server
+			if (command.request != null) {
+				try {
+					command.request.waitFor();
+					if (command.request.getError() != null) {
+						command.status = new Status(IStatus.ERROR, Installer.ID, command.request.getError());
+					}
+					else {
+						command.status = Status.OK_STATUS;
+					}
+				}
+				catch (IOException e) {
+					Installer.log("Install monitor server is not available: " + e.getMessage());
+					closeClient(true);
+				}
+				catch (InterruptedException e) {
+					Installer.fail(InstallMessages.Error_MonitorCommand, e);
+				}
+			}
+			// Run command if the install monitor server failed
+			if (command.status == null) {
+				command.status = runBatchCommand(command.options);
+			}
+			// Failure of an optional command is a warning
+			if (command.optional && (command.status.getSeverity() == IStatus.ERROR)) {
+				command.status = new Status(IStatus.WARNING, Installer.ID, command.status.getMessage(), 
+						command.status.getException());
+			}
+			status[index] = command.status;
+		}
+		
+		return status;
+	}
+	
+	/**
+	 * Starts any commands in the batch of the calling thread that have not
+	 * been started.  If the install monitor server is available, the commands
+	 * are submitted to it together.  Otherwise, each command is run in a
+	 * separate process.
+	 * 
+	 * @throws CoreException on failure
+	 */
+	private void startBatch() throws CoreException {
+		ArrayList<BatchCommand> threadCommands = batch.get();
+		if (threadCommands == null)
+			return;
+		
+		ArrayList<BatchCommand> commands = new ArrayList<BatchCommand>();
+		for (BatchCommand command : threadCommands) {
+			if (!command.isStarted()) {
+				commands.add(command);
+			}
+		}
+		if (commands.isEmpty())
+			return;
+
+		InstallMonitorClient monitorClient = getClient();
+		if (monitorClient != null) {
+			String[][] options = new String[commands.size()][];
+			for (int index = 0; index < options.length; index++) {
+				options[index] = commands.get(index).options;
+			}
+			try {
+				InstallMonitorClient.Request[] requests = monitorClient.submit(options);
+				for (int index = 0; index < requests.length; index++) {
+					commands.get(index).request = requests[index];
+				}
+				return;
+			}
+			catch (IOException e) {
+				Installer.log("Install monitor server is not available: " + e.getMessage());
+				closeClient(true);
+			}
+		}
+		
+		for (BatchCommand command : commands) {
+			command.status = runBatchCommand(command.options);
+		}
+	}
+	
+	/**
+	 * Runs a batch command in a separate install monitor process.
+	 * 
+	 * @param options Options
+	 * @return Command status
+	 */
+	private IStatus runBatchCommand(String[] options) {
+		try {
+			run(options, true);
+			return Status.OK_STATUS;
+		}
+		catch (CoreException e) {
+			return e.getStatus();
+		}
+	}
+	
 	/**
 	 * Runs the install monitor with a specified set of options.
 	 * 
@@ -152,6 +384,13 @@ public class InstallPlatform implements IInstallPlatform {
 			return null;
 		}
 		
+		// Use the install monitor server if available
+		if (waitForResult) {
+			StringBuffer result = new StringBuffer();
+			if (runClient(options, result))
+				return result.toString();
+		}
+		
 		try {
 			// Create response file for options to avoid command line
 			// length limitations
@@ -219,6 +458,10 @@ public class InstallPlatform implements IInstallPlatform {
 	public void dispose(String[] directories, String[] emptyDirectories) 
 			throws CoreException
 	{
+		// Complete any active batch and stop the install monitor server
+		endBatch();
+		closeClient(false);
+		
 		try {
 			boolean removeDirectories = false;
 			
@@ -283,7 +526,7 @@ public class InstallPlatform implements IInstallPlatform {
 
 	@Override
 	public void deleteDirectory(String path, boolean onlyIfEmpty) throws CoreException {
-		run(new String[] {
+		runCommand(new String[] {
 				(onlyIfEmpty ? "-removeEmptyDir" : "-removeDir") +
 				MessageFormat.format(" \"{0}\"", new Object[] { 
 						path,
@@ -307,7 +550,7 @@ public class InstallPlatform implements IInstallPlatform {
 		if (!Installer.isWindows())
 			throw new UnsupportedOperationException();
 		
-		run(new String[] {
+		runCommand(new String[] {
 				MessageFormat.format("-regSetValue \"{0},{1},{2},{3}\"", new Object[] { 
 						key,
 						name,
@@ -334,7 +577,7 @@ public class InstallPlatform implements IInstallPlatform {
 		if (!Installer.isWindows())
 			throw new UnsupportedOperationException();
 		
-		run(new String[] {
+		runCommand(new String[] {
 				MessageFormat.format("-regDeleteKey \"{0}\"", new Object[] { 
 						key,
 					})
@@ -347,7 +590,7 @@ public class InstallPlatform implements IInstallPlatform {
 		if (!Installer.isWindows())
 			throw new UnsupportedOperationException();
 
-		run(new String[] {
+		runCommand(new String[] {
 				MessageFormat.format("-regDeleteValue \"{0},{1}\"", new Object[] { 
 						key,
 						name
@@ -421,7 +664,7 @@ public class InstallPlatform implements IInstallPlatform {
 			int iconIndex)
 			throws CoreException {
 		
-		run(new String[] {
+		runCommand(new String[] {
 				MessageFormat.format("-createShortcut \"{0},{1},{2},{3},{4},{5},{6},{7},{8}\"", new Object[] { 
 						path.toOSString(),
 						linkName,
@@ -454,6 +697,38 @@ public class InstallPlatform implements IInstallPlatform {
 		});
 	}
 	
+	/**
+	 * A command in a batch.
+	 */
+	private class BatchCommand {
+		/** Command options */
+		private String[] options;
+		/** Install monitor server request or <code>null</code> */
+		private InstallMonitorClient.Request request;
+		/** Command status or <code>null</code> */
+		private IStatus status;
+		/** <code>true</code> if the command is optional */
+		private boolean optional;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param options Command options
+		 * @param optional <code>true</code> if the command is optional
+		 */
+		public BatchCommand(String[] options, boolean optional) {
+			this.options = options;
+			this.optional = optional;
+		}
+		
+		/**
+		 * @return <code>true</code> if the command has been started
+		 */
+		public boolean isStarted() {
+			return (request != null) || (status != null);
+		}
+	}
+	
 	/**
 	 * Monitor stream handler.
 	 */
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.internal.p2.metadata.IRequiredCapability;
+import org.eclipse.equinox.p2.engine.IProvisioningPlan;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+
+import com.codesourcery.installer.IInstallComponent;
+
+/**
+ * Estimates the size of an installation for a selection of components without computing a new provisioning plan.
+ * The estimator is created once from a plan that includes every component.  The units added by that plan are
+ * partitioned into the closure of units required by each component, and the sizes of the artifacts for each closure
+ * are recorded.  The size for a selection is then the size of the union of the artifacts for the selected components,
+ * so artifacts shared between components are only counted once.
+ * Installed components that are not selected are removed, so the size of the artifacts required only by their
+ * installed units is subtracted.  Installed artifacts that are not available from the repositories are not counted.
+ * The estimate does not detect conflicts between components.  The full plan must still be computed before
+ * provisioning.
+ */
+@SuppressWarnings("restriction")
+public class InstallSizeEstimator {
+	/** Artifacts required by each component */
+	private Map<IInstallComponent, Set<IArtifactKey>> componentArtifacts =
+			new HashMap<IInstallComponent, Set<IArtifactKey>>();
+	/** Artifacts required by the installed unit of each component */
+	private Map<IInstallComponent, Set<IArtifactKey>> installedArtifacts =
+			new HashMap<IInstallComponent, Set<IArtifactKey>>();
+	/** Artifacts always required by the plan */
+	private Set<IArtifactKey> planArtifacts = new HashSet<IArtifactKey>();
+	/** Disk size of artifacts */
+	private Map<IArtifactKey, Long> diskSizes = new HashMap<IArtifactKey, Long>();
+	/** Download size of artifacts */
+	private Map<IArtifactKey, Long> downloadSizes = new HashMap<IArtifactKey, Long>();
+	/** Shared artifact store or <code>null</code> */
+	private SharedArtifactStore store;
+	/** Status of the plan */
+	private IStatus status;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param plan Provisioning plan that includes all components
+	 * @param components Components included in the plan
+	 * @param repositories Artifact repositories to obtain artifact sizes from
+	 * @param store Shared artifact store or <code>null</code>.  Artifacts in the store are not downloaded.
+	 * @param installed Installed units or <code>null</code> if there is no existing installation
+	 */
+	public InstallSizeEstimator(IProvisioningPlan plan, Collection<IInstallComponent> components,
+			IArtifactRepository[] repositories, SharedArtifactStore store, IQueryable<IInstallableUnit> installed) {
+		this.store = store;
+		this.status = plan.getStatus();
+		// Units added by the plan
+		Set<IInstallableUnit> additions = plan.getAdditions().query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet();
+		// Index added units by their provided capabilities
+		Map<String, List<IInstallableUnit>> providers = getProviders(additions);
+
+		// Artifacts for the closure of each component
+		for (IInstallComponent component : components) {
+			IInstallableUnit componentUnit = component.getInstallUnit();
+			if (componentUnit == null)
+				continue;
+
+			HashSet<IArtifactKey> artifacts = new HashSet<IArtifactKey>();
+			for (IInstallableUnit unit : getClosure(componentUnit, additions, providers)) {
+				addArtifacts(unit, artifacts, repositories);
+			}
+			componentArtifacts.put(component, artifacts);
+		}
+
+		// Artifacts for the closure of each installed component
+		if (installed != null) {
+			Set<IInstallableUnit> installedUnits = installed.query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet();
+			Map<String, List<IInstallableUnit>> installedProviders = getProviders(installedUnits);
+			for (IInstallComponent component : components) {
+				IInstallableUnit installedUnit = component.getInstalledUnit();
+				if (installedUnit == null)
+					continue;
+
+				HashSet<IArtifactKey> artifacts = new HashSet<IArtifactKey>();
+				for (IInstallableUnit unit : getClosure(installedUnit, installedUnits, installedProviders)) {
+					addArtifacts(unit, artifacts, repositories);
+				}
+				installedArtifacts.put(component, artifacts);
+			}
+		}
+
+		// Artifacts for the installer plan
+		if (plan.getInstallerPlan() != null) {
+			for (IInstallableUnit unit : plan.getInstallerPlan().getAdditions().query(QueryUtil.createIUAnyQuery(), null)) {
+				addArtifacts(unit, planArtifacts, repositories);
+			}
+		}
+	}
+
+	/**
+	 * Returns if the estimator includes a component.
+	 * 
+	 * @param component Component
+	 * @return <code>true</code> if component is included
+	 */
+	public boolean hasComponent(IInstallComponent component) {
+		return componentArtifacts.containsKey(component);
+	}
+
+	/**
+	 * @return The status of the plan the estimates are computed from
+	 */
+	public IStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the estimated disk size for a selection of components.  The size of installed components that are not
+	 * selected is subtracted.
+	 * 
+	 * @param selected Components selected for installation
+	 * @return Disk size in bytes
+	 */
+	public long getDiskSize(Set<IInstallComponent> selected) {
+		Set<IArtifactKey> artifacts = getArtifacts(selected);
+
+		// Artifacts of installed components that are removed
+		HashSet<IArtifactKey> removed = new HashSet<IArtifactKey>();
+		HashSet<IArtifactKey> kept = new HashSet<IArtifactKey>();
+		for (Map.Entry<IInstallComponent, Set<IArtifactKey>> entry : installedArtifacts.entrySet()) {
+			if (selected.contains(entry.getKey())) {
+				kept.addAll(entry.getValue());
+			}
+			else {
+				removed.addAll(entry.getValue());
+			}
+		}
+		removed.removeAll(kept);
+		removed.removeAll(artifacts);
+
+		return Math.max(0, getSize(artifacts, diskSizes) - getSize(removed, diskSizes));
+	}
+
+	/**
+	 * Returns the estimated download size for a selection of components.
+	 * 
+	 * @param selected Components selected for installation
+	 * @return Download size in bytes
+	 */
+	public long getDownloadSize(Set<IInstallComponent> selected) {
+		return getSize(getArtifacts(selected), downloadSizes);
+	}
+
+	/**
+	 * Returns the artifacts required for a selection of components.
+	 * 
+	 * @param selected Components selected for installation
+	 * @return Artifacts
+	 */
+	private Set<IArtifactKey> getArtifacts(Set<IInstallComponent> selected) {
+		HashSet<IArtifactKey> artifacts = new HashSet<IArtifactKey>(planArtifacts);
+		for (IInstallComponent component : selected) {
+			Set<IArtifactKey> required = componentArtifacts.get(component);
+			if (required != null) {
+				artifacts.addAll(required);
+			}
+		}
+
+		return artifacts;
+	}
+
+	/**
+	 * Returns the total size of artifacts.
+	 * 
+	 * @param artifacts Artifacts
+	 * @param sizes Artifact sizes
+	 * @return Size in bytes
+	 */
+	private long getSize(Set<IArtifactKey> artifacts, Map<IArtifactKey, Long> sizes) {
+		long size = 0;
+		for (IArtifactKey artifact : artifacts) {
+			Long artifactSize = sizes.get(artifact);
+			if (artifactSize != null) {
+				size += artifactSize;
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Indexes units by their provided capabilities.
+	 * 
+	 * @param units Units
+	 * @return Units by provided capability
+	 */
+	private static Map<String, List<IInstallableUnit>> getProviders(Set<IInstallableUnit> units) {
+		Map<String, List<IInstallableUnit>> providers = new HashMap<String, List<IInstallableUnit>>();
+		for (IInstallableUnit unit : units) {
+			for (IProvidedCapability capability : unit.getProvidedCapabilities()) {
+				String capabilityKey = getCapabilityKey(capability.getNamespace(), capability.getName());
+				List<IInstallableUnit> providingUnits = providers.get(capabilityKey);
+				if (providingUnits == null) {
+					providingUnits = new ArrayList<IInstallableUnit>();
+					providers.put(capabilityKey, providingUnits);
+				}
+				providingUnits.add(unit);
+			}
+		}
+
+		return providers;
+	}
+
+	/**
+	 * Returns the units in a set of units that are required by a unit, including the unit.
+	 * 
+	 * @param root Unit
+	 * @param additions Units added by the plan or installed units
+	 * @param providers Units by provided capability
+	 * @return Required units
+	 */
+	private Set<IInstallableUnit> getClosure(IInstallableUnit root, Set<IInstallableUnit> additions,
+			Map<String, List<IInstallableUnit>> providers) {
+		HashSet<IInstallableUnit> closure = new HashSet<IInstallableUnit>();
+		// Unit is already installed
+		if (!additions.contains(root))
+			return closure;
+
+		LinkedList<IInstallableUnit> pending = new LinkedList<IInstallableUnit>();
+		closure.add(root);
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			IInstallableUnit unit = pending.removeFirst();
+			for (IRequirement requirement : unit.getRequirements()) {
+				// Only consider the units providing the required capability if available, otherwise all added units
+				Collection<IInstallableUnit> candidates = additions;
+				if (requirement instanceof IRequiredCapability) {
+					IRequiredCapability capability = (IRequiredCapability)requirement;
+					candidates = providers.get(getCapabilityKey(capability.getNamespace(), capability.getName()));
+					if (candidates == null)
+						continue;
+				}
+
+				for (IInstallableUnit candidate : candidates) {
+					if (!closure.contains(candidate) && candidate.satisfies(requirement)) {
+						closure.add(candidate);
+						pending.add(candidate);
+					}
+				}
+			}
+		}
+
+		return closure;
+	}
+
+	/**
+	 * Adds the artifacts for a unit and records their sizes.
+	 * 
+	 * @param unit Unit
+	 * @param artifacts Filled with artifacts
+	 * @param repositories Artifact repositories
+	 */
+	private void addArtifacts(IInstallableUnit unit, Set<IArtifactKey> artifacts, IArtifactRepository[] repositories) {
+		for (IArtifactKey artifact : unit.getArtifacts()) {
+			artifacts.add(artifact);
+			if (diskSizes.containsKey(artifact))
+				continue;
+
+			long diskSize = 0;
+			long downloadSize = 0;
+			for (IArtifactRepository repository : repositories) {
+				IArtifactDescriptor[] descriptors = repository.getArtifactDescriptors(artifact);
+				if (descriptors.length > 0) {
+					diskSize = getSizeProperty(descriptors[0], IArtifactDescriptor.ARTIFACT_SIZE);
+					if ((store == null) || !store.contains(descriptors[0])) {
+						downloadSize = getSizeProperty(descriptors[0], IArtifactDescriptor.DOWNLOAD_SIZE);
+					}
+					break;
+				}
+			}
+			diskSizes.put(artifact, diskSize);
+			downloadSizes.put(artifact, downloadSize);
+		}
+	}
+
+	/**
+	 * Returns a size property of an artifact descriptor.
+	 * 
+	 * @param descriptor Artifact descriptor
+	 * @param property Property name
+	 * @return Size in bytes or <code>0</code> if not available
+	 */
+	private static long getSizeProperty(IArtifactDescriptor descriptor, String property) {
+		String value = descriptor.getProperty(property);
+		if (value != null) {
+			try {
+				return Long.parseLong(value);
+			}
+			catch (NumberFormatException e) {
+				// Ignore
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Returns the key used to index a capability.
+	 * 
+	 * @param namespace Capability name-space
+	 * @param name Capability name
+	 * @return Key
+	 */
+	private static String getCapabilityKey(String namespace, String name) {
+		return namespace + '/' + name;
+	}
+}
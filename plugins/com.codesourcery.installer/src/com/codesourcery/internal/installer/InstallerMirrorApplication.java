@@ -40,6 +40,10 @@ class InstallerMirrorApplication extends MirrorApplication {
 	private IProgressMonitor progressMonitor;
 	/** Progress status text */
 	private String progressText;
+	/** Number of concurrent artifact transfers */
+	private int threads = 1;
+	/** Journal of mirrored artifacts or <code>null</code> */
+	private MirrorJournal journal;
 	
 	/**
 	 * Constructs an installer mirror application.
@@ -78,6 +82,39 @@ class InstallerMirrorApplication extends MirrorApplication {
 		return progressText;
 	}
 
+	/**
+	 * Sets the number of artifacts to transfer concurrently.
+	 * 
+	 * @param threads Number of concurrent transfers
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	
+	/**
+	 * @return Returns the number of artifacts to transfer concurrently.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets a journal to resume an interrupted mirror operation.
+	 * 
+	 * @param journal Journal or <code>null</code>
+	 * @see InstallerMirroring#setJournal(MirrorJournal)
+	 */
+	public void setJournal(MirrorJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * @return Returns the journal of mirrored artifacts or <code>null</code>.
+	 */
+	public MirrorJournal getJournal() {
+		return journal;
+	}
+
 	/**
 	 * @return returns the download size of the mirror.
 	 */
@@ -115,6 +152,8 @@ class InstallerMirrorApplication extends MirrorApplication {
 		mirror.setCompareExclusions(null);
 		mirror.setTransport((Transport) agent.getService(Transport.SERVICE_NAME));
 		mirror.setIncludePacked(true);
+		mirror.setThreads(getThreads());
+		mirror.setJournal(getJournal());
 
 		// If IUs have been specified then only they should be mirrored, otherwise mirror everything.
 		if (iusSpecified)
@@ -13,7 +13,11 @@
  *******************************************************************************/
 package com.codesourcery.internal.installer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.RawMirrorRequest;
@@ -59,6 +63,12 @@ public class InstallerMirroring extends Mirroring {
 	private IProgressMonitor progressMonitor;
 	/** Mentor Graphics: Progress status text */
 	private String progressText;
+	/** Mentor Graphics: Number of concurrent transfers */
+	private int threads = 1;
+	/** Mentor Graphics: Journal of mirrored artifacts or <code>null</code> */
+	private MirrorJournal journal;
+	/** Mentor Graphics: SHA-256 checksum descriptor property */
+	private static final String PROP_DOWNLOAD_SHA256 = "download.checksum.sha-256"; //$NON-NLS-1$
 
 	private IArtifactComparator getComparator() {
 		if (comparator == null)
@@ -104,6 +114,27 @@ public class InstallerMirroring extends Mirroring {
 		this.validate = validate;
 	}
 
+	/**
+	 * Mentor Graphics: Sets the number of artifacts to transfer concurrently.
+	 * 
+	 * @param threads Number of concurrent transfers
+	 */
+	public void setThreads(int threads) {
+		this.threads = (threads < 1) ? 1 : threads;
+	}
+
+	/**
+	 * Mentor Graphics: Sets a journal to resume an interrupted mirror operation.  Artifacts in the journal are not
+	 * transferred again.  Artifacts in the destination that are not in the journal are verified with the checksums of
+	 * their descriptors and transferred again if they are not intact.  Artifacts are added to the journal as they are
+	 * mirrored.
+	 * 
+	 * @param journal Journal or <code>null</code>
+	 */
+	public void setJournal(MirrorJournal journal) {
+		this.journal = journal;
+	}
+
 	/**
 	 * Mentor Graphics: Returns the download size of the mirror.
 	 * 
@@ -172,36 +203,26 @@ public class InstallerMirroring extends Mirroring {
 		progressMonitor.beginTask(progressText, count);
 		progressMonitor.setTaskName(progressText);
 		
-		while (keys.hasNext()) {
-			IArtifactKey key = keys.next();
-			IArtifactDescriptor[] descriptors = source.getArtifactDescriptors(key);
-			
-			for (int j = 0; j < descriptors.length; j++) {
-				// Mentor Graphics: Logging
-				try {
-					if (descriptors[j].getArtifactKey() != null) {
-						Installer.log("Mirroring: " + descriptors[j].getArtifactKey().getId());
-					}
-				}
-				catch (Exception e) {
-					// Ignore
-				}
-				
-				IStatus result = mirror(descriptors[j], verbose);
-				//Only log INFO and WARNING if we want verbose logging. Always log ERRORs
-				if (!result.isOK() && (verbose || result.getSeverity() == IStatus.ERROR))
-					multiStatus.add(result);
+		// Mentor Graphics: Concurrent transfers
+		if (threads > 1) {
+			if (!mirrorConcurrently(keys, failOnError, verbose, multiStatus))
+				return multiStatus;
+		}
+		else {
+			while (keys.hasNext()) {
+				IArtifactKey key = keys.next();
+				mirror(key, failOnError, verbose, multiStatus);
 				//stop mirroring as soon as we have an error
 				if (failOnError && multiStatus.getSeverity() == IStatus.ERROR)
 					return multiStatus;
+				
+				// Mentor Graphics: Cancel operation
+				if (progressMonitor.isCanceled()) {
+					break;
+				}
+				// Mentor Graphics: Update progress
+				progressMonitor.worked(1);
 			}
-			
-			// Mentor Graphics: Cancel operation
-			if (progressMonitor.isCanceled()) {
-				break;
-			}
-			// Mentor Graphics: Update progress
-			progressMonitor.worked(1);
 		}
 		// Mentor Graphics: Only validate if operation was not cancelled
 		if (!progressMonitor.isCanceled()) {
@@ -216,6 +237,169 @@ public class InstallerMirroring extends Mirroring {
 		return multiStatus;
 	}
 
+	/**
+	 * Mentor Graphics: Mirrors the descriptors of an artifact.  This was moved from the run method so that it can be
+	 * used for concurrent transfers.
+	 * 
+	 * @param key Artifact key
+	 * @param failOnError <code>true</code> to stop on the first error
+	 * @param verbose <code>true</code> for verbose status
+	 * @param multiStatus Filled with the status of the transfers
+	 */
+	private void mirror(IArtifactKey key, boolean failOnError, boolean verbose, MultiStatus multiStatus) {
+		IArtifactDescriptor[] descriptors = source.getArtifactDescriptors(key);
+		
+		// Mentor Graphics: Remove artifacts from an interrupted mirror that are not intact
+		boolean resuming = (journal != null);
+		if (resuming && !journal.contains(key)) {
+			for (int j = 0; j < descriptors.length; j++) {
+				if (destination.contains(descriptors[j]) && !isIntact(descriptors[j])) {
+					Installer.log("Mirroring: " + key.getId() + " is not intact and will be transferred again.");
+					destination.removeDescriptor(descriptors[j]);
+				}
+			}
+		}
+		
+		for (int j = 0; j < descriptors.length; j++) {
+			// Mentor Graphics: Logging
+			try {
+				if (descriptors[j].getArtifactKey() != null) {
+					Installer.log("Mirroring: " + descriptors[j].getArtifactKey().getId());
+				}
+			}
+			catch (Exception e) {
+				// Ignore
+			}
+			
+			IStatus result = mirror(descriptors[j], verbose);
+			//Only log INFO and WARNING if we want verbose logging. Always log ERRORs
+			if (!result.isOK() && (verbose || result.getSeverity() == IStatus.ERROR))
+				multiStatus.add(result);
+			//stop mirroring as soon as we have an error
+			if (failOnError && multiStatus.getSeverity() == IStatus.ERROR)
+				return;
+			// Mentor Graphics: Do not record artifacts with errors in the journal
+			if (result.getSeverity() == IStatus.ERROR)
+				resuming = false;
+		}
+		
+		// Mentor Graphics: Record the mirrored artifact
+		if (resuming) {
+			journal.add(key);
+		}
+	}
+
+	/**
+	 * Mentor Graphics: Returns if an artifact in the destination is intact.  The artifact is verified with the SHA-256 
+	 * or MD5 checksum of its descriptor if available, otherwise with its download size.
+	 * 
+	 * @param descriptor Artifact descriptor
+	 * @return <code>true</code> if the artifact is intact
+	 */
+	private boolean isIntact(IArtifactDescriptor descriptor) {
+		// Artifact files are only available for file repositories
+		if (!(destination instanceof IFileArtifactRepository))
+			return true;
+		
+		File file = ((IFileArtifactRepository)destination).getArtifactFile(descriptor);
+		if ((file == null) || !file.isFile())
+			return false;
+		
+		try {
+			String checksum = descriptor.getProperty(PROP_DOWNLOAD_SHA256);
+			if (checksum != null)
+				return checksum.equalsIgnoreCase(FileUtils.getChecksum(file, "SHA-256")); //$NON-NLS-1$
+			
+			checksum = descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_MD5);
+			if (checksum != null)
+				return checksum.equalsIgnoreCase(FileUtils.getChecksum(file, "MD5")); //$NON-NLS-1$
+			
+			String size = descriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE);
+			return ((size == null) || (Long.parseLong(size) == file.length()));
+		}
+		catch (IOException | NumberFormatException e) {
+			Installer.log(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Mentor Graphics: Mirrors artifacts using concurrent transfers.  Progress is reported and cancellation is checked
+	 * as each artifact completes.  No new transfers are started after an error (if failing on errors) or after 
+	 * cancellation, but transfers in progress are allowed to complete so that no partial artifacts are left in the 
+	 * destination.
+	 * 
+	 * @param keys Artifact keys
+	 * @param failOnError <code>true</code> to stop on the first error
+	 * @param verbose <code>true</code> for verbose status
+	 * @param multiStatus Filled with the status of the transfers
+	 * @return <code>false</code> if mirroring stopped on an error
+	 */
+	private boolean mirrorConcurrently(Iterator<IArtifactKey> keys, final boolean failOnError, final boolean verbose,
+			MultiStatus multiStatus) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CompletionService<IStatus> transfers = new ExecutorCompletionService<IStatus>(executor);
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		boolean succeeded = true;
+		
+		try {
+			int count = 0;
+			while (keys.hasNext()) {
+				final IArtifactKey key = keys.next();
+				transfers.submit(new Callable<IStatus>() {
+					@Override
+					public IStatus call() throws Exception {
+						MultiStatus keyStatus = new MultiStatus(Activator.ID, IStatus.OK, Messages.message_mirroringStatus, null);
+						if (!stop.get()) {
+							mirror(key, failOnError, verbose, keyStatus);
+						}
+						return keyStatus;
+					}
+				});
+				count ++;
+			}
+			
+			for (int completed = 0; completed < count; completed ++) {
+				IStatus result = transfers.take().get();
+				for (IStatus child : result.getChildren()) {
+					multiStatus.add(child);
+				}
+				//stop mirroring as soon as we have an error
+				if (failOnError && multiStatus.getSeverity() == IStatus.ERROR) {
+					succeeded = false;
+					break;
+				}
+				
+				// Cancel operation
+				if (progressMonitor.isCanceled()) {
+					break;
+				}
+				// Update progress
+				progressMonitor.worked(1);
+			}
+		}
+		catch (InterruptedException e) {
+			progressMonitor.setCanceled(true);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+			multiStatus.add(new Status(IStatus.ERROR, Activator.ID, cause.getLocalizedMessage(), cause));
+			succeeded = !failOnError;
+		}
+		finally {
+			// Do not start any remaining transfers and wait for transfers in progress
+			stop.set(true);
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				// Ignore
+			}
+		}
+		
+		return succeeded;
+	}
+
 	private IStatus mirror(IArtifactDescriptor sourceDescriptor, boolean verbose) {
 		if (!includePacked && IArtifactDescriptor.FORMAT_PACKED.equals(sourceDescriptor.getProperty(IArtifactDescriptor.FORMAT)))
 			return Status.OK_STATUS;
@@ -10,32 +10,103 @@
  *******************************************************************************/
 package com.codesourcery.internal.installer;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 
+import com.codesourcery.installer.Installer;
+
 /**
  * Maintains a log of install operations.
+ * Messages are added to a bounded queue without locking or waiting and written to a log file in the installer log
+ * directory by a background thread.  If the queue is full, messages are dropped and the number of dropped messages is
+ * written to the log.  Messages logged before the log directory is available are kept in a bounded buffer until they
+ * can be written.  Remaining messages are written when the installer exits.
  */
 public class Log {
 	/** Default instance */
 	private static Log instance = null;
 	/** New line constant */
 	public static String NEW_LINE = System.getProperty("line.separator");
-	/** Log buffer */
-	private StringBuffer buffer = new StringBuffer();
-	
+	/** Log file name */
+	public static final String LOG_FILENAME = "progress.log";
+	/** Maximum number of messages waiting to be written */
+	private static final int CAPACITY = 8192;
+	/** Time in milliseconds the writer waits for messages */
+	private static final long WRITER_WAIT = 100;
+	/** Maximum number of characters kept before the log file is available */
+	private static final int BUFFER_CAPACITY = 1024 * 1024;
+
+	/** Messages waiting to be written */
+	private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<String>();
+	/** Number of messages waiting to be written */
+	private final AtomicInteger pending = new AtomicInteger(0);
+	/** Number of messages dropped because the queue was full */
+	private final AtomicInteger dropped = new AtomicInteger(0);
+	/** Lock for the log file */
+	private final Object fileLock = new Object();
+	/** Log buffer for messages logged before the log file is available */
+	private StringBuilder buffer = new StringBuilder();
+	/** Number of messages dropped because the log buffer was full */
+	private int bufferDropped = 0;
+	/** Log file or <code>null</code> */
+	private File file;
+	/** Log file writer or <code>null</code> */
+	private BufferedWriter writer;
+	/** <code>true</code> if the log file could not be written */
+	private boolean fileFailed = false;
+	/** Background writer thread */
+	private Thread writerThread;
+
+	/**
+	 * Constructor
+	 */
+	private Log() {
+		writerThread = new Thread("Log") {
+			@Override
+			public void run() {
+				while (true) {
+					if (!writeMessages()) {
+						flush();
+						LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(WRITER_WAIT));
+					}
+				}
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+		
+		// The writer thread does not keep the installer running, so write any remaining messages on exit
+		Runtime.getRuntime().addShutdownHook(new Thread("Log Shutdown") {
+			@Override
+			public void run() {
+				writeMessages();
+				flush();
+			}
+		});
+	}
+
 	/**
 	 * Returns the default instance.
 	 * 
 	 * @return Instance
 	 */
-	public static Log getDefault() {
+	public static synchronized Log getDefault() {
 		if (instance == null) {
 			instance = new Log();
 		}
-		
+
 		return instance;
 	}
-	
+
 	/**
 	 * Logs a message.
 	 * 
@@ -43,11 +114,18 @@ public class Log {
 	 */
 	public void log(String message) {
 		if (message != null) {
-			buffer.append(message);
-			buffer.append(NEW_LINE);
+			// Drop the message if the queue is full
+			if (pending.incrementAndGet() > CAPACITY) {
+				pending.decrementAndGet();
+				dropped.incrementAndGet();
+				LockSupport.unpark(writerThread);
+			}
+			else {
+				messages.add(message);
+			}
 		}
 	}
-	
+
 	/**
 	 * Logs a status.
 	 * 
@@ -70,7 +148,7 @@ public class Log {
 				else {
 					severity = "";
 				}
-				
+
 				Throwable exception = status.getException();
 				if (exception != null) {
 					log(severity + message + exception.getMessage());
@@ -81,13 +159,153 @@ public class Log {
 			}
 		}
 	}
-	
+
 	/**
-	 * Returns the log contents.
+	 * Returns the log contents.  This writes all logged messages and reads the log file.
 	 * 
 	 * @return Contents
 	 */
 	public String getContents() {
-		return buffer.toString();
+		synchronized (fileLock) {
+			// Write pending messages
+			writeMessages();
+			flush();
+			if (file == null)
+				return buffer.toString();
+
+			try {
+				// Include any messages that could not be written to the file
+				return FileUtils.readFile(file) + buffer.toString();
+			}
+			catch (IOException e) {
+				Installer.log(e);
+				return "";
+			}
+		}
+	}
+
+	/**
+	 * @return The log file or <code>null</code> if the log directory is not available yet
+	 */
+	public File getFile() {
+		synchronized (fileLock) {
+			return file;
+		}
+	}
+
+	/**
+	 * Writes the messages waiting in the queue.  The messages are written while holding the file lock so that they
+	 * are written in order by the writer thread and on exit.
+	 * 
+	 * @return <code>true</code> if any messages were written
+	 */
+	private boolean writeMessages() {
+		synchronized (fileLock) {
+			boolean written = false;
+			String message;
+			while ((message = messages.poll()) != null) {
+				write(message);
+				pending.decrementAndGet();
+				written = true;
+			}
+			int droppedCount = dropped.getAndSet(0);
+			if (droppedCount > 0) {
+				write("WARNING: " + droppedCount + " log message(s) dropped.");
+				written = true;
+			}
+			
+			return written;
+		}
+	}
+
+	/**
+	 * Writes a message to the log file or to the log buffer if the file is not available.  If the log buffer is full,
+	 * the message is dropped.
+	 * 
+	 * @param message Message
+	 */
+	private void write(String message) {
+		synchronized (fileLock) {
+			openFile();
+			if (writer != null) {
+				try {
+					writer.write(message);
+					writer.write(NEW_LINE);
+					return;
+				}
+				catch (IOException e) {
+					closeFile();
+				}
+			}
+
+			if (buffer.length() + message.length() + NEW_LINE.length() > BUFFER_CAPACITY) {
+				bufferDropped ++;
+			}
+			else {
+				buffer.append(message);
+				buffer.append(NEW_LINE);
+			}
+		}
+	}
+
+	/**
+	 * Flushes the log file.
+	 */
+	private void flush() {
+		synchronized (fileLock) {
+			if (writer != null) {
+				try {
+					writer.flush();
+				}
+				catch (IOException e) {
+					closeFile();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens the log file if it is not open and the log directory is available.  Any messages in the log buffer are
+	 * written to the file.
+	 */
+	private void openFile() {
+		if ((writer != null) || fileFailed)
+			return;
+
+		try {
+			Installer installer = Installer.getDefault();
+			IPath logPath = (installer != null) ? installer.getLogPath() : null;
+			if (logPath != null) {
+				File logFile = logPath.append(LOG_FILENAME).toFile();
+				writer = new BufferedWriter(new FileWriter(logFile, true));
+				file = logFile;
+				writer.write(buffer.toString());
+				buffer = new StringBuilder();
+				if (bufferDropped > 0) {
+					writer.write("WARNING: " + bufferDropped + " log message(s) dropped before the log file was available.");
+					writer.write(NEW_LINE);
+					bufferDropped = 0;
+				}
+			}
+		}
+		catch (IOException e) {
+			closeFile();
+		}
+	}
+
+	/**
+	 * Closes the log file after a failure.  Further messages are kept in the log buffer.
+	 */
+	private void closeFile() {
+		fileFailed = true;
+		if (writer != null) {
+			try {
+				writer.close();
+			}
+			catch (IOException e) {
+				// Ignore
+			}
+			writer = null;
+		}
 	}
 }
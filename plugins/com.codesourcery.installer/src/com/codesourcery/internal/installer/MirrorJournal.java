@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashSet;
+
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+
+import com.codesourcery.installer.Installer;
+
+/**
+ * A journal of the artifacts that have been completely mirrored into a repository.  Each artifact is written to the
+ * journal as soon as it has been mirrored so that an interrupted mirror operation can be resumed without transferring
+ * the artifacts again.
+ * The journal is safe to use from multiple threads.
+ */
+public class MirrorJournal {
+	/** Journal file name */
+	public static final String FILE_NAME = ".mirror.journal";
+
+	/** Journal file */
+	private File file;
+	/** Completed artifacts */
+	private HashSet<String> completed = new HashSet<String>();
+	/** Journal writer */
+	private BufferedWriter writer;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param file Journal file.  Any artifacts recorded in an existing journal are loaded.
+	 */
+	public MirrorJournal(File file) {
+		this.file = file;
+
+		if (file.exists()) {
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (!line.isEmpty()) {
+						completed.add(line);
+					}
+				}
+			}
+			catch (IOException e) {
+				Installer.log(e);
+			}
+		}
+	}
+
+	/**
+	 * @return The journal file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns if an artifact has been completely mirrored.
+	 * 
+	 * @param key Artifact key
+	 * @return <code>true</code> if the artifact has been mirrored
+	 */
+	public synchronized boolean contains(IArtifactKey key) {
+		return completed.contains(key.toExternalForm());
+	}
+
+	/**
+	 * Records that an artifact has been completely mirrored.  The journal is flushed so that the artifact is recorded
+	 * even if the operation is interrupted.
+	 * 
+	 * @param key Artifact key
+	 */
+	public synchronized void add(IArtifactKey key) {
+		String entry = key.toExternalForm();
+		if (completed.add(entry)) {
+			try {
+				if (writer == null) {
+					writer = new BufferedWriter(new FileWriter(file, true));
+				}
+				writer.write(entry);
+				writer.newLine();
+				writer.flush();
+			}
+			catch (IOException e) {
+				Installer.log(e);
+			}
+		}
+	}
+
+	/**
+	 * Closes the journal.
+	 */
+	public synchronized void close() {
+		if (writer != null) {
+			try {
+				writer.close();
+			}
+			catch (IOException e) {
+				Installer.log(e);
+			}
+			writer = null;
+		}
+	}
+}
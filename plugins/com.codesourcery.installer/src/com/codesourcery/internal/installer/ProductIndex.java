@@ -0,0 +1,196 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import com.codesourcery.installer.Installer;
+
+/**
+ * Maintains an index of the locations of installed products that have an install manifest.
+ * The locations are kept sorted so that the products installed in a directory can be found without searching the
+ * directory.  The index only contains all products in a directory after the directory has been searched once, so the
+ * index also records the directories that have been searched.
+ * The first line of the index file contains the index version.  Each following line contains a product location
+ * prefixed with <code>P </code> or a searched directory prefixed with <code>D </code>.  An index file without a
+ * version contains only product locations and no searched directories.
+ */
+public class ProductIndex {
+	/** Path separator used in the index */
+	private static final char SEPARATOR = '/';
+	/** Index file version */
+	private static final String VERSION = "# Product index 1";
+	/** Prefix for a product location */
+	private static final String PREFIX_LOCATION = "P ";
+	/** Prefix for a searched directory */
+	private static final String PREFIX_DIRECTORY = "D ";
+
+	/** Product locations */
+	private TreeSet<String> locations = new TreeSet<String>();
+	/** Directories that have been searched for products */
+	private TreeSet<String> searchedDirectories = new TreeSet<String>();
+
+	/**
+	 * Constructor
+	 */
+	public ProductIndex() {
+	}
+
+	/**
+	 * Saves the index to a file.
+	 * 
+	 * @param location Path to index file
+	 * @throws CoreException on failure
+	 */
+	public void save(IPath location) throws CoreException {
+		try (BufferedWriter writer = Files.newBufferedWriter(location.toFile().toPath(), StandardCharsets.UTF_8)) {
+			writer.write(VERSION);
+			writer.newLine();
+			for (String directory : searchedDirectories) {
+				writer.write(PREFIX_DIRECTORY);
+				writer.write(directory);
+				writer.newLine();
+			}
+			for (String productLocation : locations) {
+				writer.write(PREFIX_LOCATION);
+				writer.write(productLocation);
+				writer.newLine();
+			}
+		}
+		catch (Exception e) {
+			Installer.fail("Error saving product index.", e);
+		}
+	}
+
+	/**
+	 * Loads the index from a file.
+	 * 
+	 * @param location Path to index file
+	 * @throws CoreException on failure
+	 */
+	public void load(IPath location) throws CoreException {
+		try (BufferedReader reader = Files.newBufferedReader(location.toFile().toPath(), StandardCharsets.UTF_8)) {
+			locations.clear();
+			searchedDirectories.clear();
+			String line = reader.readLine();
+			// Index without a version only contains product locations
+			if ((line != null) && !line.equals(VERSION)) {
+				do {
+					if (!line.isEmpty()) {
+						locations.add(line);
+					}
+				} while ((line = reader.readLine()) != null);
+				return;
+			}
+
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(PREFIX_LOCATION)) {
+					locations.add(line.substring(PREFIX_LOCATION.length()));
+				}
+				else if (line.startsWith(PREFIX_DIRECTORY)) {
+					searchedDirectories.add(line.substring(PREFIX_DIRECTORY.length()));
+				}
+			}
+		}
+		catch (Exception e) {
+			locations.clear();
+			searchedDirectories.clear();
+			Installer.fail("Error loading product index.", e);
+		}
+	}
+
+	/**
+	 * Returns if a directory has been searched for products.  The index contains all products in a directory that has
+	 * been searched or that is inside a directory that has been searched.  Otherwise, the directory might contain
+	 * products that were installed before the index was created.
+	 * 
+	 * @param directory Directory
+	 * @return <code>true</code> if the directory has been searched
+	 */
+	public boolean isSearched(IPath directory) {
+		for (IPath path = directory; ; path = path.removeLastSegments(1)) {
+			if (searchedDirectories.contains(toKey(path)))
+				return true;
+			if (path.segmentCount() == 0)
+				return false;
+		}
+	}
+
+	/**
+	 * Records that a directory has been searched and all products found in it have been added to the index.
+	 * 
+	 * @param directory Directory
+	 */
+	public void addSearchedDirectory(IPath directory) {
+		searchedDirectories.add(toKey(directory));
+	}
+
+	/**
+	 * Adds a product location to the index.
+	 * 
+	 * @param location Product install location
+	 */
+	public void addLocation(IPath location) {
+		locations.add(toKey(location));
+	}
+
+	/**
+	 * Removes a product location from the index.
+	 * 
+	 * @param location Product install location
+	 */
+	public void removeLocation(IPath location) {
+		locations.remove(toKey(location));
+	}
+
+	/**
+	 * Returns the product locations in a directory, including the directory itself.
+	 * 
+	 * @param directory Directory
+	 * @return Product locations
+	 */
+	public IPath[] getLocations(IPath directory) {
+		ArrayList<IPath> found = new ArrayList<IPath>();
+		String key = toKey(directory);
+		if (locations.contains(key)) {
+			found.add(new Path(key));
+		}
+
+		// All locations starting with the directory path and separator sort between the prefix and the prefix with
+		// the separator replaced by the next character.
+		String prefix = (key.charAt(key.length() - 1) == SEPARATOR) ? key : key + SEPARATOR;
+		String end = prefix.substring(0, prefix.length() - 1) + (char)(SEPARATOR + 1);
+		for (String productLocation : locations.subSet(prefix, end)) {
+			found.add(new Path(productLocation));
+		}
+
+		return found.toArray(new IPath[found.size()]);
+	}
+
+	/**
+	 * Returns the index key for a location.
+	 * 
+	 * @param location Location
+	 * @return Key
+	 */
+	private static String toKey(IPath location) {
+		return location.removeTrailingSeparator().toString();
+	}
+}
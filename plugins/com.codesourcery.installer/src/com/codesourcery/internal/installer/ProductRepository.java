@@ -133,18 +133,27 @@ public class ProductRepository {
 	 * @throws CoreException on failure
 	 */
 	public IInstallableUnit[] createProductIu(IProfile profile, List<IInstallableUnit> units) throws CoreException {
+		return createProductIu(profile, units, true);
+	}
+	
+	/**
+	 * Creates the product IU.
+	 * 
+	 * @param profile Profile
+	 * @param units IU's to be installed
+	 * @param add <code>true</code> to replace the product IU in the product repository, <code>false</code> to only
+	 * create the IU.  The IU should only be created when computing a plan for a selection that may not be installed.
+	 * @return Product IU in the first element and the existing installed product IU if available in the second element.
+	 * @throws CoreException on failure
+	 * @see #createProductIu(IProfile, List)
+	 */
+	public synchronized IInstallableUnit[] createProductIu(IProfile profile, List<IInstallableUnit> units, boolean add) 
+			throws CoreException {
 		IInstallableUnit[] productUnits = new IInstallableUnit[2];
 		try {
 			// Check if there is an existing product IU installed in the profile
 			IInstallableUnit existingProductIu = getProductIu(profile);
 			
-			// Remove old IU
-			if (productIu != null) {
-				ArrayList<IInstallableUnit> ius = new ArrayList<IInstallableUnit>();
-				ius.add(productIu);
-				getMetadataRepository().removeInstallableUnits(ius);
-			}
-			
 			// Product IU properties
 			HashMap<String, String> properties = new HashMap<String, String>();
 			properties.put(IInstallableUnit.PROP_NAME, getProductName());
@@ -194,21 +203,26 @@ public class ProductRepository {
 			// Add requirements for the units
 			InstallUtils.addInstallableUnitRequirements(productIuDesc, units, false);
 			
-			// Remove previous product IU
-			if (productIu != null) {
+			// Create product IU
+			IInstallableUnit newProductIu = MetadataFactory.createInstallableUnit(productIuDesc);
+			
+			if (add) {
+				// Remove previous product IU
+				if (productIu != null) {
+					ArrayList<IInstallableUnit> ius = new ArrayList<IInstallableUnit>();
+					ius.add(productIu);
+					getMetadataRepository().removeInstallableUnits(ius);
+				}
+				
+				// Add product IU
 				ArrayList<IInstallableUnit> ius = new ArrayList<IInstallableUnit>();
+				productIu = newProductIu;
 				ius.add(productIu);
-				getMetadataRepository().removeInstallableUnits(ius);
+				getMetadataRepository().addInstallableUnits(ius);
 			}
 			
-			// Create and add product IU
-			ArrayList<IInstallableUnit> ius = new ArrayList<IInstallableUnit>();
-			productIu = MetadataFactory.createInstallableUnit(productIuDesc);
-			ius.add(productIu);
-			getMetadataRepository().addInstallableUnits(ius);
-			
 			// New product IU
-			productUnits[0] = productIu;
+			productUnits[0] = newProductIu;
 			// Existing product IU
 			productUnits[1] = existingProductIu;
 		}
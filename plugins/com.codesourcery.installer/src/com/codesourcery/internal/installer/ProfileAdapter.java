@@ -11,7 +11,9 @@
 package com.codesourcery.internal.installer;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Stack;
 
 import org.eclipse.equinox.p2.engine.IProfile;
@@ -27,6 +29,10 @@ import org.eclipse.equinox.p2.query.QueryUtil;
 public class ProfileAdapter {
 	/** Profile */
 	private IProfile profile;
+	/** Latest version of installable units in the profile by identifier */
+	private Map<String, IInstallableUnit> units;
+	/** Installable group units in the profile by identifier */
+	private Map<String, IInstallableUnit> groupUnits;
 	
 	/**
 	 * Constructor
@@ -44,6 +50,21 @@ public class ProfileAdapter {
 		return profile;
 	}
 
+	/**
+	 * Returns if this adapter is for a profile.  The adapter is for the profile if it has the same identifier and
+	 * time stamp as the adapter profile.
+	 * 
+	 * @param profile Profile or <code>null</code>
+	 * @return <code>true</code> if adapter is for the profile
+	 */
+	public boolean isAdapterFor(IProfile profile) {
+		if ((profile == null) || (getProfile() == null))
+			return (profile == getProfile());
+		
+		return (profile.getProfileId().equals(getProfile().getProfileId()) &&
+				(profile.getTimestamp() == getProfile().getTimestamp()));
+	}
+	
 	/**
 	 * Returns installable units from a profile.
 	 * 
@@ -71,19 +92,50 @@ public class ProfileAdapter {
 	 * @return Latest version found or <code>null</code>
 	 */
 	public IInstallableUnit findUnit(String id) {
-		IInstallableUnit unit = null;
-		if (getProfile() != null) {
-			IQueryResult<IInstallableUnit> query = getProfile().query(QueryUtil.createIUQuery(id), null);
+		if (getProfile() == null)
+			return null;
+		
+		// Index the profile units on first use
+		if (units == null) {
+			units = new HashMap<String, IInstallableUnit>();
+			IQueryResult<IInstallableUnit> query = getProfile().query(QueryUtil.createIUAnyQuery(), null);
+			Iterator<IInstallableUnit> iter = query.iterator();
+			while (iter.hasNext()) {
+				IInstallableUnit foundUnit = iter.next();
+				IInstallableUnit unit = units.get(foundUnit.getId());
+				if ((unit == null) || (foundUnit.getVersion().compareTo(unit.getVersion()) > 0)) {
+					units.put(foundUnit.getId(), foundUnit);
+				}
+			}
+		}
+		
+		return units.get(id);
+	}
+
+	/**
+	 * Returns an installable group unit in a profile.
+	 * 
+	 * @param id Installable unit identifier
+	 * @return Group unit found or <code>null</code>
+	 */
+	public IInstallableUnit findGroupUnit(String id) {
+		if (getProfile() == null)
+			return null;
+		
+		// Index the profile group units on first use
+		if (groupUnits == null) {
+			groupUnits = new HashMap<String, IInstallableUnit>();
+			IQueryResult<IInstallableUnit> query = getProfile().query(QueryUtil.createIUGroupQuery(), null);
 			Iterator<IInstallableUnit> iter = query.iterator();
 			while (iter.hasNext()) {
 				IInstallableUnit foundUnit = iter.next();
-				if ((unit == null) || (unit.getVersion().compareTo(unit.getVersion()) > 0)) {
-					unit = foundUnit;
+				if (!groupUnits.containsKey(foundUnit.getId())) {
+					groupUnits.put(foundUnit.getId(), foundUnit);
 				}
 			}
 		}
 		
-		return unit;
+		return groupUnits.get(id);
 	}
 
 	/**
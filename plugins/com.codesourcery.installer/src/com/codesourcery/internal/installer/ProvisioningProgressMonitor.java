@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.codesourcery.internal.installer;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +30,8 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 	private static String MACRO_IU_NAME = "$IU_NAME";
 	/** Log message prefix */
 	private static final String LOG_PREFIX = "P2: ";
+	/** Maximum number of cached IU names */
+	private static final int IU_NAME_CACHE_SIZE = 1024;
 	
 	/** Delegated progress monitor */
 	private IProgressMonitor delegateProgressMonitor;
@@ -36,7 +40,16 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 	/** Progress regular expression find patterns */
 	private Pattern[] findPatterns;
 	/** Progress replace patterns */
-	private String[] replacePatterns;
+	private ReplacePattern[] replacePatterns;
+	/** Cached IU names by identifier.  An identifier that has no IU is mapped to <code>null</code>. */
+	private Map<String, String> iuNames = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return (size() > IU_NAME_CACHE_SIZE);
+		}
+	};
 	/** Start time */
 	private long startTime;
 	/** Total work amount */
@@ -72,7 +85,15 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 					findPatterns[index] = Pattern.compile(find[index]);
 				}
 			}
-			replacePatterns = replace;
+			if (replace != null) {
+				replacePatterns = new ReplacePattern[replace.length];
+				for (int index = 0; index < replacePatterns.length; index ++) {
+					replacePatterns[index] = new ReplacePattern(replace[index]);
+				}
+			}
+			else {
+				replacePatterns = null;
+			}
 		}
 		catch (Exception e) {
 			findPatterns = null;
@@ -116,27 +137,19 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 				Matcher match = findPatterns[index].matcher(name);
 				// Match found
 				if ((match != null) && match.find()) {
-					String replacePattern = replacePatterns[index];
+					String replacePattern = replacePatterns[index].getPattern();
 					// Replace pattern contains IU name macro
-					int i1 = replacePattern.indexOf(MACRO_IU_NAME + "(");
-					if (i1 > 0) {
+					int group = replacePatterns[index].getIuNameGroup();
+					if (group != -1) {
 						String iuName = null;
 						try {
-							int i2 = replacePattern.indexOf(')', i1);
-							if (i2 > 0) {
-								String groupPart = replacePattern.substring(i1 + MACRO_IU_NAME.length() + 1, i2);
-								if (groupPart.startsWith("$")) {
-									groupPart = groupPart.substring(1);
-									int group = Integer.parseInt(groupPart);
-									if (group != -1) {
-										String iuId = match.group(group);
-										if (iuId != null) {
-											iuName = RepositoryManager.getDefault().queryIuName(iuId);
-											if (iuName != null) {
-												replacePattern = replacePattern.substring(0, i1) + iuName + replacePattern.substring(i2 + 1);
-											}
-										}
-									}
+							String iuId = match.group(group);
+							if (iuId != null) {
+								iuName = getIuName(iuId);
+								if (iuName != null) {
+									replacePattern = replacePatterns[index].getPrefix() + 
+											Matcher.quoteReplacement(iuName) + 
+											replacePatterns[index].getSuffix();
 								}
 							}
 						}
@@ -164,6 +177,27 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 		}
 	}
 
+	/**
+	 * Returns the name of an IU.  Names are cached so that repositories are only queried once for each IU.
+	 * 
+	 * @param id IU identifier
+	 * @return IU name or <code>null</code> if the IU is not found
+	 */
+	private String getIuName(String id) {
+		synchronized (iuNames) {
+			if (iuNames.containsKey(id)) {
+				return iuNames.get(id);
+			}
+		}
+		
+		String name = RepositoryManager.getDefault().queryIuName(id);
+		synchronized (iuNames) {
+			iuNames.put(id, name);
+		}
+		
+		return name;
+	}
+
 	/**
 	 * Returns the delegated progress monitor.
 	 * 
@@ -259,6 +293,75 @@ public class ProvisioningProgressMonitor extends ProgressMonitorWrapper {
 			}
 		}
 	}
-	
-	
+
+	/**
+	 * A progress replace pattern.  If the pattern contains an IU name macro, i.e. <code>$IU_NAME($1)</code>, it is
+	 * parsed once into the text before and after the macro and the match group for the IU identifier.
+	 */
+	private static class ReplacePattern {
+		/** Replace pattern */
+		private String pattern;
+		/** Pattern before the IU name macro */
+		private String prefix;
+		/** Pattern after the IU name macro */
+		private String suffix;
+		/** Match group for the IU identifier or <code>-1</code> */
+		private int iuNameGroup = -1;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param pattern Replace pattern
+		 */
+		public ReplacePattern(String pattern) {
+			this.pattern = pattern;
+			
+			int i1 = pattern.indexOf(MACRO_IU_NAME + "(");
+			if (i1 != -1) {
+				int i2 = pattern.indexOf(')', i1);
+				if (i2 != -1) {
+					String groupPart = pattern.substring(i1 + MACRO_IU_NAME.length() + 1, i2);
+					if (groupPart.startsWith("$")) {
+						try {
+							iuNameGroup = Integer.parseInt(groupPart.substring(1));
+							prefix = pattern.substring(0, i1);
+							suffix = pattern.substring(i2 + 1);
+						}
+						catch (NumberFormatException e) {
+							Installer.log(e);
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return The replace pattern
+		 */
+		public String getPattern() {
+			return pattern;
+		}
+		
+		/**
+		 * @return The pattern before the IU name macro
+		 */
+		public String getPrefix() {
+			return prefix;
+		}
+		
+		/**
+		 * @return The pattern after the IU name macro
+		 */
+		public String getSuffix() {
+			return suffix;
+		}
+		
+		/**
+		 * @return The match group for the IU identifier or <code>-1</code> if the pattern does not contain an IU name
+		 * macro.
+		 */
+		public int getIuNameGroup() {
+			return iuNameGroup;
+		}
+	}
 }
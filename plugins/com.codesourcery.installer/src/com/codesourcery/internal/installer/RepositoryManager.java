@@ -11,21 +11,35 @@
 package com.codesourcery.internal.installer;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -40,7 +54,6 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.equinox.internal.p2.core.helpers.ServiceHelper;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.Util;
 import org.eclipse.equinox.internal.p2.ui.query.RequiredIUsQuery;
-import org.eclipse.equinox.internal.provisional.p2.director.IDirector;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.core.IProvisioningAgentProvider;
 import org.eclipse.equinox.p2.core.ProvisionException;
@@ -53,6 +66,7 @@ import org.eclipse.equinox.p2.engine.ISizingPhaseSet;
 import org.eclipse.equinox.p2.engine.PhaseSetFactory;
 import org.eclipse.equinox.p2.engine.ProvisioningContext;
 import org.eclipse.equinox.p2.internal.repository.tools.RepositoryDescriptor;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.IVersionedId;
 import org.eclipse.equinox.p2.metadata.MetadataFactory;
@@ -63,6 +77,7 @@ import org.eclipse.equinox.p2.planner.IPlanner;
 import org.eclipse.equinox.p2.planner.IProfileChangeRequest;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.query.IQueryable;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.IRepositoryManager;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
@@ -89,6 +104,12 @@ import com.codesourcery.installer.Installer;
  */
 @SuppressWarnings("restriction")
 public final class RepositoryManager {
+	/** Uninstaller size filename */
+	private static final String UNINSTALLER_SIZE_FILENAME = ".uninstaller";
+	/** Uninstaller identity property */
+	private static final String PROPERTY_UNINSTALLER_KEY = "key";
+	/** Uninstaller size property */
+	private static final String PROPERTY_UNINSTALLER_SIZE = "size";
 	/** Install component property indicating it is available from the cache */
 	private static final String PROPERTY_CACHE = "com.codesourcery.installer.cache";
 	
@@ -96,6 +117,8 @@ public final class RepositoryManager {
 	private static RepositoryManager instance = new RepositoryManager();
 	/** Install components */
 	private ArrayList<IInstallComponent> components = new ArrayList<IInstallComponent>();
+	/** Install components by root identifier, kept in sync with {@link #components} */
+	private HashMap<String, IInstallComponent> componentsById = new HashMap<String, IInstallComponent>();
 	/** Provisioning agent */
 	private IProvisioningAgent agent;
 	/** Meta-data repository manager */
@@ -109,9 +132,9 @@ public final class RepositoryManager {
 	/** Meta-data repositories */
 	private ArrayList<IMetadataRepository> metadataRepositories = new ArrayList<IMetadataRepository>();
 	/** Cache to store computed installation plans */
-	protected Map<String, IInstallPlan> planCache;
-	/** Installer size thread */
-	Thread uninstallerSizeThread;
+	protected InstallPlanCache planCache;
+	/** Uninstaller size computation or <code>null</code> */
+	private Future<Long> uninstallerSizeResult;
 	/** Size of uninstaller files */
 	protected long uninstallerSize = 0;
 	/** Install location */
@@ -130,13 +153,24 @@ public final class RepositoryManager {
 	private boolean cacheUpdate = false;
 	/** Temporary repository to hold product installation IU */
 	private ProductRepository productRepository;
+	/** Adapter for the install profile */
+	private ProfileAdapter profileAdapter;
+	/** Job to compute speculative install plans */
+	private SpeculativePlanner speculativePlanner = new SpeculativePlanner();
+	/** Lock to compute one install plan at a time */
+	private final Object planLock = new Object();
+	/** Install size estimator or <code>null</code> */
+	private volatile InstallSizeEstimator sizeEstimator;
+	/** <code>true</code> if the install size estimator has been initialized */
+	private volatile boolean sizeEstimatorInitialized = false;
+	/** Artifact store shared by installations or <code>null</code> */
+	private SharedArtifactStore sharedArtifactStore;
 	
 	/**
 	 * Constructor
 	 */
 	private RepositoryManager() {
-		// Synchronize size cache
-		planCache = Collections.synchronizedMap(new HashMap<String, IInstallPlan>());
+		planCache = new InstallPlanCache(InstallPlanCache.DEFAULT_SIZE);
 	}
 	
 	/**
@@ -232,7 +266,12 @@ public final class RepositoryManager {
 					monitor = new NullProgressMonitor();
 				
 				// Clear plan cache
+				stopSpeculativePlans();
 				planCache.clear();
+				// Clear profile adapter
+				profileAdapter = null;
+				// Clear install size estimator
+				clearSizeEstimator();
 				
 				// Start P2 agent
 				agent = startAgent(getAgentLocation());
@@ -246,6 +285,22 @@ public final class RepositoryManager {
 				IInstallDescription installDescription = Installer.getDefault().getInstallManager().getInstallDescription();
 				
 				if (installDescription != null) {
+					planCache.setMaximumSize(installDescription.getInstallPlanCacheSize());
+					
+					// Open the shared artifact store
+					sharedArtifactStore = null;
+					if (installDescription.getSharedArtifacts()) {
+						try {
+							SharedArtifactStore store = new SharedArtifactStore(SharedArtifactStore.getDefaultLocation());
+							store.open();
+							sharedArtifactStore = store;
+						}
+						catch (Exception e) {
+							// The installation can continue without the store
+							Installer.log(e);
+						}
+					}
+					
 					// Initialize the profile identifier
 					profileId = Installer.getDefault().getInstallManager().getInstallDescription().getProfileName();
 					// If no profile specified, use the first installed profile
@@ -379,7 +434,7 @@ public final class RepositoryManager {
 			String commandLineGroup = Installer.getDefault().getCommandLineOption(IInstallConstants.COMMAND_LINE_MIRROR);
 			
 			// Clear install components
-			components.clear();
+			clearInstallComponents();
 
 			boolean loaded = false;
 
@@ -516,6 +571,21 @@ public final class RepositoryManager {
 		return profile;
 	}
 
+	/**
+	 * Returns an adapter for a profile.  The installable units of the profile are indexed once and the adapter is 
+	 * reused until the profile changes.
+	 * 
+	 * @param profile Profile or <code>null</code>
+	 * @return Profile adapter
+	 */
+	private synchronized ProfileAdapter getProfileAdapter(IProfile profile) {
+		if ((profileAdapter == null) || !profileAdapter.isAdapterFor(profile)) {
+			profileAdapter = new ProfileAdapter(profile);
+		}
+		
+		return profileAdapter;
+	}
+
 	public IProfile getExistingInstallProfile() {
 		String profileId = getProfileId();
 		IProfile profile = getProfile(profileId);
@@ -598,9 +668,14 @@ public final class RepositoryManager {
 	/**
 	 * Shuts down the repository manager.
 	 */
-	public synchronized void shutdown() {
+	public void shutdown() {
+		// Stop computing install plans.  This is not done while holding the lock for the manager, as the speculative 
+		// plan being waited for can require it.
+		stopSpeculativePlans();
 		// Stop the P2 agent
-		stopAgent();
+		synchronized (this) {
+			stopAgent();
+		}
 	}
 
 	/**
@@ -702,7 +777,7 @@ public final class RepositoryManager {
 		// If category unit, add members
 		if (isCategory) {
 			IQuery<IInstallableUnit> categoryQuery = QueryUtil.createIUCategoryMemberQuery(unit);
-			IQueryResult<IInstallableUnit> query = getMetadataRepositoryManager().query(categoryQuery, null);
+			IQueryResult<IInstallableUnit> query = getLoadedMetadata().query(categoryQuery, null);
 			Iterator<IInstallableUnit> iter = query.iterator();
 			while (iter.hasNext()) {
 				IInstallableUnit categoryMemberUnit = iter.next();
@@ -722,13 +797,52 @@ public final class RepositoryManager {
 			// Set component parent
 			component.setParent(parentGroup);
 			// Add component
-			components.add(component);
+			addComponent(component);
 			addedComponents.add(component);
 		}
 		
 		return addedComponents;
 	}
 	
+	/**
+	 * Returns the meta-data of the repositories that have been loaded, in the order they were loaded.  Category members
+	 * are only found in these repositories, so repositories that are still being loaded concurrently do not change the
+	 * components that are added.
+	 * 
+	 * @return Loaded meta-data
+	 */
+	private IQueryable<IInstallableUnit> getLoadedMetadata() {
+		ArrayList<IMetadataRepository> repositories = new ArrayList<IMetadataRepository>();
+		if (cacheMetadataRepository != null) {
+			repositories.add(cacheMetadataRepository);
+		}
+		repositories.addAll(metadataRepositories);
+		
+		return QueryUtil.compoundQueryable(repositories);
+	}
+	
+	/**
+	 * Adds a component to the install components.
+	 * 
+	 * @param component Component to add
+	 */
+	private void addComponent(IInstallComponent component) {
+		components.add(component);
+		String id = component.getInstallUnit().getId();
+		if (!componentsById.containsKey(id)) {
+			componentsById.put(id, component);
+		}
+	}
+	
+	/**
+	 * Removes all install components.
+	 */
+	private void clearInstallComponents() {
+		components.clear();
+		componentsById.clear();
+		clearSizeEstimator();
+	}
+	
 	/**
 	 * Loads install components from a meta-data repository.
 	 * 
@@ -797,14 +911,113 @@ public final class RepositoryManager {
 
 		try {
 			SubMonitor subprogress = SubMonitor.convert(monitor, InstallMessages.LoadingRepositories, locations.length * 2);
+			long startTime = System.currentTimeMillis();
 			
+			int threads = Installer.getDefault().getInstallManager().getInstallDescription().getRepositoryLoadThreads();
+			threads = Math.min(threads, locations.length);
+			// Load the repositories concurrently
+			if (threads > 1) {
+				loaded = loadMetadataRepositoriesConcurrently(locations, threads, monitor, subprogress);
+			}
 			// Load the repositories
-			for (URI repositoryLocation : locations) {
+			else {
+				for (URI repositoryLocation : locations) {
+					try {
+						// Load the meta-data repository
+						monitor.setTaskName(NLS.bind(InstallMessages.LoadingMetadataRepository0, repositoryLocation.toString()));
+						getMetadataRepositoryManager().addRepository(repositoryLocation);
+						IMetadataRepository repository = getMetadataRepositoryManager().loadRepository(repositoryLocation, subprogress.newChild(1));
+						metadataRepositories.add(repository);
+	
+						// Load components
+						loadComponents(repository);
+						
+						// Fire components notification
+						fireComponentsChanged();
+					}
+					catch (Exception e) {
+						loaded = false;
+						Installer.log(e);
+						getMetadataRepositoryManager().removeRepository(repositoryLocation);
+						getArtifactRepositoryManager().removeRepository(repositoryLocation);
+						fireRepositoryError(repositoryLocation, e.getLocalizedMessage());
+						
+						// Don't attempt to load other repositories
+						break;
+					}
+				}
+			}
+			
+			Installer.log("Loaded " + locations.length + " meta-data repositories in " + 
+					(System.currentTimeMillis() - startTime) + " ms using " + Math.max(threads, 1) + " thread(s).");
+
+			if (loaded) {
+				setupComponentConstraints();
+				
+				// Pre-calculate the install size for complete set of
+				// of repository components.
+				IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
+				if (!mode.isUpdate() && !mode.isUpdate())
+					initializeUninstallerSize();
+	
+				fireRepositoryStatus(IInstallRepositoryListener.RepositoryStatus.loadingCompleted);
+			}
+		}
+		catch (Exception e) {
+			Installer.log(e);
+		}
+		
+		return loaded;
+	}
+	
+	/**
+	 * Loads meta-data repositories concurrently.  The repositories are fetched and parsed using a bounded number of 
+	 * threads, but their components are added in the order of the locations so that the resulting components are the 
+	 * same as when the repositories are loaded one at a time.  Canceling the progress monitor cancels the repositories
+	 * that are being loaded.
+	 * 
+	 * @param locations Locations of repositories to load
+	 * @param threads Maximum number of repositories to load at once
+	 * @param monitor Progress monitor
+	 * @param subprogress Progress for repository loading
+	 * @return <code>true</code> if all repositories were loaded
+	 */
+	private boolean loadMetadataRepositoriesConcurrently(URI[] locations, int threads, final IProgressMonitor monitor, 
+			SubMonitor subprogress) {
+		boolean loaded = true;
+		
+		// Progress monitor for the loading threads that is canceled with the progress monitor.  Progress is reported
+		// from this thread, as the progress monitor can't be used from other threads.
+		final IProgressMonitor loadMonitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// Start loading all repositories
+			ArrayList<Future<IMetadataRepository>> results = new ArrayList<Future<IMetadataRepository>>(locations.length);
+			for (final URI repositoryLocation : locations) {
+				results.add(executor.submit(new Callable<IMetadataRepository>() {
+					@Override
+					public IMetadataRepository call() throws Exception {
+						getMetadataRepositoryManager().addRepository(repositoryLocation);
+						return getMetadataRepositoryManager().loadRepository(repositoryLocation, loadMonitor);
+					}
+				}));
+			}
+			
+			// Add the components in order of the repository locations
+			for (int index = 0; index < locations.length; index ++) {
+				URI repositoryLocation = locations[index];
 				try {
-					// Load the meta-data repository
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
 					monitor.setTaskName(NLS.bind(InstallMessages.LoadingMetadataRepository0, repositoryLocation.toString()));
-					getMetadataRepositoryManager().addRepository(repositoryLocation);
-					IMetadataRepository repository = getMetadataRepositoryManager().loadRepository(repositoryLocation, subprogress.newChild(1));
+					IMetadataRepository repository = results.get(index).get();
+					subprogress.worked(1);
 					metadataRepositories.add(repository);
 
 					// Load components
@@ -815,30 +1028,33 @@ public final class RepositoryManager {
 				}
 				catch (Exception e) {
 					loaded = false;
-					Installer.log(e);
+					Throwable error = ((e instanceof ExecutionException) && (e.getCause() != null)) ? e.getCause() : e;
+					Installer.log(error);
 					getMetadataRepositoryManager().removeRepository(repositoryLocation);
 					getArtifactRepositoryManager().removeRepository(repositoryLocation);
-					fireRepositoryError(repositoryLocation, e.getLocalizedMessage());
+					fireRepositoryError(repositoryLocation, error.getLocalizedMessage());
+					
+					// Remove any remaining repositories so the result matches loading them one at a time
+					for (int remaining = index + 1; remaining < locations.length; remaining ++) {
+						Future<IMetadataRepository> result = results.get(remaining);
+						if (!result.cancel(false)) {
+							try {
+								result.get();
+							}
+							catch (Exception e2) {
+								// Ignore
+							}
+						}
+						getMetadataRepositoryManager().removeRepository(locations[remaining]);
+					}
 					
 					// Don't attempt to load other repositories
 					break;
 				}
 			}
-
-			if (loaded) {
-				setupComponentConstraints();
-				
-				// Pre-calculate the install size for complete set of
-				// of repository components.
-				IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
-				if (!mode.isUpdate() && !mode.isUpdate())
-					initializeUninstallerSize();
-	
-				fireRepositoryStatus(IInstallRepositoryListener.RepositoryStatus.loadingCompleted);
-			}
 		}
-		catch (Exception e) {
-			Installer.log(e);
+		finally {
+			executor.shutdown();
 		}
 		
 		return loaded;
@@ -890,25 +1106,21 @@ public final class RepositoryManager {
 		if (optionalRoots != null) {
 			roots.addAll(Arrays.asList(optionalRoots));
 		}
+		// Index of each root in the required/optional list.  If a root appears more than once, the last index is used.
+		final HashMap<String, Integer> rootIndexes = new HashMap<String, Integer>();
+		for (int index = 0; index < roots.size(); index ++) {
+			rootIndexes.put(roots.get(index).getId(), index);
+		}
 		
 		Comparator<IInstallComponent> componentOrderComparator = new Comparator<IInstallComponent>() {
 			@Override
 			public int compare(IInstallComponent arg0, IInstallComponent arg1) {
-				int i0 = -1;
-				int i1 = -1;
-				
 				// Find the index of both arguments in the 
 				// required/optional list
-				for (int index = 0; index < roots.size(); index ++) {
-					IVersionedId root = roots.get(index);
-					if (arg0.getInstallUnit().getId().equals(root.getId())) {
-						i0 = index;
-					}
-					if (arg1.getInstallUnit().getId().equals(root.getId())) {
-						i1 = index;
-					}
-						
-				}
+				Integer index0 = rootIndexes.get(arg0.getInstallUnit().getId());
+				Integer index1 = rootIndexes.get(arg1.getInstallUnit().getId());
+				int i0 = (index0 != null) ? index0 : -1;
+				int i1 = (index1 != null) ? index1 : -1;
 				
 				// If both arguments are not in list then sort by name
 				if ((i0 == -1) && (i1 == -1)) {
@@ -1010,13 +1222,8 @@ public final class RepositoryManager {
 		// Installation mode
 		IInstallMode installMode = Installer.getDefault().getInstallManager().getInstallMode();
 
-		// Query for existing component IU's.
-		IQueryResult<IInstallableUnit> installedResult = null;
-		IQuery<IInstallableUnit> query = QueryUtil.createIUGroupQuery();
-		IProfile profile = getExistingInstallProfile();
-		if (profile != null) {
-			installedResult = profile.query(query, null);
-		}
+		// Existing component IU's
+		ProfileAdapter installedUnits = getProfileAdapter(getExistingInstallProfile());
 		
 		// Step 1: Set optional, default, and installed state of components
 		for (IInstallComponent component : components) {
@@ -1037,15 +1244,9 @@ public final class RepositoryManager {
 			}
 			
 			// Set existing IU (if available)
-			if (installedResult != null) {
-				Iterator<IInstallableUnit> iter = installedResult.iterator();
-				while (iter.hasNext()) {
-					IInstallableUnit existingUnit = iter.next();
-					if (existingUnit.getId().equals(comp.getInstallUnit().getId())) {
-						comp.setInstalledUnit(existingUnit);
-						break;
-					}
-				}
+			IInstallableUnit existingUnit = installedUnits.findGroupUnit(comp.getInstallUnit().getId());
+			if (existingUnit != null) {
+				comp.setInstalledUnit(existingUnit);
 			}
 		}
 
@@ -1272,6 +1473,37 @@ public final class RepositoryManager {
 	 * @param toRemove Filled with installable units to remove
 	 */
 	public void getInstallUnits(List<IInstallableUnit> toAdd, List<IInstallableUnit> toRemove) {
+		getInstallUnits(getSelectedComponents(), toAdd, toRemove, true);
+	}
+	
+	/**
+	 * Returns the components that are selected for installation.  Only included components that are not groups are
+	 * returned.
+	 * 
+	 * @return Selected components
+	 */
+	public Set<IInstallComponent> getSelectedComponents() {
+		HashSet<IInstallComponent> selected = new HashSet<IInstallComponent>();
+		for (IInstallComponent component : getInstallComponents(false)) {
+			if (component.isIncluded() && !component.hasMembers() && component.getInstall()) {
+				selected.add(component);
+			}
+		}
+		
+		return selected;
+	}
+	
+	/**
+	 * Get the installation units for a selection of components.
+	 * 
+	 * @param selected Components selected for installation
+	 * @param toAdd Filled with installable units to add
+	 * @param toRemove Filled with installable units to remove
+	 * @param addProductIu <code>true</code> to replace the product IU in the product repository.  This should be
+	 * <code>false</code> if the selection is not the current selection.
+	 */
+	private void getInstallUnits(Set<IInstallComponent> selected, List<IInstallableUnit> toAdd, 
+			List<IInstallableUnit> toRemove, boolean addProductIu) {
 		toAdd.clear();
 		toRemove.clear();
 
@@ -1305,7 +1537,7 @@ public final class RepositoryManager {
 	
 				// Create product IU for IU's
 				if (createProductRoot) {
-					if (component.getInstall()) {
+					if (selected.contains(component)) {
 						unitsToAdd.add(installUnit);
 					}
 					// Remove any product IU's that were previously provisioned as
@@ -1320,7 +1552,7 @@ public final class RepositoryManager {
 				// Provision individual IU's
 				else {
 					// Component marked for install
-					if (component.getInstall()) {
+					if (selected.contains(component)) {
 						// If newer version to install
 						if ((installedUnit == null) || installUnit.getVersion().compareTo(installedUnit.getVersion()) > 0) {
 							// Add new unit
@@ -1373,7 +1605,7 @@ public final class RepositoryManager {
 		if (createProductRoot) {
 			try {
 				// Add product IU
-				IInstallableUnit[] productRoots = getProductRepository().createProductIu(getInstallProfile(), unitsToAdd);
+				IInstallableUnit[] productRoots = getProductRepository().createProductIu(getInstallProfile(), unitsToAdd, addProductIu);
 				toAdd.add(productRoots[0]);
 				// Remove existing product IU if one is installed
 				if (productRoots[1] != null) {
@@ -1401,7 +1633,7 @@ public final class RepositoryManager {
 			// Get requirements for the IU
 			IQueryResult<IInstallableUnit> requirements = getMetadataRepositoryManager().query(new RequiredIUsQuery(unit), new NullProgressMonitor());
 			Iterator<IInstallableUnit> iter = requirements.iterator();
-			ProfileAdapter profileAdapter = new ProfileAdapter(getInstallProfile());
+			ProfileAdapter profileAdapter = getProfileAdapter(getInstallProfile());
 			RepositoryManagerAdapter repositoryAdapter = new RepositoryManagerAdapter(getMetadataRepositoryManager());
 			while (iter.hasNext()) {
 				IInstallableUnit required = iter.next();
@@ -1412,7 +1644,7 @@ public final class RepositoryManager {
 					IInstallableUnit installingUnit = repositoryAdapter.findUnit(new VersionedId(existingRequired.getId(), Version.emptyVersion));
 					if ((installingUnit != null) && !requiredRoots.contains(installingUnit)) {
 						// Is the required IU a root
-						String root = getInstallProfile().getInstallableUnitProperties(existingRequired).get(IProfile.PROP_PROFILE_ROOT_IU);
+						String root = profileAdapter.getProfile().getInstallableUnitProperties(existingRequired).get(IProfile.PROP_PROFILE_ROOT_IU);
 						boolean newerVersion = (required.getVersion().compareTo(existingRequired.getVersion()) > 0);
 						
 						// If the required IU is an existing root then add it
@@ -1439,7 +1671,19 @@ public final class RepositoryManager {
 	 */
 	public ProvisioningContext getProvisioningContext() {
 		ProvisioningContext context = new ProvisioningContext(getAgent());
+		setContextRepositories(context, null);
 		
+		return context;
+	}
+	
+	/**
+	 * Sets the repositories of a provisioning context.
+	 * 
+	 * @param context Provisioning context
+	 * @param stagedArtifacts Repository with artifacts staged from the shared artifact store or <code>null</code>
+	 * @see #getProvisioningContext()
+	 */
+	private void setContextRepositories(ProvisioningContext context, IArtifactRepository stagedArtifacts) {
 		ArrayList<URI> metadataRepositories = new ArrayList<URI>();
 		ArrayList<URI> artifactRepositories = new ArrayList<URI>();
 		
@@ -1455,6 +1699,10 @@ public final class RepositoryManager {
 		if (cacheArtifactRepository != null) {
 			artifactRepositories.add(cacheArtifactRepository.getLocation());
 		}
+		// Add artifacts staged from the shared artifact store
+		if (stagedArtifacts != null) {
+			artifactRepositories.add(stagedArtifacts.getLocation());
+		}
 		
 		// If update then include installed repositories in addition to installer repositories.
 		// Include only local installed repositories for much improved performance.
@@ -1481,8 +1729,6 @@ public final class RepositoryManager {
 		if (!artifactRepositories.isEmpty()) {
 			context.setArtifactRepositories(artifactRepositories.toArray(new URI[artifactRepositories.size()]));
 		}
-		
-		return context;
 	}
 	
 	/**
@@ -1492,6 +1738,74 @@ public final class RepositoryManager {
 	 * @return Install plan or <code>null</code> if canceled.
 	 */
 	public IInstallPlan computeInstallPlan(IProgressMonitor monitor) {
+		// The requested plan takes priority over any speculative plans
+		speculativePlanner.cancel();
+		
+		IInstallPlan installPlan;
+		synchronized (planLock) {
+			installPlan = computeInstallPlan(getSelectedComponents(), false, monitor);
+		}
+		
+		// Compute plans for likely selections
+		if (installPlan != null) {
+			speculativePlanner.schedule(SpeculativePlanner.DELAY);
+		}
+		
+		return installPlan;
+	}
+	
+	/**
+	 * Computes the install plan for a speculative selection of components and adds it to the cache.  
+	 * 
+	 * @param selected Components selected for installation
+	 * @param monitor Progress monitor
+	 * @return <code>true</code> if the plan was computed, <code>false</code> if it was already available or canceled
+	 */
+	boolean computeSpeculativePlan(Set<IInstallComponent> selected, IProgressMonitor monitor) {
+		synchronized (planLock) {
+			return (computeInstallPlan(selected, true, monitor) != null);
+		}
+	}
+	
+	/**
+	 * Returns the maximum number of speculative install plans to compute after a requested plan.  The number is 
+	 * limited so that speculative plans can't evict more than half of the install plan cache.
+	 * 
+	 * @return Maximum number of plans or <code>0</code> if no speculative plans should be computed
+	 */
+	int getSpeculativePlanLimit() {
+		IInstallDescription installDescription = Installer.getDefault().getInstallManager().getInstallDescription();
+		IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
+		if ((installDescription == null) || mode.isMirror() || (getAgent() == null) || (getInstallLocation() == null))
+			return 0;
+		
+		return Math.min(installDescription.getSpeculativePlans(), planCache.getMaximumSize() / 2);
+	}
+	
+	/**
+	 * Stops computing speculative install plans.  This method waits for any speculative plan that is being computed, 
+	 * so it must not be called while holding the lock for the manager.
+	 */
+	public void stopSpeculativePlans() {
+		speculativePlanner.cancel();
+		try {
+			speculativePlanner.join();
+		} catch (InterruptedException e) {
+			// Ignore
+		}
+	}
+	
+	/**
+	 * Computes an install plan.
+	 * 
+	 * @param selected Components selected for installation
+	 * @param speculative <code>true</code> if the plan is for a selection that is not the current selection.  A 
+	 * speculative plan is only added to the cache and <code>null</code> is returned if it was already cached.
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return Install plan or <code>null</code> if canceled.
+	 */
+	private IInstallPlan computeInstallPlan(Set<IInstallComponent> selected, boolean speculative, 
+			IProgressMonitor monitor) {
 		IInstallPlan installPlan = null;
 		
 		try {
@@ -1503,17 +1817,25 @@ public final class RepositoryManager {
 			// Get the install units to add or remove
 			ArrayList<IInstallableUnit> unitsToAdd = new ArrayList<IInstallableUnit>();
 			ArrayList<IInstallableUnit> unitsToRemove = new ArrayList<IInstallableUnit>();
-			getInstallUnits(unitsToAdd, unitsToRemove);
+			getInstallUnits(selected, unitsToAdd, unitsToRemove, !speculative);
 			// Nothing to do
 			if (unitsToAdd.isEmpty() && unitsToRemove.isEmpty()) {
-				return new InstallPlan(Installer.getDefault().getInstallManager().getInstallLocation(), Status.OK_STATUS, 0, 0);
+				return speculative ? null :
+					new InstallPlan(Installer.getDefault().getInstallManager().getInstallLocation(), Status.OK_STATUS, 0, 0);
 			}
 
 			// Return cached install plan if available.
-			final String hash = getComponentsHash();
-			installPlan = planCache.get(hash);
-			if (installPlan != null) {
-				return installPlan;
+			InstallPlanCache.PlanKey key = getInstallPlanKey(selected, unitsToAdd, unitsToRemove);
+			if (speculative) {
+				if (planCache.contains(key))
+					return null;
+			}
+			else {
+				installPlan = planCache.get(key);
+				if (installPlan != null) {
+					Installer.log(planCache.toString());
+					return installPlan;
+				}
 			}
 
 			mon.worked(100);
@@ -1568,16 +1890,26 @@ public final class RepositoryManager {
 			engine.perform(plan, sizingPhaseSet, mon.newChild(100));
 			
 			long installSize = installPlanSize + sizingPhaseSet.getDiskSize() + getUninstallerSize();
-			long requiredSize = installSize + installPlanDownloadSize + sizingPhaseSet.getDownloadSize();
+			long downloadSize = installPlanDownloadSize + sizingPhaseSet.getDownloadSize();
+			// Artifacts in the shared store are not downloaded
+			if (sharedArtifactStore != null) {
+				downloadSize = Math.max(0, downloadSize - getStoredDownloadSize(plan));
+			}
+			long requiredSize = installSize + downloadSize;
 
 			installPlan = new InstallPlan(
 					Installer.getDefault().getInstallManager().getInstallLocation(), 
 					status, 
 					installSize, 
 					requiredSize);
-			planCache.put(hash, installPlan);
+			planCache.put(key, installPlan);
+			if (!speculative) {
+				Installer.log(planCache.toString());
+			}
 		} catch (Exception e) {
-			monitor.setCanceled(true);
+			if (!speculative) {
+				monitor.setCanceled(true);
+			}
 			Installer.log(e);
 		}
 		
@@ -1585,22 +1917,168 @@ public final class RepositoryManager {
 	}
 
 	/**
-	 * Returns an install component.
+	 * Initializes the install size estimator if install sizes are estimated incrementally.  The estimator is 
+	 * initialized from an install plan for all components so that the size of any selection can be estimated without 
+	 * computing a new plan.
 	 * 
-	 * @param id Install component root identifier
-	 * @return Install component or <code>null</code>
+	 * @param monitor Progress monitor or <code>null</code>
+	 * @return <code>true</code> if the estimator is available
+	 * @see #estimateInstallPlan()
 	 */
-	public IInstallComponent getInstallComponent(String id) {
-		IInstallComponent foundComponent = null;
+	public boolean initializeSizeEstimator(IProgressMonitor monitor) {
+		IInstallDescription installDescription = Installer.getDefault().getInstallManager().getInstallDescription();
+		IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
+		if ((installDescription == null) || !installDescription.getIncrementalSize() || mode.isMirror())
+			return false;
 		
-		for (IInstallComponent component : components) {
-			if (component.getInstallUnit().getId().equals(id)) {
-				foundComponent = component;
-				break;
+		synchronized (planLock) {
+			if (!sizeEstimatorInitialized) {
+				try {
+					if (monitor == null)
+						monitor = new NullProgressMonitor();
+					
+					if ((getAgent() == null) || (getInstallLocation() == null))
+						return false;
+					
+					// Plan for all components
+					HashSet<IInstallComponent> all = new HashSet<IInstallComponent>();
+					for (IInstallComponent component : getInstallComponents(false)) {
+						if (component.isIncluded() && !component.hasMembers()) {
+							all.add(component);
+						}
+					}
+					ArrayList<IInstallableUnit> unitsToAdd = new ArrayList<IInstallableUnit>();
+					ArrayList<IInstallableUnit> unitsToRemove = new ArrayList<IInstallableUnit>();
+					getInstallUnits(all, unitsToAdd, unitsToRemove, false);
+					
+					IPlanner planner = (IPlanner)agent.getService(IPlanner.SERVICE_NAME);
+					IProfileChangeRequest request = planner.createChangeRequest(getInstallProfile());
+					request.addAll(unitsToAdd);
+					request.removeAll(unitsToRemove);
+					IProvisioningPlan plan = planner.getProvisioningPlan(request, getProvisioningContext(), monitor);
+					if (monitor.isCanceled())
+						return false;
+
+					// The sizes can't be estimated if all components can't be installed together
+					if (plan.getStatus().getSeverity() == IStatus.ERROR) {
+						Installer.log("Install sizes will not be estimated: " + plan.getStatus().getMessage());
+					}
+					else {
+						ArrayList<IArtifactRepository> repositories = new ArrayList<IArtifactRepository>(artifactRepositories);
+						if (cacheArtifactRepository != null) {
+							repositories.add(0, cacheArtifactRepository);
+						}
+						sizeEstimator = new InstallSizeEstimator(plan, all, 
+								repositories.toArray(new IArtifactRepository[repositories.size()]), sharedArtifactStore, 
+								getExistingInstallProfile());
+					}
+					sizeEstimatorInitialized = true;
+				}
+				catch (Exception e) {
+					Installer.log(e);
+					sizeEstimatorInitialized = true;
+				}
+			}
+		}
+		
+		// Wait for the uninstaller size so that sizes can be estimated without waiting
+		if (sizeEstimator != null) {
+			getUninstallerSize();
+		}
+		
+		return (sizeEstimator != null);
+	}
+	
+	/**
+	 * Returns an install plan with the estimated size for the current selection of components.  The plan is not 
+	 * computed by the planner, so its status is the status of the plan for all components that the estimate is 
+	 * computed from.  This method does not wait, so it can be called from the display thread.
+	 * 
+	 * @return Install plan or <code>null</code> if the size can't be estimated or the uninstaller size is still being
+	 * computed
+	 * @see #initializeSizeEstimator(IProgressMonitor)
+	 */
+	public IInstallPlan estimateInstallPlan() {
+		InstallSizeEstimator estimator = sizeEstimator;
+		if ((estimator == null) || ((uninstallerSizeResult != null) && !uninstallerSizeResult.isDone()))
+			return null;
+		
+		Set<IInstallComponent> selected = getSelectedComponents();
+		for (IInstallComponent component : selected) {
+			if (!estimator.hasComponent(component))
+				return null;
+		}
+		
+		long installSize = estimator.getDiskSize(selected) + getUninstallerSize();
+		long requiredSize = installSize + estimator.getDownloadSize(selected);
+		
+		return new InstallPlan(
+				Installer.getDefault().getInstallManager().getInstallLocation(), 
+				estimator.getStatus(), 
+				installSize, 
+				requiredSize);
+	}
+	
+	/**
+	 * Clears the install size estimator.
+	 */
+	private void clearSizeEstimator() {
+		sizeEstimator = null;
+		sizeEstimatorInitialized = false;
+	}
+	
+	/**
+	 * Returns the download size of the artifacts for a plan that are available in the shared artifact store.
+	 * 
+	 * @param plan Provisioning plan
+	 * @return Size in bytes
+	 */
+	private long getStoredDownloadSize(IProvisioningPlan plan) {
+		return sharedArtifactStore.getStoredDownloadSize(getArtifactKeys(plan), getSharedArtifactSources());
+	}
+	
+	/**
+	 * Returns the keys of the artifacts that are added by a plan.
+	 * 
+	 * @param plan Provisioning plan
+	 * @return Artifact keys, including the artifacts of the installer plan
+	 */
+	private Set<IArtifactKey> getArtifactKeys(IProvisioningPlan plan) {
+		HashSet<IArtifactKey> keys = new HashSet<IArtifactKey>();
+		for (IInstallableUnit unit : plan.getAdditions().query(QueryUtil.createIUAnyQuery(), null)) {
+			keys.addAll(unit.getArtifacts());
+		}
+		if (plan.getInstallerPlan() != null) {
+			for (IInstallableUnit unit : plan.getInstallerPlan().getAdditions().query(QueryUtil.createIUAnyQuery(), null)) {
+				keys.addAll(unit.getArtifacts());
 			}
 		}
 		
-		return foundComponent;
+		return keys;
+	}
+	
+	/**
+	 * Returns the repositories with the artifact descriptors that are matched against the shared artifact store.
+	 * 
+	 * @return Cache repository (if available) followed by the install repositories
+	 */
+	private List<IArtifactRepository> getSharedArtifactSources() {
+		ArrayList<IArtifactRepository> repositories = new ArrayList<IArtifactRepository>(artifactRepositories);
+		if (cacheArtifactRepository != null) {
+			repositories.add(0, cacheArtifactRepository);
+		}
+		
+		return repositories;
+	}
+	
+	/**
+	 * Returns an install component.
+	 * 
+	 * @param id Install component root identifier
+	 * @return Install component or <code>null</code>
+	 */
+	public IInstallComponent getInstallComponent(String id) {
+		return componentsById.get(id);
 	}
 	
 	/**
@@ -1677,12 +2155,12 @@ public final class RepositoryManager {
 	 * @return Uninstaller size in bytes
 	 */
 	private long getUninstallerSize() {
-		// Wait for uninstaller thread if running
-		if (uninstallerSizeThread != null) {
+		// Wait for uninstaller size computation if running
+		if (uninstallerSizeResult != null) {
 			try {
-				uninstallerSizeThread.join();
-			} catch (InterruptedException e) {
-				// Ignore
+				uninstallerSize = uninstallerSizeResult.get();
+			} catch (InterruptedException | ExecutionException e) {
+				Installer.log(e);
 			}
 		}
 		
@@ -1690,51 +2168,33 @@ public final class RepositoryManager {
 	}
 	
 	/**
-	 * Computes the size of the uninstaller.
+	 * Computes the size of the uninstaller in the background.
+	 * The size is saved in the installer data folder with the identity of the installer, so it is only computed
+	 * again if a different installer is run.
 	 */
 	protected void initializeUninstallerSize() {
 		IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
 		
 		// If installing and not an update
 		if (mode.isInstall() && !mode.isUpdate()) {
-			if (uninstallerSizeThread == null) {
-				uninstallerSizeThread = new Thread() {
+			if (uninstallerSizeResult == null) {
+				final String[] uninstallFiles = Installer.getDefault().getInstallManager().getInstallDescription().getUninstallFiles();
+				ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
 					@Override
-					public void run() {
-						String [] uninstallFiles = Installer.getDefault().getInstallManager().getInstallDescription().getUninstallFiles();
-						long totalSize = 0;
-						if (uninstallFiles != null) {
-							for (String uninstallFilePath : uninstallFiles) {
-								class SizeCalculationVisitor extends SimpleFileVisitor<Path> {
-									private long size = 0;	
-									@Override
-									public FileVisitResult visitFile(Path file,
-											BasicFileAttributes attrs) throws IOException {
-										size += file.toFile().length();
-										return FileVisitResult.CONTINUE;
-									}
-									
-									public long getSize() {
-										return size;
-									}
-								}
-								
-								try {
-									File srcFile = Installer.getDefault().getInstallFile(uninstallFilePath);
-									if (srcFile != null && srcFile.exists()) {
-										SizeCalculationVisitor visitor = new SizeCalculationVisitor();
-										Files.walkFileTree(srcFile.toPath(), visitor);
-										totalSize += visitor.getSize();
-									}
-								} catch (Exception e) {
-									Installer.log(e);
-								}
-							}
-						}
-						uninstallerSize = totalSize;
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Uninstaller Size");
+						thread.setDaemon(true);
+						return thread;
 					}
-				};
-				uninstallerSizeThread.start();
+				});
+				uninstallerSizeResult = executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						return computeUninstallerSize(uninstallFiles);
+					}
+				});
+				// Executor terminates after the computation
+				executor.shutdown();
 			}
 		}
 		// Else not uninstaller
@@ -1744,21 +2204,147 @@ public final class RepositoryManager {
 	}
 	
 	/**
-	 * Generate a string hash from the install components.
-	 * @return hash of root list
-	 */
-	private String getComponentsHash() {
-		StringBuilder hash = new StringBuilder();
-		for (IInstallComponent component : getInstallComponents(false)) {
-			if (component.getInstall()) {
-				IInstallableUnit unit = component.getInstallUnit();
-				if (unit != null) {
-					hash.append(unit.getId());
+	 * Computes the size of uninstaller files.  The size saved for the same installer is used.  Only the size for the
+	 * last installer run is saved.
+	 * 
+	 * @param uninstallFiles Uninstaller files or <code>null</code>
+	 * @return Size in bytes
+	 */
+	private long computeUninstallerSize(String[] uninstallFiles) {
+		long totalSize = 0;
+		if (uninstallFiles == null)
+			return totalSize;
+
+		// Uninstaller files that are present
+		ArrayList<File> srcFiles = new ArrayList<File>();
+		for (String uninstallFilePath : uninstallFiles) {
+			// Uninstall file can specify a destination name
+			int index = uninstallFilePath.indexOf(':');
+			String srcFileName = (index != -1) ? uninstallFilePath.substring(0, index) : uninstallFilePath;
+			try {
+				File srcFile = Installer.getDefault().getInstallFile(srcFileName);
+				if (srcFile != null && srcFile.exists()) {
+					srcFiles.add(srcFile);
+				}
+			} catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+
+		// Load saved size
+		String key = getUninstallerKey(uninstallFiles, srcFiles);
+		File sizeFile = Installer.getDefault().getDataFolder().append(UNINSTALLER_SIZE_FILENAME).toFile();
+		if ((key != null) && sizeFile.exists()) {
+			Properties saved = new Properties();
+			try (InputStream in = new FileInputStream(sizeFile)) {
+				saved.load(in);
+				if (key.equals(saved.getProperty(PROPERTY_UNINSTALLER_KEY))) {
+					return Long.parseLong(saved.getProperty(PROPERTY_UNINSTALLER_SIZE));
 				}
 			}
+			catch (Exception e) {
+				// Compute size
+			}
 		}
 
-		return hash.toString();
+		for (File srcFile : srcFiles) {
+			try {
+				final long[] fileSize = new long[] { 0 };
+				Files.walkFileTree(srcFile.toPath(), new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						fileSize[0] += attrs.size();
+						return FileVisitResult.CONTINUE;
+					}
+				});
+				totalSize += fileSize[0];
+			} catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+		
+		// Save size, replacing the size saved for any other installer
+		if (key != null) {
+			Properties sizes = new Properties();
+			sizes.setProperty(PROPERTY_UNINSTALLER_KEY, key);
+			sizes.setProperty(PROPERTY_UNINSTALLER_SIZE, Long.toString(totalSize));
+			try (OutputStream out = new FileOutputStream(sizeFile)) {
+				sizes.store(out, null);
+			}
+			catch (Exception e) {
+				Installer.log(e);
+			}
+		}
+		
+		return totalSize;
+	}
+	
+	/**
+	 * Returns the identity of the installer uninstaller files.  The identity contains the product identifier and version,
+	 * the installer version and a checksum of the uninstall file list.  The checksum includes the size and modification
+	 * time of each uninstaller file, but not its location, so the same installer run from another location has the same
+	 * identity.
+	 * 
+	 * @param uninstallFiles Uninstaller files
+	 * @param srcFiles Uninstaller files that are present
+	 * @return Identity or <code>null</code> if it could not be computed
+	 */
+	private String getUninstallerKey(String[] uninstallFiles, List<File> srcFiles) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String uninstallFile : uninstallFiles) {
+				digest.update(uninstallFile.getBytes("UTF-8"));
+				digest.update((byte)0);
+			}
+			for (File srcFile : srcFiles) {
+				digest.update(Long.toString(srcFile.length()).getBytes("UTF-8"));
+				digest.update((byte)0);
+				digest.update(Long.toString(Files.getLastModifiedTime(srcFile.toPath()).toMillis()).getBytes("UTF-8"));
+				digest.update((byte)0);
+			}
+			StringBuilder checksum = new StringBuilder();
+			for (byte b : digest.digest()) {
+				checksum.append(String.format("%02x", b & 0xff));
+			}
+
+			IInstallDescription description = Installer.getDefault().getInstallManager().getInstallDescription();
+			return description.getProductId() + "," + description.getProductVersionString() + "," + 
+					Installer.getDefault().getContext().getBundle().getVersion() + "," + checksum;
+		}
+		catch (Exception e) {
+			Installer.log(e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the key used to cache an install plan.
+	 * 
+	 * @param selected Components selected for installation
+	 * @param toAdd Units to add
+	 * @param toRemove Units to remove
+	 * @return Install plan key
+	 */
+	private InstallPlanCache.PlanKey getInstallPlanKey(Set<IInstallComponent> selected, List<IInstallableUnit> toAdd, 
+			List<IInstallableUnit> toRemove) {
+		// Units selected for install.  These are included as the product root IU has the same identifier and version
+		// for every selection.
+		ArrayList<IInstallableUnit> selectedUnits = new ArrayList<IInstallableUnit>();
+		for (IInstallComponent component : selected) {
+			IInstallableUnit unit = component.getInstallUnit();
+			if (unit != null) {
+				selectedUnits.add(unit);
+			}
+		}
+		
+		return new InstallPlanCache.PlanKey(
+				selectedUnits, 
+				toAdd, 
+				toRemove, 
+				getExistingInstallProfile(), 
+				getInstallLocation(), 
+				Installer.getDefault().getInstallManager().getInstallMode(), 
+				(cacheMetadataRepository != null));
 	}
 	
 	/**
@@ -1786,10 +2372,20 @@ public final class RepositoryManager {
 			totalWork += WORK_SEGMENT;
 		}
 		
+		// No more install plans are needed
+		stopSpeculativePlans();
+		
+		// Coalesce progress updates if enabled
+		int progressRate = Installer.getDefault().getInstallManager().getInstallDescription().getProgressRate();
+		if ((progressMonitor != null) && (progressRate > 0)) {
+			progressMonitor = new ThrottledProgressMonitor(progressMonitor, progressRate);
+		}
 		ProvisioningProgressMonitor monitor = new ProvisioningProgressMonitor(progressMonitor);
 		
 		monitor.beginTask("", totalWork);
 		
+		// Artifacts staged from the shared artifact store
+		IArtifactRepository stagedArtifacts = null;
 		try {
 			// Update cache repository
 			if (getUpdateCache()) {
@@ -1877,13 +2473,56 @@ public final class RepositoryManager {
 					monitor.setFilter(desc.getProgressFindPatterns(), desc.getProgressReplacePatterns());
 				}
 		
-				// Provision operation
-				IDirector director = (IDirector)agent.getService(IDirector.SERVICE_NAME);
-				IStatus status = director.provision(request, context, provisioningMonitor);
+				// Provision operation.  The plan is computed and performed separately (as the director would) so that
+				// only the artifacts of the plan are staged from the shared store.
+				SubMonitor provisionProgress = SubMonitor.convert(provisioningMonitor, 100);
+				IEngine engine = (IEngine)agent.getService(IEngine.SERVICE_NAME);
+				long provisionStart = System.currentTimeMillis();
+				IProvisioningPlan plan = planner.getProvisioningPlan(request, context, provisionProgress.newChild(10));
+				IStatus status = plan.getStatus();
+				if (status.isOK()) {
+					// Use artifacts from the shared store that have the same content as the install repositories
+					if (sharedArtifactStore != null) {
+						try {
+							stagedArtifacts = sharedArtifactStore.stage(getArtifactRepositoryManager(), 
+									getArtifactKeys(plan), getSharedArtifactSources());
+							// The plan is performed with its context
+							if (stagedArtifacts != null) {
+								setContextRepositories(context, stagedArtifacts);
+							}
+						}
+						catch (Exception e) {
+							// The artifacts will be downloaded
+							Installer.log(e);
+						}
+					}
+					
+					if (plan.getInstallerPlan() != null) {
+						status = engine.perform(plan.getInstallerPlan(), PhaseSetFactory.createDefaultPhaseSet(), 
+								provisionProgress.newChild(10));
+					}
+					if (status.isOK()) {
+						status = engine.perform(plan, PhaseSetFactory.createDefaultPhaseSet(), 
+								provisionProgress.newChild(80));
+					}
+				}
+				Installer.log("Provisioned in " + (System.currentTimeMillis() - provisionStart) + " ms" + 
+						((progressRate > 0) ? " (progress limited to " + progressRate + " updates per second)." : "."));
 				if ((status != null) && (status.getSeverity() == IStatus.ERROR))
 					throw new CoreException(status);
 	
 				if ((toAdd != null) && !toAdd.isEmpty()) {
+					// Keep downloaded artifacts in the shared store for other installations
+					if (sharedArtifactStore != null) {
+						try {
+							sharedArtifactStore.add(Util.getDownloadCacheRepo(agent), null);
+						}
+						catch (Exception e) {
+							// Non-critical to the installation
+							Installer.log(e);
+						}
+					}
+					
 					// Clear download cache
 					if (clearDownloadCache) {
 						try {
@@ -1900,6 +2539,9 @@ public final class RepositoryManager {
 			}
 		}
 		finally {
+			if (stagedArtifacts != null) {
+				sharedArtifactStore.unstage(getArtifactRepositoryManager(), stagedArtifacts);
+			}
 			monitor.done();
 		}
 	}
@@ -1949,6 +2591,7 @@ public final class RepositoryManager {
 				Installer.getDefault().getInstallManager().getInstallDescription().getText(IInstallDescription.TEXT_PROGRESS_MIRRORING,
 						InstallMessages.Progress_Saving);
 		InstallerMirrorApplication mirrorApp = new InstallerMirrorApplication(agent, monitor, progressText);
+		mirrorApp.setThreads(Installer.getDefault().getInstallManager().getInstallDescription().getMirrorThreads());
 		
 		// No base-line comparison
 		mirrorApp.setCompare(false);
@@ -1975,8 +2618,9 @@ public final class RepositoryManager {
 
 		// Set mirror destination
 		RepositoryDescriptor dest = new RepositoryDescriptor();
-		// Note, appending does not seem to work correctly
-		dest.setAppend(false);
+		// Note, appending does not seem to work correctly for category IU's.  These are re-created in the destination
+		// after mirroring.  Appending is required to resume an interrupted mirror.
+		dest.setAppend(Installer.getDefault().getInstallManager().getInstallDescription().getResumeMirror());
 		dest.setLocation(cacheFile.toURI());
 		dest.setName(Installer.getDefault().getInstallManager().getInstallDescription().getProductName());
 		mirrorApp.addDestination(dest);
@@ -2052,8 +2696,27 @@ public final class RepositoryManager {
 				Files.createDirectories(cacheFile.toPath());
 			}
 
+			// Journal of mirrored artifacts.  If not resuming, the cache is re-created so any journal is removed.
+			File journalFile = new File(cacheFile, MirrorJournal.FILE_NAME);
+			MirrorJournal journal = null;
+			if (Installer.getDefault().getInstallManager().getInstallDescription().getResumeMirror()) {
+				journal = new MirrorJournal(journalFile);
+				mirrorApp.setJournal(journal);
+			}
+			else {
+				Files.deleteIfExists(journalFile.toPath());
+			}
+
 			// Perform the mirror
-			IStatus status = mirrorApp.run(monitor);
+			IStatus status;
+			try {
+				status = mirrorApp.run(monitor);
+			}
+			finally {
+				if (journal != null) {
+					journal.close();
+				}
+			}
 			if (status.getSeverity() == IStatus.ERROR) {
 				Installer.fail(InstallMessages.Error_UpdateCache);
 			}
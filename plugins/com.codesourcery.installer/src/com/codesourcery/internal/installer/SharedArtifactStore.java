@@ -0,0 +1,397 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactKeyQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
+import org.eclipse.equinox.p2.repository.artifact.IFileArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.spi.ArtifactDescriptor;
+
+import com.codesourcery.installer.Installer;
+
+/**
+ * A store of downloaded artifacts under the installer data folder that is shared by all products and install
+ * locations.
+ * Artifacts are stored by the checksum of their content, so artifacts from different repositories with the same
+ * identifier and version but different content are kept apart.  The store is not a P2 repository.  Before
+ * provisioning, the stored artifacts of the plan that have the same checksum as an artifact descriptor of the install
+ * repositories are staged into a temporary repository in the store with a copy of that descriptor, so P2 only uses a
+ * stored artifact for the descriptors its content matches.
+ * The store can be used by several installers at the same time.  Artifacts are added while holding a lock on the
+ * store, and each artifact is moved into place only after its checksum has been verified, so a stored artifact is
+ * never incomplete.
+ */
+public class SharedArtifactStore {
+	/** Store directory in the installer data folder */
+	public static final String DIRECTORY = "artifacts";
+	/** Directory in the store for staging repositories */
+	private static final String STAGING_DIRECTORY = "staging";
+	/** Lock file in the store directory */
+	private static final String LOCK_FILENAME = ".lock";
+	/** SHA-256 checksum descriptor property */
+	private static final String PROP_DOWNLOAD_SHA256 = "download.checksum.sha-256"; //$NON-NLS-1$
+	/** Checksum properties in order of preference */
+	private static final String[] CHECKSUM_PROPERTIES = new String[] {
+		PROP_DOWNLOAD_SHA256,
+		IArtifactDescriptor.DOWNLOAD_MD5
+	};
+	/** Digest algorithms for the checksum properties */
+	private static final String[] CHECKSUM_ALGORITHMS = new String[] {
+		"SHA-256",
+		"MD5"
+	};
+	/** Store directories for the checksum properties */
+	private static final String[] CHECKSUM_DIRECTORIES = new String[] {
+		"sha-256",
+		"md5"
+	};
+
+	/** Store location */
+	private IPath location;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param location Store location
+	 */
+	public SharedArtifactStore(IPath location) {
+		this.location = location;
+	}
+
+	/**
+	 * Returns the default store location.
+	 * 
+	 * @return Store location in the installer data folder
+	 */
+	public static IPath getDefaultLocation() {
+		return Installer.getDefault().getDataFolder().append(DIRECTORY);
+	}
+
+	/**
+	 * Opens the store, creating it if required.
+	 * 
+	 * @throws IOException on failure to create the store
+	 */
+	public void open() throws IOException {
+		for (String directory : CHECKSUM_DIRECTORIES) {
+			Files.createDirectories(location.append(directory).toFile().toPath());
+		}
+	}
+
+	/**
+	 * @return The store location
+	 */
+	public IPath getLocation() {
+		return location;
+	}
+
+	/**
+	 * Returns if the store contains an artifact with the same content as a descriptor.
+	 * 
+	 * @param descriptor Artifact descriptor
+	 * @return <code>true</code> if the artifact is available in the store
+	 */
+	public boolean contains(IArtifactDescriptor descriptor) {
+		return (getStoredFile(descriptor) != null);
+	}
+
+	/**
+	 * Returns the download size of artifacts that are available in the store.
+	 * 
+	 * @param keys Artifact keys
+	 * @param sources Repositories with the artifact descriptors
+	 * @return Size in bytes that does not need to be downloaded
+	 */
+	public long getStoredDownloadSize(Collection<IArtifactKey> keys, List<IArtifactRepository> sources) {
+		long size = 0;
+		for (IArtifactKey key : keys) {
+			for (IArtifactRepository source : sources) {
+				IArtifactDescriptor[] descriptors = source.getArtifactDescriptors(key);
+				if (descriptors.length > 0) {
+					if (contains(descriptors[0])) {
+						String downloadSize = descriptors[0].getProperty(IArtifactDescriptor.DOWNLOAD_SIZE);
+						if (downloadSize != null) {
+							try {
+								size += Long.parseLong(downloadSize);
+							}
+							catch (NumberFormatException e) {
+								// Ignore
+							}
+						}
+					}
+					break;
+				}
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Stages the stored artifacts that have the same content as a set of artifacts of the source repositories.  Each
+	 * staged artifact is added to a repository in the store with a copy of the descriptor from the source repository.
+	 * The staged file is a hard link to the stored file, or a copy if the file system does not support links.  An
+	 * artifact is not staged if the source repositories provide different or unknown content for the same descriptor.
+	 * 
+	 * @param manager Artifact repository manager
+	 * @param keys Keys of the artifacts to stage, i.e. the artifacts of a provisioning plan
+	 * @param sources Source repositories, i.e. the install repositories
+	 * @return Staging repository or <code>null</code> if no stored artifacts match the source repositories.  The
+	 * repository must be removed with {@link #unstage(IArtifactRepositoryManager, IArtifactRepository)}.
+	 * @throws IOException on failure to create the staging repository
+	 * @throws ProvisionException on failure to create the staging repository
+	 */
+	public IArtifactRepository stage(IArtifactRepositoryManager manager, Collection<IArtifactKey> keys, 
+			List<IArtifactRepository> sources) throws IOException, ProvisionException {
+		// Stored files for the descriptors of the source repositories.  Descriptors are equal if they have the same
+		// key, format, and processing steps.  A descriptor is mapped to null if it can't be staged.
+		LinkedHashMap<IArtifactDescriptor, File> storedFiles = new LinkedHashMap<IArtifactDescriptor, File>();
+		for (IArtifactKey key : keys) {
+			for (IArtifactRepository source : sources) {
+				for (IArtifactDescriptor descriptor : source.getArtifactDescriptors(key)) {
+					ArtifactDescriptor stagedDescriptor = new ArtifactDescriptor(descriptor);
+					File storedFile = getStoredFile(descriptor);
+					if (!storedFiles.containsKey(stagedDescriptor)) {
+						storedFiles.put(stagedDescriptor, storedFile);
+					}
+					// Another source repository has different content for the descriptor
+					else if ((storedFile == null) || !storedFile.equals(storedFiles.get(stagedDescriptor))) {
+						storedFiles.put(stagedDescriptor, null);
+					}
+				}
+			}
+		}
+
+		IArtifactRepository staging = null;
+		int staged = 0;
+		try {
+			for (Entry<IArtifactDescriptor, File> entry : storedFiles.entrySet()) {
+				if (entry.getValue() == null)
+					continue;
+
+				// The staging repository is created in the store so that its files can be linked to the stored files
+				if (staging == null) {
+					Path stagingDirectory = location.append(STAGING_DIRECTORY).toFile().toPath();
+					Files.createDirectories(stagingDirectory);
+					staging = manager.createRepository(Files.createTempDirectory(stagingDirectory, DIRECTORY).toUri(),
+							"Staged shared artifacts", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, //$NON-NLS-1$
+							new HashMap<String, String>());
+				}
+				stageFile(staging, entry.getKey(), entry.getValue());
+				staged ++;
+			}
+		}
+		catch (IOException | ProvisionException e) {
+			if (staging != null) {
+				unstage(manager, staging);
+			}
+			throw e;
+		}
+
+		if (staging != null) {
+			Installer.log("Staged " + staged + " of " + keys.size() + " artifact(s) from shared store.");
+		}
+
+		return staging;
+	}
+
+	/**
+	 * Adds a stored file to a staging repository.
+	 * 
+	 * @param staging Staging repository
+	 * @param descriptor Descriptor for the staged artifact
+	 * @param storedFile Stored file
+	 * @throws IOException on failure to stage the file
+	 * @throws ProvisionException on failure to add the descriptor
+	 */
+	private void stageFile(IArtifactRepository staging, IArtifactDescriptor descriptor, File storedFile) 
+			throws IOException, ProvisionException {
+		File stagedFile = (staging instanceof IFileArtifactRepository) ? 
+				((IFileArtifactRepository)staging).getArtifactFile(descriptor) : null;
+		// Not a file repository, so copy the content
+		if (stagedFile == null) {
+			try (OutputStream out = staging.getOutputStream(descriptor)) {
+				Files.copy(storedFile.toPath(), out);
+			}
+			return;
+		}
+
+		Path stagedPath = stagedFile.toPath();
+		Files.createDirectories(stagedPath.getParent());
+		try {
+			Files.createLink(stagedPath, storedFile.toPath());
+		}
+		// Links are not supported by the file system
+		catch (IOException | UnsupportedOperationException e) {
+			Files.copy(storedFile.toPath(), stagedPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+		staging.addDescriptor(descriptor);
+	}
+
+	/**
+	 * Removes a staging repository.
+	 * 
+	 * @param manager Artifact repository manager
+	 * @param staging Staging repository
+	 * @see #stage(IArtifactRepositoryManager, Collection, List)
+	 */
+	public void unstage(IArtifactRepositoryManager manager, IArtifactRepository staging) {
+		manager.removeRepository(staging.getLocation());
+		try {
+			FileUtils.deleteDirectory(new File(staging.getLocation()).toPath());
+		}
+		catch (IOException e) {
+			Installer.log(e);
+		}
+	}
+
+	/**
+	 * Adds all artifacts from a repository that are not already in the store.  An artifact is only added if its
+	 * descriptor provides a checksum and the content of the artifact matches it.  The store is locked while adding,
+	 * so other installers do not add the same artifacts at the same time.
+	 * 
+	 * @param source Source repository, i.e. the download cache
+	 * @param monitor Progress monitor or <code>null</code>
+	 */
+	public synchronized void add(IFileArtifactRepository source, IProgressMonitor monitor) {
+		if (monitor == null)
+			monitor = new NullProgressMonitor();
+
+		int added = 0;
+		Path lockPath = location.append(LOCK_FILENAME).toFile().toPath();
+		try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = channel.lock()) {
+			Iterator<IArtifactKey> keys = source.query(ArtifactKeyQuery.ALL_KEYS, null).iterator();
+			while (keys.hasNext() && !monitor.isCanceled()) {
+				for (IArtifactDescriptor descriptor : source.getArtifactDescriptors(keys.next())) {
+					if (contains(descriptor))
+						continue;
+					File file = source.getArtifactFile(descriptor);
+					if ((file != null) && file.isFile() && addFile(file, descriptor)) {
+						added ++;
+					}
+				}
+			}
+		}
+		catch (Exception e) {
+			Installer.log("Failed to add artifacts to shared store: " + e.getMessage());
+		}
+
+		if (added > 0) {
+			Installer.log("Added " + added + " artifact(s) to shared store.");
+		}
+	}
+
+	/**
+	 * Adds an artifact file to the store.  The file is stored with the preferred checksum of its descriptor.
+	 * 
+	 * @param file Artifact file
+	 * @param descriptor Artifact descriptor
+	 * @return <code>true</code> if the file was added, <code>false</code> if the descriptor does not provide a
+	 * checksum or the content of the file does not match it
+	 * @throws IOException on failure to add the file
+	 */
+	private boolean addFile(File file, IArtifactDescriptor descriptor) throws IOException {
+		for (int index = 0; index < CHECKSUM_PROPERTIES.length; index ++) {
+			String checksum = getChecksum(descriptor, index);
+			if (checksum == null)
+				continue;
+
+			// Copy the file and move it into place only if its content has the checksum
+			Path directory = location.append(CHECKSUM_DIRECTORIES[index]).toFile().toPath();
+			Path tempFile = Files.createTempFile(directory, "artifact", ".tmp");
+			try {
+				Files.copy(file.toPath(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+				if (!checksum.equals(FileUtils.getChecksum(tempFile.toFile(), CHECKSUM_ALGORITHMS[index]))) {
+					Installer.log("Artifact not added to shared store, content does not match checksum: " +
+							descriptor.getArtifactKey());
+					return false;
+				}
+				Files.move(tempFile, directory.resolve(checksum), StandardCopyOption.ATOMIC_MOVE);
+				return true;
+			}
+			finally {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the stored file with the same content as a descriptor.
+	 * 
+	 * @param descriptor Artifact descriptor
+	 * @return Stored file or <code>null</code> if the store does not contain the artifact
+	 */
+	private File getStoredFile(IArtifactDescriptor descriptor) {
+		for (int index = 0; index < CHECKSUM_PROPERTIES.length; index ++) {
+			String checksum = getChecksum(descriptor, index);
+			if (checksum != null) {
+				File storedFile = location.append(CHECKSUM_DIRECTORIES[index]).append(checksum).toFile();
+				if (storedFile.isFile())
+					return storedFile;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a checksum of a descriptor.
+	 * 
+	 * @param descriptor Artifact descriptor
+	 * @param index Index of checksum property
+	 * @return Checksum as lower-case hexadecimal or <code>null</code> if the descriptor does not provide a valid
+	 * checksum
+	 */
+	private static String getChecksum(IArtifactDescriptor descriptor, int index) {
+		String checksum = descriptor.getProperty(CHECKSUM_PROPERTIES[index]);
+		if (checksum == null)
+			return null;
+
+		// Checksum is used as a file name
+		checksum = checksum.trim().toLowerCase(Locale.ENGLISH);
+		if (checksum.isEmpty())
+			return null;
+		for (int charIndex = 0; charIndex < checksum.length(); charIndex ++) {
+			char c = checksum.charAt(charIndex);
+			if (((c < '0') || (c > '9')) && ((c < 'a') || (c > 'f')))
+				return null;
+		}
+
+		return checksum;
+	}
+}
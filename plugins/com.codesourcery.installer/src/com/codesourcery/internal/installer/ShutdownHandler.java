@@ -54,15 +54,32 @@ public class ShutdownHandler implements Runnable {
 	 * if it is empty.
 	 */
 	public void addDirectoryToRemove(String path, boolean onlyIfEmpty) {		
+		addDirectoryToRemove(path, onlyIfEmpty, true);
+	}
+	
+	/**
+	 * Adds a directory to be removed after the installer has
+	 * shutdown.
+	 * 
+	 * @param path Path to directory
+	 * @param onlyIfEmpty <code>true</code> to only remove directory
+	 * if it is empty.
+	 * @param setWritable <code>true</code> to set all files in the directory
+	 * writable now, <code>false</code> if the files have already been made
+	 * writable.
+	 */
+	public void addDirectoryToRemove(String path, boolean onlyIfEmpty, boolean setWritable) {		
 		if (onlyIfEmpty) {
 			emptyDirectoriesToRemove.add(path);
 		}
 		else {
 			// Set all files write-able so they can be removed.
-			try {
-				FileUtils.setWritable(java.nio.file.Paths.get(path));
-			} catch (IOException e) {
-				Installer.log(e);
+			if (setWritable) {
+				try {
+					FileUtils.setWritable(java.nio.file.Paths.get(path));
+				} catch (IOException e) {
+					Installer.log(e);
+				}
 			}
 
 			directoriesToRemove.add(path);			
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.codesourcery.installer.IInstallComponent;
+import com.codesourcery.installer.IInstallMode;
+import com.codesourcery.installer.Installer;
+
+/**
+ * Job that computes install plans for selections the user is likely to make next so that they are available in the
+ * install plan cache.  Plans are computed for the default selection and for the selections that differ from the
+ * current selection by one optional component.
+ * The job runs at low priority, computes one plan at a time, and is canceled whenever a plan is requested for the
+ * current selection.
+ * 
+ * @see RepositoryManager#computeInstallPlan(IProgressMonitor)
+ */
+public class SpeculativePlanner extends Job {
+	/** Delay in milliseconds after a requested plan before speculative plans are computed */
+	public static final long DELAY = 500;
+
+	/**
+	 * Constructor
+	 */
+	public SpeculativePlanner() {
+		super("SpeculativePlanJob");
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		try {
+			RepositoryManager manager = RepositoryManager.getDefault();
+			int limit = manager.getSpeculativePlanLimit();
+			if (limit <= 0)
+				return Status.OK_STATUS;
+
+			// Only report cancellation to the planner
+			IProgressMonitor planMonitor = new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return monitor.isCanceled();
+				}
+			};
+
+			int computed = 0;
+			for (Set<IInstallComponent> selection : getSelections(manager)) {
+				if (monitor.isCanceled() || (computed >= limit))
+					break;
+
+				if (manager.computeSpeculativePlan(selection, planMonitor)) {
+					computed ++;
+				}
+			}
+
+			if (computed > 0) {
+				Installer.log("Computed " + computed + " speculative install plan(s).");
+			}
+		}
+		catch (Exception e) {
+			Installer.log(e);
+		}
+
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * Returns the selections to compute plans for, in order of priority.
+	 * 
+	 * @param manager Repository manager
+	 * @return Selections
+	 */
+	private List<Set<IInstallComponent>> getSelections(RepositoryManager manager) {
+		LinkedHashSet<Set<IInstallComponent>> selections = new LinkedHashSet<Set<IInstallComponent>>();
+		Set<IInstallComponent> current = manager.getSelectedComponents();
+		IInstallComponent[] components = manager.getInstallComponents(false);
+
+		// Default selection
+		IInstallMode mode = Installer.getDefault().getInstallManager().getInstallMode();
+		HashSet<IInstallComponent> defaultSelection = new HashSet<IInstallComponent>();
+		for (IInstallComponent component : components) {
+			if (component.isIncluded() && !component.hasMembers()) {
+				if (!component.isOptional() || (component.getInstalledUnit() != null) ||
+						(!mode.isUpdate() && component.isDefault())) {
+					defaultSelection.add(component);
+				}
+			}
+		}
+		selections.add(defaultSelection);
+
+		// Selections with one optional component (or group of components) toggled
+		for (IInstallComponent component : components) {
+			if (!component.isIncluded() || !component.isOptional())
+				continue;
+
+			ArrayList<IInstallComponent> toggled = new ArrayList<IInstallComponent>();
+			getSelectableComponents(component, toggled);
+			if (toggled.isEmpty())
+				continue;
+
+			HashSet<IInstallComponent> selection = new HashSet<IInstallComponent>(current);
+			if (current.containsAll(toggled)) {
+				selection.removeAll(toggled);
+			}
+			else {
+				selection.addAll(toggled);
+			}
+			selections.add(selection);
+		}
+
+		// The plan for the current selection has already been computed
+		selections.remove(current);
+
+		return new ArrayList<Set<IInstallComponent>>(selections);
+	}
+
+	/**
+	 * Returns the included components that are not groups for a component.  If the component is a group, its members
+	 * are returned.
+	 * 
+	 * @param component Component
+	 * @param selectable Filled with components
+	 */
+	private void getSelectableComponents(IInstallComponent component, List<IInstallComponent> selectable) {
+		if (!component.isIncluded())
+			return;
+
+		if (component.hasMembers()) {
+			for (IInstallComponent member : component.getMembers()) {
+				getSelectableComponents(member, selectable);
+			}
+		}
+		else {
+			selectable.add(component);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ *  Copyright (c) 2015 Mentor Graphics and others.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ * 
+ *  Contributors:
+ *     Mentor Graphics - initial API and implementation
+ *******************************************************************************/
+package com.codesourcery.internal.installer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
+
+/**
+ * Delegating progress monitor that coalesces progress updates.  Work increments are added together and only the
+ * latest task and sub-task names are kept.  The pending updates are sent to the delegated progress monitor at a fixed
+ * rate from a separate thread, so the thread reporting progress never waits on the delegated progress monitor (i.e.
+ * for the display thread) except to begin and end the task.
+ */
+public class ThrottledProgressMonitor extends ProgressMonitorWrapper {
+	/** Lock for pending updates */
+	private final Object lock = new Object();
+	/** Interval between updates in milliseconds */
+	private long interval;
+	/** Executor for updates */
+	private ScheduledExecutorService updater;
+	/** Pending work */
+	private double pendingWork = 0;
+	/** Pending task name or <code>null</code> */
+	private String pendingTaskName;
+	/** Pending sub-task name or <code>null</code> */
+	private String pendingSubTask;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param monitor Progress monitor for delegation
+	 * @param rate Number of updates per second
+	 */
+	public ThrottledProgressMonitor(IProgressMonitor monitor, int rate) {
+		super(monitor);
+		interval = Math.max(1, 1000 / Math.max(1, rate));
+	}
+
+	@Override
+	public void beginTask(String name, int totalWork) {
+		super.beginTask(name, totalWork);
+
+		synchronized (lock) {
+			if (updater == null) {
+				updater = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "ThrottledProgressMonitor");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				updater.scheduleAtFixedRate(new Runnable() {
+					@Override
+					public void run() {
+						update();
+					}
+				}, interval, interval, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	@Override
+	public void setTaskName(String name) {
+		synchronized (lock) {
+			pendingTaskName = name;
+		}
+	}
+
+	@Override
+	public void subTask(String name) {
+		synchronized (lock) {
+			pendingSubTask = name;
+		}
+	}
+
+	@Override
+	public void worked(int work) {
+		internalWorked(work);
+	}
+
+	@Override
+	public void internalWorked(double work) {
+		synchronized (lock) {
+			pendingWork += work;
+		}
+	}
+
+	@Override
+	public void done() {
+		ScheduledExecutorService executor;
+		synchronized (lock) {
+			executor = updater;
+			updater = null;
+		}
+		// Stop updates and send any remaining update
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				// Ignore
+			}
+		}
+		update();
+
+		super.done();
+	}
+
+	/**
+	 * Sends pending updates to the delegated progress monitor.
+	 */
+	private void update() {
+		String taskName;
+		String subTask;
+		double work;
+		synchronized (lock) {
+			taskName = pendingTaskName;
+			subTask = pendingSubTask;
+			work = pendingWork;
+			pendingTaskName = null;
+			pendingSubTask = null;
+			pendingWork = 0;
+		}
+
+		if (taskName != null) {
+			super.setTaskName(taskName);
+		}
+		if (subTask != null) {
+			super.subTask(subTask);
+		}
+		if (work != 0) {
+			super.internalWorked(work);
+		}
+	}
+}
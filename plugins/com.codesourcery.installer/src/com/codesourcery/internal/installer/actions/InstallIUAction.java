@@ -34,6 +34,7 @@ import org.osgi.framework.ServiceReference;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.codesourcery.installer.IInstallActionScheduling;
 import com.codesourcery.installer.IInstallMode;
 import com.codesourcery.installer.IInstallProduct;
 import com.codesourcery.installer.Installer;
@@ -46,9 +47,9 @@ import com.codesourcery.internal.installer.RepositoryManager;
  * Action to install/uninstall p2 installable units.
  */
 @SuppressWarnings("restriction") // Accesses internal p2 API's
-public class InstallIUAction extends AbstractInstallAction {
+public class InstallIUAction extends AbstractInstallAction implements IInstallActionScheduling {
 	/** Action identifier */
-	private static final String ID = "com.codesourcery.installer.installIUAction";
+	public static final String ID = "com.codesourcery.installer.installIUAction";
 	/** Profile attribute */
 	private static final String ATTRIBUTE_PROFILE = "profile";
 	/** Remove profile attribute */
@@ -315,4 +316,16 @@ public class InstallIUAction extends AbstractInstallAction {
 		// units are dependent on.
 		return false;
 	}
+
+	@Override
+	public String[] getDependencies() {
+		// Does not depend on other actions
+		return null;
+	}
+
+	@Override
+	public String[] getConflicts() {
+		// Only modifies the installation profile
+		return new String[] { ID };
+	}
 }
@@ -20,6 +20,7 @@ import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.codesourcery.installer.IInstallActionScheduling;
 import com.codesourcery.installer.IInstallMode;
 import com.codesourcery.installer.IInstallPlatform;
 import com.codesourcery.installer.IInstallProduct;
@@ -34,9 +35,9 @@ import com.codesourcery.internal.installer.InstallUtils;
  * Action to install and uninstall a shortcut. can be used to create short-cuts 
  * to any files installed via P2 or files that are part of the uninstaller
  */
-public class ShortcutAction extends AbstractInstallAction {
+public class ShortcutAction extends AbstractInstallAction implements IInstallActionScheduling {
 	/** Action identifier */
-	private static final String ID = "com.codesourcery.installer.shortcutAction";
+	public static final String ID = "com.codesourcery.installer.shortcutAction";
 	
 	/** Path attribute */
 	private static final String ATTRIBUTE_PATH = "path";
@@ -217,7 +218,10 @@ public class ShortcutAction extends AbstractInstallAction {
 					// Do not fail if short-cut can't be removed, just log the error.
 					Installer.log(e);
 				}
-				// Remove short-cut directories (if empty)
+				// Remove short-cut directories (if empty).  The directories are
+				// removed as optional operations so that the action does not
+				// fail if they can't be removed.
+				platform.setOptionalOperations(true);
 				try {
 					// Root short-cut folder
 					IPath baseShortcutFolder = getRemovePath();
@@ -245,6 +249,9 @@ public class ShortcutAction extends AbstractInstallAction {
 					// log the error.
 					Installer.log(e);
 				}
+				finally {
+					platform.setOptionalOperations(false);
+				}
 				pm.worked(1);
 			}
 		}
@@ -253,6 +260,18 @@ public class ShortcutAction extends AbstractInstallAction {
 		}
 	}
 
+	@Override
+	public String[] getDependencies() {
+		// Short-cut target must be installed
+		return new String[] { InstallIUAction.ID };
+	}
+
+	@Override
+	public String[] getConflicts() {
+		// Short-cuts can share folders so are created in order
+		return new String[] { ID };
+	}
+
 	@Override
 	public void save(Document document, Element element) throws CoreException {
 		element.setAttribute(ATTRIBUTE_PATH, getPath().toOSString());
@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 
+import com.codesourcery.installer.IInstallActionScheduling;
 import com.codesourcery.installer.IInstallMode;
 import com.codesourcery.installer.IInstallPlatform;
 import com.codesourcery.installer.IInstallProduct;
@@ -29,7 +30,7 @@ import com.codesourcery.internal.installer.InstallMessages;
 /**
  * Action to set up the Control panel add/remove on Windows.
  */
-public class UninstallLinkAction extends AbstractInstallAction {
+public class UninstallLinkAction extends AbstractInstallAction implements IInstallActionScheduling {
 	/** Action identifier */
 	private static final String ID = "com.codesourcery.installer.uninstallLinkAction";
 	/** Uninstall location */
@@ -210,4 +211,16 @@ public class UninstallLinkAction extends AbstractInstallAction {
 		// Only supported on Windows
 		return isWindows(platform);
 	}
+
+	@Override
+	public String[] getDependencies() {
+		// Does not depend on other actions
+		return null;
+	}
+
+	@Override
+	public String[] getConflicts() {
+		// Only modifies the product uninstall entry
+		return new String[] { ID };
+	}
 }
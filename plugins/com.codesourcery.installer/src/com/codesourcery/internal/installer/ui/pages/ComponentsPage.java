@@ -438,6 +438,14 @@ public class ComponentsPage extends InstallWizardPage implements IInstallSummary
 		if (installPlanJob.getState() != Job.NONE) {
 			installPlanJob.cancel();
 		}
+		// Use the estimated install size if available
+		IInstallPlan estimatedPlan = RepositoryManager.getDefault().estimateInstallPlan();
+		if (estimatedPlan != null) {
+			installPlan = estimatedPlan;
+			updateSizeStatus();
+			updateStatus();
+			return;
+		}
 		// Schedule plan job
 		installPlanJob.schedule();
 	}
@@ -1134,7 +1142,13 @@ public class ComponentsPage extends InstallWizardPage implements IInstallSummary
 				installPlan = RepositoryManager.getDefault().computeCacheSize(monitor);
 			}
 			else {
-				installPlan = RepositoryManager.getDefault().computeInstallPlan(monitor);
+				// Estimate the install size if enabled, otherwise compute the full plan
+				IInstallPlan estimatedPlan = null;
+				if (RepositoryManager.getDefault().initializeSizeEstimator(monitor)) {
+					estimatedPlan = RepositoryManager.getDefault().estimateInstallPlan();
+				}
+				installPlan = (estimatedPlan != null) ? estimatedPlan : 
+					RepositoryManager.getDefault().computeInstallPlan(monitor);
 			}
 			
 			// Hide progress and update install plan size and status